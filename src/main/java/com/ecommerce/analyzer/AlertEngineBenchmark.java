@@ -0,0 +1,114 @@
+package com.ecommerce.analyzer;
+
+import com.ecommerce.analyzer.model.PriceAlert;
+import com.ecommerce.analyzer.service.PriceAlertIndex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Alert Engine Benchmark
+ * Measures the in-memory price alert index against a linear scan of every
+ * alert. Runs without a database: alerts and price changes are generated
+ * from a seeded random source, so runs are reproducible.
+ *
+ * Each product has a base price and several platforms; alerts sit 5-40%
+ * below the base, and price changes mostly wander around the base with the
+ * odd deep discount that fires alerts.
+ *
+ * Usage: AlertEngineBenchmark [alerts] [products] [priceChanges]
+ */
+public class AlertEngineBenchmark {
+
+    private static final int PLATFORMS = 8;
+    private static final int BASELINE_SAMPLE = 2_000;
+
+    private record Change(long productId, long productDetailId, double price) {
+    }
+
+    public static void main(String[] args) {
+        int alertCount = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int productCount = args.length > 1 ? Integer.parseInt(args[1]) : 5_000;
+        int changeCount = args.length > 2 ? Integer.parseInt(args[2]) : 1_000_000;
+        Random random = new Random(42);
+
+        double[] basePrices = new double[productCount];
+        for (int i = 0; i < productCount; i++) {
+            basePrices[i] = 200 + random.nextDouble() * 80_000;
+        }
+
+        List<PriceAlert> alerts = new ArrayList<>(alertCount);
+        for (int i = 0; i < alertCount; i++) {
+            int product = random.nextInt(productCount);
+            double base = basePrices[product];
+            PriceAlert alert = random.nextBoolean()
+                    ? PriceAlert.belowPrice((long) product, base * (0.60 + random.nextDouble() * 0.35))
+                    : PriceAlert.percentDrop((long) product, 5 + random.nextDouble() * 35, base);
+            alert.setId((long) i);
+            alerts.add(alert);
+        }
+
+        List<Change> changes = new ArrayList<>(changeCount);
+        for (int i = 0; i < changeCount; i++) {
+            int product = random.nextInt(productCount);
+            long detail = (long) product * PLATFORMS + random.nextInt(PLATFORMS);
+            double factor = random.nextDouble() < 0.02
+                    ? 0.55 + random.nextDouble() * 0.4   // Sale
+                    : 0.95 + random.nextDouble() * 0.10; // Normal wobble
+            changes.add(new Change(product, detail, basePrices[product] * factor));
+        }
+
+        System.out.println("=====================================");
+        System.out.println("   PRICE ALERT ENGINE BENCHMARK");
+        System.out.println("=====================================");
+        System.out.printf("%,d alerts on %,d products x %d platforms, %,d price changes%n%n",
+                alertCount, productCount, PLATFORMS, changeCount);
+
+        // Index build
+        long startNanos = System.nanoTime();
+        PriceAlertIndex index = new PriceAlertIndex();
+        for (PriceAlert alert : alerts) {
+            index.add(alert);
+        }
+        double buildMs = (System.nanoTime() - startNanos) / 1e6;
+
+        // Indexed evaluation (warm-up pass on a throwaway copy first)
+        PriceAlertIndex warmUp = new PriceAlertIndex();
+        alerts.forEach(warmUp::add);
+        for (int i = 0; i < Math.min(changeCount, 200_000); i++) {
+            Change change = changes.get(i);
+            warmUp.match(change.productId(), change.productDetailId(), change.price());
+        }
+
+        int fired = 0;
+        startNanos = System.nanoTime();
+        for (Change change : changes) {
+            fired += index.match(change.productId(), change.productDetailId(), change.price()).size();
+        }
+        long indexedNanos = System.nanoTime() - startNanos;
+
+        // Linear scan over every alert, on a sample of the same changes
+        int sample = Math.min(BASELINE_SAMPLE, changeCount);
+        int scanHits = 0;
+        startNanos = System.nanoTime();
+        for (int i = 0; i < sample; i++) {
+            Change change = changes.get(i);
+            for (PriceAlert alert : alerts) {
+                if (alert.getProductId() == change.productId() && change.price() <= alert.getThresholdPrice()) {
+                    scanHits++;
+                }
+            }
+        }
+        long scanNanos = System.nanoTime() - startNanos;
+
+        double indexedPerChange = (double) indexedNanos / changeCount;
+        double scanPerChange = (double) scanNanos / sample;
+        System.out.printf("Index build:      %,.1f ms%n", buildMs);
+        System.out.printf("Indexed match:    %,.0f ns/change (%,.0f changes/s), %,d alerts fired, %,d left%n",
+                indexedPerChange, 1e9 / indexedPerChange, fired, index.size());
+        System.out.printf("Linear scan:      %,.0f ns/change (%,.0f changes/s) over %,d sampled changes (%,d hits)%n",
+                scanPerChange, 1e9 / scanPerChange, sample, scanHits);
+        System.out.printf("Speed-up:         %,.0fx%n", scanPerChange / indexedPerChange);
+    }
+}
@@ -0,0 +1,363 @@
+package com.ecommerce.analyzer;
+
+import com.ecommerce.analyzer.util.ConfigManager;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Gemini Stand-In Server
+ * Local replacement for the Gemini REST endpoint, for load tests and offline
+ * benchmarks of retry, caching and throughput behavior.
+ *
+ * Modes:
+ * - replay: answer from recorded responses (keyed by a hash of the request
+ *   body); requests with no recording get a synthetic answer built from the
+ *   request's responseSchema
+ * - record: forward to the real API, save each response, then return it
+ *
+ * Latency (log-normal around a median), 429 / 5xx rates and malformed bodies
+ * are injected from a random source seeded per request: the seed, the request
+ * body's hash and how many times that body was sent before. Runs are
+ * reproducible whatever the thread count and arrival order.
+ *
+ * Point the app at it with:
+ *   gemini.api.url=http://localhost:8089/v1beta/models/gemini-1.5-flash
+ *
+ * Usage: GeminiStandInServer [replay|record] [port]
+ */
+public class GeminiStandInServer {
+
+    private static final String UPSTREAM_DEFAULT = "https://generativelanguage.googleapis.com";
+
+    private final boolean recordMode;
+    private final Path recordings;
+    private final String upstream;
+    private final long latencyMedianMs;
+    private final double latencySigma;
+    private final double rate429;
+    private final double rate5xx;
+    private final double rateMalformed;
+    private final long seed;
+    private final Map<String, AtomicLong> sendsByKey = new ConcurrentHashMap<>();
+    private final HttpClient upstreamClient = HttpClient.newHttpClient();
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong replayed = new AtomicLong();
+    private final AtomicLong synthesized = new AtomicLong();
+    private final AtomicLong recorded = new AtomicLong();
+    private final AtomicLong faults = new AtomicLong();
+
+    public GeminiStandInServer(boolean recordMode) {
+        this.recordMode = recordMode;
+        this.recordings = Path.of(ConfigManager.getProperty("gemini.standin.recordings",
+                System.getProperty("user.home") + "/.ecommerce-analyzer/gemini-recordings"));
+        this.upstream = ConfigManager.getProperty("gemini.standin.upstream", UPSTREAM_DEFAULT);
+        this.latencyMedianMs = ConfigManager.getIntProperty("gemini.standin.latency.median.ms", 800);
+        this.latencySigma = ConfigManager.getDoubleProperty("gemini.standin.latency.sigma", 0.5);
+        this.rate429 = ConfigManager.getDoubleProperty("gemini.standin.rate.429", 0.0);
+        this.rate5xx = ConfigManager.getDoubleProperty("gemini.standin.rate.5xx", 0.0);
+        this.rateMalformed = ConfigManager.getDoubleProperty("gemini.standin.rate.malformed", 0.0);
+        this.seed = ConfigManager.getIntProperty("gemini.standin.seed", 42);
+    }
+
+    public static void main(String[] args) throws IOException {
+        boolean record = args.length > 0 && "record".equalsIgnoreCase(args[0]);
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : ConfigManager.getIntProperty("gemini.standin.port", 8089);
+
+        GeminiStandInServer standIn = new GeminiStandInServer(record);
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        server.createContext("/", standIn::handle);
+        server.setExecutor(Executors.newFixedThreadPool(ConfigManager.getIntProperty("gemini.standin.threads", 16)));
+        server.start();
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> System.out.println(standIn.getSummary())));
+        System.out.println("[StandIn] 🚀 Gemini stand-in (" + (record ? "record" : "replay") + ") on http://localhost:" + port);
+        System.out.println("[StandIn] Recordings: " + standIn.recordings.toAbsolutePath());
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            requests.incrementAndGet();
+            String path = exchange.getRequestURI().getPath();
+            if (!"POST".equals(exchange.getRequestMethod())
+                    || !(path.endsWith(":generateContent") || path.endsWith(":streamGenerateContent"))) {
+                send(exchange, 404, "application/json", errorBody(404, "NOT_FOUND", "Unknown method " + path));
+                return;
+            }
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            boolean streaming = path.endsWith(":streamGenerateContent");
+
+            // A retry of the same body gets fresh draws, but the same ones every run
+            Random random = randomFor(body);
+            double roll = random.nextDouble();
+            long latencyMs = Math.round(latencyMedianMs * Math.exp(latencySigma * random.nextGaussian()));
+            sleep(latencyMs);
+
+            if (roll < rate429) {
+                faults.incrementAndGet();
+                exchange.getResponseHeaders().add("Retry-After", "2");
+                send(exchange, 429, "application/json", errorBody(429, "RESOURCE_EXHAUSTED", "Stand-in quota exceeded"));
+                return;
+            }
+            if (roll < rate429 + rate5xx) {
+                faults.incrementAndGet();
+                send(exchange, 503, "application/json", errorBody(503, "UNAVAILABLE", "Stand-in overloaded"));
+                return;
+            }
+
+            String response = recordMode ? forward(exchange, path, body) : replay(body, random);
+            if (response == null) {
+                return; // Upstream error already relayed
+            }
+            if (roll < rate429 + rate5xx + rateMalformed) {
+                faults.incrementAndGet();
+                response = response.substring(0, response.length() / 2); // Cut mid-JSON
+            }
+
+            if (streaming) {
+                sendStream(exchange, response);
+            } else {
+                send(exchange, 200, "application/json", response);
+            }
+        } catch (RuntimeException e) {
+            System.err.println("[StandIn] ⚠️  " + e.getMessage());
+        }
+    }
+
+    private String replay(String requestBody, Random random) throws IOException {
+        Path file = recordings.resolve(keyOf(requestBody) + ".json");
+        if (Files.exists(file)) {
+            replayed.incrementAndGet();
+            return Files.readString(file);
+        }
+        synthesized.incrementAndGet();
+        return synthesize(requestBody, random);
+    }
+
+    /**
+     * Record mode: pass the call to the real API with the caller's key and keep the answer
+     */
+    private String forward(HttpExchange exchange, String path, String requestBody) throws IOException {
+        // Recordings are always the complete (non-streamed) response
+        String method = path.replace(":streamGenerateContent", ":generateContent");
+        String query = exchange.getRequestURI().getRawQuery();
+        String key = query != null && query.contains("key=") ? query.replaceAll(".*key=([^&]*).*", "$1") : "";
+        HttpRequest request = HttpRequest.newBuilder(URI.create(upstream + method + "?key=" + key))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(requestBody))
+                .build();
+        try {
+            HttpResponse<String> response = upstreamClient.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                send(exchange, response.statusCode(), "application/json", response.body());
+                return null;
+            }
+            Files.createDirectories(recordings);
+            Files.writeString(recordings.resolve(keyOf(requestBody) + ".json"), response.body());
+            recorded.incrementAndGet();
+            return response.body();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while recording", e);
+        }
+    }
+
+    /**
+     * Well-formed generateContent response. With a responseSchema the text is
+     * JSON generated from the schema; otherwise a short recommendation.
+     */
+    private String synthesize(String requestBody, Random random) {
+        JsonObject request = JsonParser.parseString(requestBody).getAsJsonObject();
+        JsonObject config = request.has("generationConfig") ? request.getAsJsonObject("generationConfig") : new JsonObject();
+
+        String text = config.has("responseSchema")
+                ? valueFor(config.getAsJsonObject("responseSchema"), null, random).toString()
+                : "**Recommended Platform:** Amazon\n\n**Reasons:**\n1. Stand-in price\n2. Stand-in rating\n" +
+                  "3. Stand-in delivery\n\n**Overall Value Score:** 8/10";
+
+        JsonObject part = new JsonObject();
+        part.addProperty("text", text);
+        JsonArray parts = new JsonArray();
+        parts.add(part);
+        JsonObject content = new JsonObject();
+        content.add("parts", parts);
+        content.addProperty("role", "model");
+        JsonObject candidate = new JsonObject();
+        candidate.add("content", content);
+        candidate.addProperty("finishReason", "STOP");
+        JsonArray candidates = new JsonArray();
+        candidates.add(candidate);
+
+        JsonObject usage = new JsonObject();
+        usage.addProperty("promptTokenCount", requestBody.length() / 4);
+        usage.addProperty("candidatesTokenCount", text.length() / 4);
+        usage.addProperty("totalTokenCount", (requestBody.length() + text.length()) / 4);
+
+        JsonObject response = new JsonObject();
+        response.add("candidates", candidates);
+        response.add("usageMetadata", usage);
+        return response.toString();
+    }
+
+    /**
+     * Plausible value for one schema node; property names steer the numbers
+     */
+    private JsonElement valueFor(JsonObject schema, String name, Random random) {
+        String type = schema.has("type") ? schema.get("type").getAsString() : "STRING";
+        switch (type) {
+            case "OBJECT" -> {
+                JsonObject object = new JsonObject();
+                if (schema.has("properties")) {
+                    for (Map.Entry<String, JsonElement> property : schema.getAsJsonObject("properties").entrySet()) {
+                        object.add(property.getKey(), valueFor(property.getValue().getAsJsonObject(), property.getKey(), random));
+                    }
+                }
+                return object;
+            }
+            case "ARRAY" -> {
+                JsonArray array = new JsonArray();
+                String[] platforms = {"Amazon", "Flipkart", "Meesho", "Myntra"};
+                for (int i = 0; i < 3; i++) {
+                    JsonElement item = valueFor(schema.getAsJsonObject("items"), null, random);
+                    if (item.isJsonObject() && item.getAsJsonObject().has("platform")) {
+                        item.getAsJsonObject().addProperty("platform", platforms[i]);
+                    }
+                    array.add(item);
+                }
+                return array;
+            }
+            case "NUMBER" -> {
+                double value = "rating".equals(name) ? 3.5 + random.nextDouble() * 1.5 : 500 + random.nextDouble() * 50000;
+                return new JsonPrimitive(Math.round(value * 10) / 10.0);
+            }
+            case "INTEGER" -> {
+                return new JsonPrimitive(100 + random.nextInt(5000));
+            }
+            default -> {
+                if (schema.has("enum")) {
+                    return schema.getAsJsonArray("enum").get(0);
+                }
+                return new JsonPrimitive("deliveryTime".equals(name) ? "2-4 days" : "Stand-in " + name);
+            }
+        }
+    }
+
+    /**
+     * Replay a complete response as server-sent events, one text slice per event
+     */
+    private void sendStream(HttpExchange exchange, String response) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream out = exchange.getResponseBody()) {
+            String text;
+            try {
+                JsonObject parsed = JsonParser.parseString(response).getAsJsonObject();
+                text = parsed.getAsJsonArray("candidates").get(0).getAsJsonObject()
+                        .getAsJsonObject("content").getAsJsonArray("parts").get(0).getAsJsonObject()
+                        .get("text").getAsString();
+            } catch (RuntimeException e) {
+                // Malformed on purpose - send it as a single broken event
+                out.write(("data: " + response + "\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+
+            int sliceChars = 40;
+            for (int start = 0; start < text.length(); start += sliceChars) {
+                JsonObject part = new JsonObject();
+                part.addProperty("text", text.substring(start, Math.min(text.length(), start + sliceChars)));
+                JsonArray parts = new JsonArray();
+                parts.add(part);
+                JsonObject content = new JsonObject();
+                content.add("parts", parts);
+                JsonObject candidate = new JsonObject();
+                candidate.add("content", content);
+                JsonArray candidates = new JsonArray();
+                candidates.add(candidate);
+                JsonObject event = new JsonObject();
+                event.add("candidates", candidates);
+                if (start + sliceChars >= text.length() && response.contains("usageMetadata")) {
+                    event.add("usageMetadata", JsonParser.parseString(response).getAsJsonObject().get("usageMetadata"));
+                }
+                out.write(("data: " + event + "\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+                out.flush();
+                sleep(20);
+            }
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static String errorBody(int code, String status, String message) {
+        JsonObject error = new JsonObject();
+        error.addProperty("code", code);
+        error.addProperty("message", message);
+        error.addProperty("status", status);
+        JsonObject body = new JsonObject();
+        body.add("error", error);
+        return body.toString();
+    }
+
+    /**
+     * Draws for one request: seed, body hash and the body's send count
+     */
+    private Random randomFor(String requestBody) {
+        String key = keyOf(requestBody);
+        long sends = sendsByKey.computeIfAbsent(key, k -> new AtomicLong()).getAndIncrement();
+        long bodyHash = Long.parseUnsignedLong(key.substring(0, 16), 16);
+        return new Random(seed ^ bodyHash ^ (sends * 0x9E3779B97F4A7C15L));
+    }
+
+    /** Recording key: SHA-256 of the request body */
+    private static String keyOf(String requestBody) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(requestBody.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(Math.max(0, ms));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public String getSummary() {
+        return String.format("[StandIn] %d requests: %d replayed, %d synthesized, %d recorded, %d faults injected",
+                requests.get(), replayed.get(), synthesized.get(), recorded.get(), faults.get());
+    }
+}
@@ -1,4 +1,5 @@
 package com.ecommerce.analyzer.controller;
+import com.ecommerce.analyzer.model.PriceAlert;
 import com.ecommerce.analyzer.model.Product;
 import com.ecommerce.analyzer.model.ProductDetail;
 import com.ecommerce.analyzer.model.PriceHistory;
@@ -11,6 +12,7 @@ import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.concurrent.Task;
 import javafx.fxml.FXML;
+import javafx.geometry.Pos;
 import javafx.scene.chart.LineChart;
 import javafx.scene.chart.XYChart;
 import javafx.scene.control.*;
@@ -62,6 +64,7 @@ public class MainController {
     // Control buttons
     @FXML private Button exportPdfButton;
     @FXML private Button exportExcelButton;
+    @FXML private Button priceAlertsButton;
     @FXML private Button refreshButton;
     @FXML private ToggleButton themeToggle;
     @FXML private Label statusLabel;
@@ -71,9 +74,12 @@ public class MainController {
     private final AIAnalyzerService aiService = new AIAnalyzerService();
     private final ExportService exportService = new ExportService();
     private final AutoRefreshService autoRefreshService = new AutoRefreshService();
+    private PriceEventBus.Subscription detailUpdates;
     // Data
     private List<ProductDetail> productDetails = new ArrayList<>();
     private Product currentProduct;
+    private int aiRequestId;           // FX thread only
+    private boolean aiStreamStarted;   // FX thread only
 
     @FXML
     public void initialize() {
@@ -82,6 +88,8 @@ public class MainController {
         setupPlatformFilters();
         setupChart();
         setupSidebarToggles();
+        subscribeToDetailChanges();
+        startPriceAlerts();
         autoRefreshService.start();
         setStatus("Ready");
     }
@@ -94,10 +102,48 @@ public class MainController {
         addUrlButton.setOnAction(event -> addProductByUrl());
         exportPdfButton.setOnAction(event -> exportToPDF());
         exportExcelButton.setOnAction(event -> exportToExcel());
+        priceAlertsButton.setOnAction(event -> managePriceAlerts());
         refreshButton.setOnAction(event -> refreshData());
         themeToggle.setOnAction(event -> toggleTheme());
         searchField.setOnAction(event -> loadProductComparison());
     }
+    /**
+     * Background refreshes update the open product's table straight from the
+     * written values; only the latest state matters, so old events may be dropped
+     */
+    private void subscribeToDetailChanges() {
+        detailUpdates = PriceEventBus.getInstance().subscribe("ui-details", PriceEventBus.DetailChanged.class,
+                event -> Platform.runLater(() -> applyDetailChange(event)),
+                256, PriceEventBus.Overflow.DROP_OLDEST);
+    }
+
+    /**
+     * Alerts are loaded off the FX thread; there can be many of them
+     */
+    private void startPriceAlerts() {
+        Thread loader = new Thread(() -> {
+            try {
+                PriceAlertEngine.getInstance().start();
+            } catch (Exception e) {
+                System.err.println("[PriceAlert] ⚠ Alert engine not started: " + e.getMessage());
+            }
+        }, "price-alert-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    private void applyDetailChange(PriceEventBus.DetailChanged event) {
+        if (currentProduct == null || !currentProduct.getId().equals(event.productId())) {
+            return;
+        }
+        List<ProductDetail> updated = new ArrayList<>(productDetails);
+        updated.removeIf(detail -> detail.getPlatform().equals(event.platform()));
+        updated.add(event.detail());
+        updated.sort(Comparator.comparingDouble(ProductDetail::getPrice));
+        productDetails = updated;
+        filterPlatforms();
+        setStatus("↻ " + event.platform() + " updated");
+    }
     private void setupPlatformFilters() {
         amazonCheck.setOnAction(e -> filterPlatforms());
         flipkartCheck.setOnAction(e -> filterPlatforms());
@@ -188,6 +234,8 @@ public class MainController {
 
                     // Now fetch the product details that were just scraped
                     List<ProductDetail> details = productService.getProductDetails(newProduct.getId());
+                    // Saved by the combined scrape call, if enabled; used only for a close call
+                    String recommendation = productService.getStoredRecommendation(newProduct.getId());
                     currentProduct = newProduct;
 
                     Platform.runLater(() -> {
@@ -201,7 +249,7 @@ public class MainController {
                             displayComparisonTable(details);
                             updateInsights(details);
                             loadPriceChart(details);
-                            getAIRecommendation(details);
+                            getAIRecommendation(details, recommendation);
                             setStatus("✓ Loaded " + details.size() + " platform comparisons for: " + searchTerm);
                         }
                     });
@@ -210,6 +258,7 @@ public class MainController {
 
                 // Product exists - load its details
                 currentProduct = products.get(0);
+                productService.recordProductView(currentProduct.getId());
                 List<ProductDetail> details = productService.getProductDetails(currentProduct.getId());
 
                 Platform.runLater(() -> {
@@ -430,17 +479,42 @@ public class MainController {
     }
 
     private void getAIRecommendation(List<ProductDetail> details) {
+        getAIRecommendation(details, null);
+    }
+
+    /**
+     * Local ranking first; Gemini's answer (stored or streamed) only for a close call
+     */
+    private void getAIRecommendation(List<ProductDetail> details, String storedRecommendation) {
         aiRecommendationArea.setText("Analyzing with AI...");
+        int requestId = ++aiRequestId;
         Task<String> task = new Task<String>() {
             @Override
             protected String call() throws Exception {
-                return aiService.analyzeAndRecommend(details);
+                // Stream text into the area as Gemini generates it
+                return aiService.analyzeAndRecommendStreaming(details, storedRecommendation, chunk -> Platform.runLater(() -> {
+                    if (requestId != aiRequestId) {
+                        return; // A newer product was loaded - drop stale text
+                    }
+                    if (!aiStreamStarted) {
+                        aiStreamStarted = true;
+                        aiRecommendationArea.clear();
+                    }
+                    aiRecommendationArea.appendText(chunk);
+                }));
             }
         };
-        task.setOnSucceeded(event -> aiRecommendationArea.setText(task.getValue()));
+        aiStreamStarted = false;
+        task.setOnSucceeded(event -> {
+            if (requestId == aiRequestId) {
+                aiRecommendationArea.setText(task.getValue());
+            }
+        });
         task.setOnFailed(event -> {
-            String fallback = aiService.getSimpleRecommendation(details);
-            aiRecommendationArea.setText("AI analysis unavailable. Simple recommendation:\n\n" + fallback);
+            if (requestId == aiRequestId) {
+                String fallback = aiService.getSimpleRecommendation(details);
+                aiRecommendationArea.setText("AI analysis unavailable. Simple recommendation:\n\n" + fallback);
+            }
         });
         new Thread(task).start();
     }
@@ -511,11 +585,126 @@ public class MainController {
         }
     }
 
+    /**
+     * List, add and remove price alerts for the product on screen
+     */
+    @FXML
+    private void managePriceAlerts() {
+        if (currentProduct == null) {
+            showAlert("No Data", "Please load a product comparison first", Alert.AlertType.WARNING);
+            return;
+        }
+        Product product = currentProduct;
+        PriceAlertEngine alertEngine = PriceAlertEngine.getInstance();
+
+        ListView<PriceAlert> alertList = new ListView<>();
+        alertList.setPrefHeight(220);
+        alertList.setPlaceholder(new Label("No alerts for this product yet"));
+        alertList.setCellFactory(list -> new ListCell<>() {
+            @Override
+            protected void updateItem(PriceAlert alert, boolean empty) {
+                super.updateItem(alert, empty);
+                setText(empty || alert == null ? null : describeAlert(alert));
+            }
+        });
+
+        ComboBox<String> typeBox = new ComboBox<>(FXCollections.observableArrayList(
+                "Price at or below (₹)", "Drop from today's best (%)"));
+        typeBox.getSelectionModel().selectFirst();
+        TextField valueField = new TextField();
+        valueField.setPromptText("e.g. 24999 or 10");
+        Button addButton = new Button("Add Alert");
+        Button removeButton = new Button("Remove Selected");
+        removeButton.disableProperty().bind(alertList.getSelectionModel().selectedItemProperty().isNull());
+
+        addButton.setOnAction(event -> {
+            double value;
+            try {
+                value = Double.parseDouble(valueField.getText().trim().replace(",", ""));
+            } catch (NumberFormatException e) {
+                showAlert("Invalid Value", "Please enter a number", Alert.AlertType.WARNING);
+                return;
+            }
+            boolean belowPrice = typeBox.getSelectionModel().getSelectedIndex() == 0;
+            Task<PriceAlert> task = new Task<PriceAlert>() {
+                @Override
+                protected PriceAlert call() throws Exception {
+                    return belowPrice
+                            ? alertEngine.addBelowPriceAlert(product.getId(), value)
+                            : alertEngine.addPercentDropAlert(product.getId(), value);
+                }
+            };
+            task.setOnSucceeded(e -> {
+                valueField.clear();
+                loadPriceAlerts(product, alertList);
+                setStatus("🔔 Alert added: " + describeAlert(task.getValue()));
+            });
+            task.setOnFailed(e -> showAlert("Error",
+                    "Could not add alert: " + task.getException().getMessage(), Alert.AlertType.ERROR));
+            new Thread(task).start();
+        });
+
+        removeButton.setOnAction(event -> {
+            PriceAlert selected = alertList.getSelectionModel().getSelectedItem();
+            Task<Void> task = new Task<Void>() {
+                @Override
+                protected Void call() throws Exception {
+                    alertEngine.removeAlert(selected.getId());
+                    return null;
+                }
+            };
+            task.setOnSucceeded(e -> {
+                loadPriceAlerts(product, alertList);
+                setStatus("Alert removed");
+            });
+            task.setOnFailed(e -> showAlert("Error",
+                    "Could not remove alert: " + task.getException().getMessage(), Alert.AlertType.ERROR));
+            new Thread(task).start();
+        });
+
+        HBox addRow = new HBox(10, typeBox, valueField, addButton);
+        addRow.setAlignment(Pos.CENTER_LEFT);
+        VBox content = new VBox(10, alertList, addRow, removeButton);
+
+        Dialog<Void> dialog = new Dialog<>();
+        dialog.setTitle("Price Alerts");
+        dialog.setHeaderText("Alerts for " + product.getName());
+        dialog.getDialogPane().setContent(content);
+        dialog.getDialogPane().getButtonTypes().add(ButtonType.CLOSE);
+        loadPriceAlerts(product, alertList);
+        dialog.showAndWait();
+    }
+
+    private void loadPriceAlerts(Product product, ListView<PriceAlert> alertList) {
+        Task<List<PriceAlert>> task = new Task<List<PriceAlert>>() {
+            @Override
+            protected List<PriceAlert> call() throws Exception {
+                return PriceAlertEngine.getInstance().getAlerts(product.getId());
+            }
+        };
+        task.setOnSucceeded(event -> alertList.getItems().setAll(task.getValue()));
+        task.setOnFailed(event -> showAlert("Error",
+                "Could not load alerts: " + task.getException().getMessage(), Alert.AlertType.ERROR));
+        new Thread(task).start();
+    }
+
+    private static String describeAlert(PriceAlert alert) {
+        String rule = alert.getType() == PriceAlert.Type.BELOW_PRICE
+                ? String.format("At or below ₹%.2f", alert.getTargetPrice())
+                : String.format("%.1f%% below ₹%.2f (₹%.2f)", alert.getDropPercent(),
+                        alert.getReferencePrice(), alert.getThresholdPrice());
+        if (alert.getStatus() == PriceAlert.Status.TRIGGERED && alert.getTriggeredPrice() != null) {
+            return rule + String.format("  ✓ fired at ₹%.2f on %s", alert.getTriggeredPrice(),
+                    alert.getTriggeredPlatform());
+        }
+        return rule + "  • active";
+    }
+
     @FXML
     private void refreshData() {
         if (currentProduct == null) {
             autoRefreshService.triggerRefresh();
-            setStatus("Refreshing all products...");
+            setStatus("Refreshing products that are due...");
             return;
         }
         setStatus("Refreshing product data...");
@@ -562,6 +751,13 @@ public class MainController {
         });
     }
     public void shutdown() {
+        if (detailUpdates != null) {
+            detailUpdates.close();
+        }
         autoRefreshService.stop();
+        ScrapeJobQueueService.getInstance().stop();
+        PriceAlertEngine.getInstance().stop();
+        PriceEventBus.getInstance().shutdown();
+        GeminiClient.getInstance().shutdown();
     }
 }
\ No newline at end of file
@@ -0,0 +1,106 @@
+package com.ecommerce.analyzer.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Price Alert Model
+ * A user's "tell me when this gets cheap" rule, stored in the price_alert table.
+ * Both kinds reduce to one threshold price that any platform of the product
+ * has to reach: the target itself, or the reference price less the drop.
+ */
+public class PriceAlert {
+
+    public enum Type { BELOW_PRICE, PERCENT_DROP }
+
+    public enum Status { ACTIVE, TRIGGERED }
+
+    private Long id;
+    private Long productId;
+    private Type type;
+    private Double targetPrice;
+    private Double dropPercent;
+    private Double referencePrice;
+    private double thresholdPrice;
+    private Status status;
+    private LocalDateTime createdAt;
+    private LocalDateTime triggeredAt;
+    private Double triggeredPrice;
+    private String triggeredPlatform;
+
+    public PriceAlert() {
+    }
+
+    /**
+     * Alert when any platform's price is at or below targetPrice
+     */
+    public static PriceAlert belowPrice(Long productId, double targetPrice) {
+        PriceAlert alert = new PriceAlert();
+        alert.setProductId(productId);
+        alert.setType(Type.BELOW_PRICE);
+        alert.setTargetPrice(targetPrice);
+        alert.setThresholdPrice(targetPrice);
+        alert.setStatus(Status.ACTIVE);
+        return alert;
+    }
+
+    /**
+     * Alert when any platform's price is dropPercent or more below referencePrice
+     */
+    public static PriceAlert percentDrop(Long productId, double dropPercent, double referencePrice) {
+        PriceAlert alert = new PriceAlert();
+        alert.setProductId(productId);
+        alert.setType(Type.PERCENT_DROP);
+        alert.setDropPercent(dropPercent);
+        alert.setReferencePrice(referencePrice);
+        alert.setThresholdPrice(referencePrice * (1.0 - dropPercent / 100.0));
+        alert.setStatus(Status.ACTIVE);
+        return alert;
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getProductId() { return productId; }
+    public void setProductId(Long productId) { this.productId = productId; }
+
+    public Type getType() { return type; }
+    public void setType(Type type) { this.type = type; }
+
+    public Double getTargetPrice() { return targetPrice; }
+    public void setTargetPrice(Double targetPrice) { this.targetPrice = targetPrice; }
+
+    public Double getDropPercent() { return dropPercent; }
+    public void setDropPercent(Double dropPercent) { this.dropPercent = dropPercent; }
+
+    public Double getReferencePrice() { return referencePrice; }
+    public void setReferencePrice(Double referencePrice) { this.referencePrice = referencePrice; }
+
+    public double getThresholdPrice() { return thresholdPrice; }
+    public void setThresholdPrice(double thresholdPrice) { this.thresholdPrice = thresholdPrice; }
+
+    public Status getStatus() { return status; }
+    public void setStatus(Status status) { this.status = status; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public LocalDateTime getTriggeredAt() { return triggeredAt; }
+    public void setTriggeredAt(LocalDateTime triggeredAt) { this.triggeredAt = triggeredAt; }
+
+    public Double getTriggeredPrice() { return triggeredPrice; }
+    public void setTriggeredPrice(Double triggeredPrice) { this.triggeredPrice = triggeredPrice; }
+
+    public String getTriggeredPlatform() { return triggeredPlatform; }
+    public void setTriggeredPlatform(String triggeredPlatform) { this.triggeredPlatform = triggeredPlatform; }
+
+    /**
+     * Short description for logs and notifications
+     */
+    public String describe() {
+        return type == Type.BELOW_PRICE
+                ? String.format("product %d at or below ₹%.2f", productId, targetPrice)
+                : String.format("product %d down %.1f%% from ₹%.2f (₹%.2f)", productId, dropPercent,
+                        referencePrice, thresholdPrice);
+    }
+}
@@ -0,0 +1,84 @@
+package com.ecommerce.analyzer.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Scrape Job Model
+ * A durable unit of scraping work stored in the scrape_job table
+ */
+public class ScrapeJob {
+
+    public enum Status { PENDING, RUNNING, DONE, DEAD }
+
+    private Long id;
+    private Long productId;
+    private String jobType;
+    private int priority;
+    private Status status;
+    private int attempts;
+    private int maxAttempts;
+    private LocalDateTime runAfter;
+    private String lockedBy;
+    private LocalDateTime lockedUntil;
+    private String lastError;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+
+    public ScrapeJob() {
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getProductId() { return productId; }
+    public void setProductId(Long productId) { this.productId = productId; }
+
+    public String getJobType() { return jobType; }
+    public void setJobType(String jobType) { this.jobType = jobType; }
+
+    public int getPriority() { return priority; }
+    public void setPriority(int priority) { this.priority = priority; }
+
+    public Status getStatus() { return status; }
+    public void setStatus(Status status) { this.status = status; }
+
+    public int getAttempts() { return attempts; }
+    public void setAttempts(int attempts) { this.attempts = attempts; }
+
+    public int getMaxAttempts() { return maxAttempts; }
+    public void setMaxAttempts(int maxAttempts) { this.maxAttempts = maxAttempts; }
+
+    public LocalDateTime getRunAfter() { return runAfter; }
+    public void setRunAfter(LocalDateTime runAfter) { this.runAfter = runAfter; }
+
+    public String getLockedBy() { return lockedBy; }
+    public void setLockedBy(String lockedBy) { this.lockedBy = lockedBy; }
+
+    public LocalDateTime getLockedUntil() { return lockedUntil; }
+    public void setLockedUntil(LocalDateTime lockedUntil) { this.lockedUntil = lockedUntil; }
+
+    public String getLastError() { return lastError; }
+    public void setLastError(String lastError) { this.lastError = lastError; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+
+    public boolean isFinished() {
+        return status == Status.DONE || status == Status.DEAD;
+    }
+
+    @Override
+    public String toString() {
+        return "ScrapeJob{" +
+                "id=" + id +
+                ", productId=" + productId +
+                ", jobType='" + jobType + '\'' +
+                ", status=" + status +
+                ", attempts=" + attempts + "/" + maxAttempts +
+                '}';
+    }
+}
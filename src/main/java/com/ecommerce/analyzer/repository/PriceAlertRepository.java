@@ -0,0 +1,246 @@
+package com.ecommerce.analyzer.repository;
+
+import com.ecommerce.analyzer.model.PriceAlert;
+import com.ecommerce.analyzer.util.DBUtil;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Price Alert Repository
+ * JDBC persistence for price alerts; active alerts are loaded into the
+ * in-memory index at startup
+ */
+public class PriceAlertRepository {
+
+    private static volatile boolean tableReady = false;
+
+    /**
+     * Create the price_alert table if it doesn't exist yet
+     */
+    public void ensureTable() throws SQLException {
+        if (tableReady) {
+            return;
+        }
+        synchronized (PriceAlertRepository.class) {
+            if (tableReady) {
+                return;
+            }
+            String createTable = """
+                CREATE TABLE IF NOT EXISTS price_alert (
+                    id BIGSERIAL PRIMARY KEY,
+                    product_id BIGINT NOT NULL REFERENCES product(id) ON DELETE CASCADE,
+                    alert_type VARCHAR(20) NOT NULL,
+                    target_price DOUBLE PRECISION,
+                    drop_percent DOUBLE PRECISION,
+                    reference_price DOUBLE PRECISION,
+                    threshold_price DOUBLE PRECISION NOT NULL,
+                    status VARCHAR(20) NOT NULL DEFAULT 'ACTIVE',
+                    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+                    triggered_at TIMESTAMP,
+                    triggered_price DOUBLE PRECISION,
+                    triggered_platform VARCHAR(100)
+                )
+                """;
+            String createActiveIndex = """
+                CREATE INDEX IF NOT EXISTS idx_price_alert_active
+                ON price_alert (product_id) WHERE status = 'ACTIVE'
+                """;
+
+            try (Connection conn = DBUtil.getConnection();
+                 Statement stmt = conn.createStatement()) {
+                stmt.execute(createTable);
+                stmt.execute(createActiveIndex);
+            }
+            tableReady = true;
+        }
+    }
+
+    /**
+     * Insert a new alert
+     * @return the generated id (also set on the alert)
+     */
+    public Long insert(PriceAlert alert) throws SQLException {
+        ensureTable();
+        String sql = """
+            INSERT INTO price_alert (product_id, alert_type, target_price, drop_percent,
+                                     reference_price, threshold_price, status)
+            VALUES (?, ?, ?, ?, ?, ?, ?)
+            RETURNING id, created_at
+            """;
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, alert.getProductId());
+            stmt.setString(2, alert.getType().name());
+            setNullableDouble(stmt, 3, alert.getTargetPrice());
+            setNullableDouble(stmt, 4, alert.getDropPercent());
+            setNullableDouble(stmt, 5, alert.getReferencePrice());
+            stmt.setDouble(6, alert.getThresholdPrice());
+            stmt.setString(7, alert.getStatus().name());
+
+            ResultSet rs = stmt.executeQuery();
+            if (rs.next()) {
+                alert.setId(rs.getLong("id"));
+                alert.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
+                return alert.getId();
+            }
+            throw new SQLException("Failed to insert price alert");
+        }
+    }
+
+    /**
+     * All alerts that haven't fired yet
+     */
+    public List<PriceAlert> findActive() throws SQLException {
+        ensureTable();
+        String sql = "SELECT * FROM price_alert WHERE status = 'ACTIVE' ORDER BY id";
+        List<PriceAlert> alerts = new ArrayList<>();
+
+        try (Connection conn = DBUtil.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                alerts.add(mapResultSetToPriceAlert(rs));
+            }
+        }
+        return alerts;
+    }
+
+    /**
+     * Active alerts created after the given id (registered on other nodes since the last sync)
+     */
+    public List<PriceAlert> findActiveAfter(long afterId) throws SQLException {
+        ensureTable();
+        String sql = "SELECT * FROM price_alert WHERE status = 'ACTIVE' AND id > ? ORDER BY id";
+        List<PriceAlert> alerts = new ArrayList<>();
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, afterId);
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                alerts.add(mapResultSetToPriceAlert(rs));
+            }
+        }
+        return alerts;
+    }
+
+    /**
+     * Ids of every alert that hasn't fired yet
+     */
+    public Set<Long> findActiveIds() throws SQLException {
+        ensureTable();
+        Set<Long> ids = new HashSet<>();
+
+        try (Connection conn = DBUtil.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT id FROM price_alert WHERE status = 'ACTIVE'")) {
+            while (rs.next()) {
+                ids.add(rs.getLong(1));
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Alerts of one product, newest first
+     */
+    public List<PriceAlert> findByProductId(Long productId) throws SQLException {
+        ensureTable();
+        String sql = "SELECT * FROM price_alert WHERE product_id = ? ORDER BY created_at DESC";
+        List<PriceAlert> alerts = new ArrayList<>();
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, productId);
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                alerts.add(mapResultSetToPriceAlert(rs));
+            }
+        }
+        return alerts;
+    }
+
+    /**
+     * Record that alerts fired; only still-active rows are updated
+     * @return the alerts this call moved to TRIGGERED - an alert another node
+     *         already marked is left out, so it is only notified once
+     */
+    public List<PriceAlert> markTriggered(List<PriceAlert> alerts) throws SQLException {
+        ensureTable();
+        String sql = """
+            UPDATE price_alert SET status = 'TRIGGERED', triggered_at = CURRENT_TIMESTAMP,
+                triggered_price = ?, triggered_platform = ?
+            WHERE id = ? AND status = 'ACTIVE'
+            """;
+
+        List<PriceAlert> marked = new ArrayList<>();
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (PriceAlert alert : alerts) {
+                stmt.setDouble(1, alert.getTriggeredPrice());
+                stmt.setString(2, alert.getTriggeredPlatform());
+                stmt.setLong(3, alert.getId());
+                stmt.addBatch();
+            }
+            int[] counts = stmt.executeBatch();
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] > 0 || counts[i] == Statement.SUCCESS_NO_INFO) {
+                    marked.add(alerts.get(i));
+                }
+            }
+        }
+        return marked;
+    }
+
+    /**
+     * Delete an alert
+     */
+    public void delete(Long id) throws SQLException {
+        ensureTable();
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("DELETE FROM price_alert WHERE id = ?")) {
+            stmt.setLong(1, id);
+            stmt.executeUpdate();
+        }
+    }
+
+    private static void setNullableDouble(PreparedStatement stmt, int index, Double value) throws SQLException {
+        if (value != null) {
+            stmt.setDouble(index, value);
+        } else {
+            stmt.setNull(index, Types.DOUBLE);
+        }
+    }
+
+    private static Double getNullableDouble(ResultSet rs, String column) throws SQLException {
+        double value = rs.getDouble(column);
+        return rs.wasNull() ? null : value;
+    }
+
+    /**
+     * Map ResultSet to PriceAlert object
+     */
+    private PriceAlert mapResultSetToPriceAlert(ResultSet rs) throws SQLException {
+        PriceAlert alert = new PriceAlert();
+        alert.setId(rs.getLong("id"));
+        alert.setProductId(rs.getLong("product_id"));
+        alert.setType(PriceAlert.Type.valueOf(rs.getString("alert_type")));
+        alert.setTargetPrice(getNullableDouble(rs, "target_price"));
+        alert.setDropPercent(getNullableDouble(rs, "drop_percent"));
+        alert.setReferencePrice(getNullableDouble(rs, "reference_price"));
+        alert.setThresholdPrice(rs.getDouble("threshold_price"));
+        alert.setStatus(PriceAlert.Status.valueOf(rs.getString("status")));
+        Timestamp createdAt = rs.getTimestamp("created_at");
+        alert.setCreatedAt(createdAt != null ? createdAt.toLocalDateTime() : null);
+        Timestamp triggeredAt = rs.getTimestamp("triggered_at");
+        alert.setTriggeredAt(triggeredAt != null ? triggeredAt.toLocalDateTime() : null);
+        alert.setTriggeredPrice(getNullableDouble(rs, "triggered_price"));
+        alert.setTriggeredPlatform(rs.getString("triggered_platform"));
+        return alert;
+    }
+}
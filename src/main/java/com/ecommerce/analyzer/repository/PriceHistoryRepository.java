@@ -10,10 +10,39 @@ import java.util.List;
 
 /**
  * Price History Repository
- * Manages historical price data for trend analysis
+ * Manages historical price data for trend analysis.
+ * Only change points are stored, plus a heartbeat row when a price has held
+ * for a while, so the history is a step series: each price holds until the
+ * next row.
  */
 public class PriceHistoryRepository {
 
+    private static volatile boolean indexReady = false;
+
+    /**
+     * Index for "latest price of a detail" lookups done on every write
+     */
+    public void ensureIndex() throws SQLException {
+        if (indexReady) {
+            return;
+        }
+        synchronized (PriceHistoryRepository.class) {
+            if (indexReady) {
+                return;
+            }
+            String createIndex = """
+                CREATE INDEX IF NOT EXISTS idx_price_history_detail_time
+                ON price_history (product_detail_id, recorded_at DESC)
+                """;
+
+            try (Connection conn = DBUtil.getConnection();
+                 Statement stmt = conn.createStatement()) {
+                stmt.execute(createIndex);
+            }
+            indexReady = true;
+        }
+    }
+
     /** Insert price history record */
     public void insert(PriceHistory priceHistory) throws SQLException {
         String sql = "INSERT INTO price_history (product_detail_id, price) VALUES (?, ?)";
@@ -27,18 +56,86 @@ public class PriceHistoryRepository {
     }
 
     /**
-     * Get price history for last 30 days
+     * Record a price point only if it differs from the latest one, or the latest
+     * one is older than heartbeatHours
+     * @return true if a row was written
+     */
+    public boolean insertIfChanged(PriceHistory priceHistory, int heartbeatHours) throws SQLException {
+        try (Connection conn = DBUtil.getConnection()) {
+            return insertIfChanged(conn, List.of(priceHistory), heartbeatHours) > 0;
+        }
+    }
+
+    /**
+     * Batched form of insertIfChanged on the caller's connection
+     * @return number of rows written
+     */
+    public int insertIfChanged(Connection conn, List<PriceHistory> points, int heartbeatHours) throws SQLException {
+        ensureIndex();
+        String sql = """
+            INSERT INTO price_history (product_detail_id, price)
+            SELECT ?, ?
+            WHERE NOT EXISTS (
+                SELECT 1 FROM (
+                    SELECT price, recorded_at FROM price_history
+                    WHERE product_detail_id = ?
+                    ORDER BY recorded_at DESC
+                    LIMIT 1
+                ) latest
+                WHERE ABS(latest.price - ?) < ?
+                  AND latest.recorded_at > CURRENT_TIMESTAMP - (? * INTERVAL '1 hour')
+            )
+            """;
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (PriceHistory point : points) {
+                stmt.setLong(1, point.getProductDetailId());
+                stmt.setDouble(2, point.getPrice());
+                stmt.setLong(3, point.getProductDetailId());
+                stmt.setDouble(4, point.getPrice());
+                stmt.setDouble(5, ProductDetailRepository.PRICE_EPSILON);
+                stmt.setInt(6, heartbeatHours);
+                stmt.addBatch();
+            }
+            int written = 0;
+            for (int count : stmt.executeBatch()) {
+                written += Math.max(count, 0);
+            }
+            return written;
+        }
+    }
+
+    /**
+     * Price step series for the last N days.
+     * The point in force when the window opens is carried in at the window
+     * start, so a price that hasn't changed for months still shows up.
      */
     public List<PriceHistory> findByProductDetailId(Long productDetailId, int days) throws SQLException {
-        String sql = "SELECT * FROM price_history WHERE product_detail_id = ? AND recorded_at >= CURRENT_TIMESTAMP - INTERVAL '" + days + " days' " +
-                "ORDER BY recorded_at ASC";
+        ensureIndex();
+        String sql = """
+            (SELECT id, product_detail_id, price,
+                    CURRENT_TIMESTAMP - (? * INTERVAL '1 day') AS recorded_at
+             FROM price_history
+             WHERE product_detail_id = ? AND recorded_at < CURRENT_TIMESTAMP - (? * INTERVAL '1 day')
+             ORDER BY recorded_at DESC
+             LIMIT 1)
+            UNION ALL
+            (SELECT id, product_detail_id, price, recorded_at
+             FROM price_history
+             WHERE product_detail_id = ? AND recorded_at >= CURRENT_TIMESTAMP - (? * INTERVAL '1 day'))
+            ORDER BY recorded_at ASC
+            """;
 
         List<PriceHistory> history = new ArrayList<>();
 
         try (Connection conn = DBUtil.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
-            stmt.setLong(1, productDetailId);
+            stmt.setInt(1, days);
+            stmt.setLong(2, productDetailId);
+            stmt.setInt(3, days);
+            stmt.setLong(4, productDetailId);
+            stmt.setInt(5, days);
             ResultSet rs = stmt.executeQuery();
 
             while (rs.next()) {
@@ -56,16 +153,29 @@ public class PriceHistoryRepository {
     }
 
     /**
-     * Delete old price history (older than specified days)
+     * Delete old price history (older than specified days).
+     * The newest point before the cutoff is kept for every detail: it is the
+     * price still in force at the cutoff, which findByProductDetailId carries
+     * into the window.
      */
     public void deleteOldRecords(int daysToKeep) throws SQLException {
-        String sql = "DELETE FROM price_history " +
-                "WHERE recorded_at < CURRENT_TIMESTAMP - INTERVAL '" + daysToKeep + " days'";
+        ensureIndex();
+        String sql = """
+            DELETE FROM price_history ph
+            WHERE ph.recorded_at < CURRENT_TIMESTAMP - (? * INTERVAL '1 day')
+              AND EXISTS (
+                  SELECT 1 FROM price_history newer
+                  WHERE newer.product_detail_id = ph.product_detail_id
+                    AND newer.recorded_at < CURRENT_TIMESTAMP - (? * INTERVAL '1 day')
+                    AND (newer.recorded_at, newer.id) > (ph.recorded_at, ph.id))
+            """;
 
         try (Connection conn = DBUtil.getConnection();
-             Statement stmt = conn.createStatement()) {
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
 
-            int deleted = stmt.executeUpdate(sql);
+            stmt.setInt(1, daysToKeep);
+            stmt.setInt(2, daysToKeep);
+            int deleted = stmt.executeUpdate();
             System.out.println("Deleted " + deleted + " old price history records");
         }
     }
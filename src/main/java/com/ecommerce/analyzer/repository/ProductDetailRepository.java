@@ -5,9 +5,18 @@ import com.ecommerce.analyzer.util.DBUtil;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 public class ProductDetailRepository {
+
+    // Prices closer than this (half a paisa) are the same price
+    public static final double PRICE_EPSILON = 0.005;
+
     /** Find all product details by product ID */
     public List<ProductDetail> findByProductId(Long productId) throws SQLException {
         String sql = """
@@ -47,66 +56,88 @@ public class ProductDetailRepository {
         return details;
     }
 
-    /** Upsert product detail */
-    public Long upsert(ProductDetail detail) throws SQLException {
-        // First, try to find existing record
-        String checkSql = "SELECT id FROM product_detail WHERE product_id = ? AND platform = ?";
+    /**
+     * Outcome of an upsert: which fields differ from the stored row, and the
+     * price before the write (null for a new row)
+     */
+    public record UpsertResult(Long id, boolean inserted, Set<String> changedFields, Double previousPrice) {
+        public boolean changed() {
+            return inserted || !changedFields.isEmpty();
+        }
 
-        try (Connection conn = DBUtil.getConnection();
-             PreparedStatement checkStmt = conn.prepareStatement(checkSql)) {
-
-            checkStmt.setLong(1, detail.getProductId());
-            checkStmt.setString(2, detail.getPlatform());
-            ResultSet rs = checkStmt.executeQuery();
-
-            if (rs.next()) {
-                // Record exists - UPDATE
-                Long existingId = rs.getLong("id");
-                String updateSql = """
-                UPDATE product_detail SET
-                    price = ?,
-                    rating = ?,
-                    seller = ?,
-                    delivery_time = ?,
-                    return_policy = ?,
-                    warranty = ?,
-                    offers = ?,
-                    product_link = ?,
-                    reviewcount = ?,
-                    availability = ?,
-                    last_scraped = CURRENT_TIMESTAMP
-                WHERE id = ?
-                """;
-
-                try (PreparedStatement updateStmt = conn.prepareStatement(updateSql)) {
-                    updateStmt.setDouble(1, detail.getPrice());
-                    updateStmt.setDouble(2, detail.getRating());
-                    updateStmt.setString(3, detail.getSeller());
-                    updateStmt.setString(4, detail.getDeliveryTime());
-                    updateStmt.setString(5, detail.getReturnPolicy());
-                    updateStmt.setString(6, detail.getWarranty());
-                    updateStmt.setString(7, detail.getOffers());
-                    updateStmt.setString(8, detail.getProductLink());
-                    updateStmt.setInt(9, detail.getReviewCount());
-                    updateStmt.setString(10, detail.getAvailability());
-                    updateStmt.setLong(11, existingId);
+        public boolean priceChanged() {
+            return inserted || changedFields.contains("price");
+        }
+    }
 
-                    updateStmt.executeUpdate();
-                    return existingId;
-                }
-            } else {
-                // Record doesn't exist - INSERT
-                String insertSql = """
-                INSERT INTO product_detail (
-                    product_id, platform, price, rating, seller, 
-                    delivery_time, return_policy, warranty, offers, 
-                    product_link, reviewcount, availability
-                ) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
-                RETURNING id
-                """;
-
-                try (PreparedStatement insertStmt = conn.prepareStatement(insertSql)) {
-                    insertStmt.setLong(1, detail.getProductId());
+    /**
+     * Upsert product detail.
+     * The stored row is compared field by field first; when nothing differs only
+     * last_scraped is bumped.
+     */
+    public UpsertResult upsert(ProductDetail detail) throws SQLException {
+        try (Connection conn = DBUtil.getConnection()) {
+            return upsertAll(conn, detail.getProductId(), List.of(detail)).get(0);
+        }
+    }
+
+    /**
+     * Upsert every platform of one product on the caller's connection, so it
+     * can share a transaction with the price history write.
+     * Stored rows are read in one query; changed rows go out as one JDBC batch,
+     * and unchanged rows only get last_scraped bumped, all in one statement.
+     * @return one result per detail, in the same order
+     */
+    public List<UpsertResult> upsertAll(Connection conn, Long productId, List<ProductDetail> details) throws SQLException {
+        String selectSql = """
+            SELECT id, product_id, platform, price, rating, seller, delivery_time, return_policy,
+                   warranty, offers, product_link, reviewcount, availability, last_scraped
+            FROM product_detail WHERE product_id = ?
+            """;
+        String touchSql = "UPDATE product_detail SET last_scraped = CURRENT_TIMESTAMP WHERE id = ANY (?)";
+        String updateSql = """
+            UPDATE product_detail SET
+                price = ?,
+                rating = ?,
+                seller = ?,
+                delivery_time = ?,
+                return_policy = ?,
+                warranty = ?,
+                offers = ?,
+                product_link = ?,
+                reviewcount = ?,
+                availability = ?,
+                last_scraped = CURRENT_TIMESTAMP
+            WHERE id = ?
+            """;
+        String insertSql = """
+            INSERT INTO product_detail (
+                product_id, platform, price, rating, seller, 
+                delivery_time, return_policy, warranty, offers, 
+                product_link, reviewcount, availability
+            ) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            RETURNING id
+            """;
+
+        Map<String, ProductDetail> stored = new HashMap<>();
+        try (PreparedStatement selectStmt = conn.prepareStatement(selectSql)) {
+            selectStmt.setLong(1, productId);
+            ResultSet rs = selectStmt.executeQuery();
+            while (rs.next()) {
+                ProductDetail row = mapResultSetToProductDetail(rs);
+                stored.put(row.getPlatform(), row);
+            }
+        }
+
+        List<UpsertResult> results = new ArrayList<>();
+        List<Long> unchanged = new ArrayList<>();
+        try (PreparedStatement updateStmt = conn.prepareStatement(updateSql);
+             PreparedStatement insertStmt = conn.prepareStatement(insertSql)) {
+            boolean pendingUpdates = false;
+            for (ProductDetail detail : details) {
+                ProductDetail existing = stored.get(detail.getPlatform());
+                if (existing == null) {
+                    insertStmt.setLong(1, productId);
                     insertStmt.setString(2, detail.getPlatform());
                     insertStmt.setDouble(3, detail.getPrice());
                     insertStmt.setDouble(4, detail.getRating());
@@ -120,13 +151,63 @@ public class ProductDetailRepository {
                     insertStmt.setString(12, detail.getAvailability());
 
                     ResultSet insertRs = insertStmt.executeQuery();
-                    if (insertRs.next()) {
-                        return insertRs.getLong("id");
+                    if (!insertRs.next()) {
+                        throw new SQLException("Failed to insert product detail for " + detail.getPlatform());
                     }
+                    results.add(new UpsertResult(insertRs.getLong("id"), true, Set.of(), null));
+                    continue;
+                }
+
+                Set<String> changed = changedFields(existing, detail);
+                if (!changed.isEmpty()) {
+                    updateStmt.setDouble(1, detail.getPrice());
+                    updateStmt.setDouble(2, detail.getRating());
+                    updateStmt.setString(3, detail.getSeller());
+                    updateStmt.setString(4, detail.getDeliveryTime());
+                    updateStmt.setString(5, detail.getReturnPolicy());
+                    updateStmt.setString(6, detail.getWarranty());
+                    updateStmt.setString(7, detail.getOffers());
+                    updateStmt.setString(8, detail.getProductLink());
+                    updateStmt.setInt(9, detail.getReviewCount());
+                    updateStmt.setString(10, detail.getAvailability());
+                    updateStmt.setLong(11, existing.getId());
+                    updateStmt.addBatch();
+                    pendingUpdates = true;
+                } else {
+                    unchanged.add(existing.getId());
                 }
+                results.add(new UpsertResult(existing.getId(), false, changed, existing.getPrice()));
+            }
+            if (pendingUpdates) {
+                updateStmt.executeBatch();
             }
         }
-        throw new SQLException("Failed to upsert product detail");
+        if (!unchanged.isEmpty()) {
+            // Still scraped just now, even though nothing differed
+            try (PreparedStatement touchStmt = conn.prepareStatement(touchSql)) {
+                touchStmt.setArray(1, conn.createArrayOf("bigint", unchanged.toArray()));
+                touchStmt.executeUpdate();
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Names of the columns whose values differ between the stored row and the fresh scrape
+     */
+    private static Set<String> changedFields(ProductDetail stored, ProductDetail fresh) {
+        Set<String> changed = new LinkedHashSet<>();
+        if (Math.abs(stored.getPrice() - fresh.getPrice()) >= PRICE_EPSILON) changed.add("price");
+        if (Math.abs(stored.getRating() - fresh.getRating()) >= 0.05) changed.add("rating");
+        if (!Objects.equals(stored.getSeller(), fresh.getSeller())) changed.add("seller");
+        if (!Objects.equals(stored.getDeliveryTime(), fresh.getDeliveryTime())) changed.add("delivery_time");
+        if (!Objects.equals(stored.getReturnPolicy(), fresh.getReturnPolicy())) changed.add("return_policy");
+        if (!Objects.equals(stored.getWarranty(), fresh.getWarranty())) changed.add("warranty");
+        if (!Objects.equals(stored.getOffers(), fresh.getOffers())) changed.add("offers");
+        if (!Objects.equals(stored.getProductLink(), fresh.getProductLink())) changed.add("product_link");
+        if (!Objects.equals(stored.getReviewCount(), fresh.getReviewCount())) changed.add("reviewcount");
+        if (!Objects.equals(stored.getAvailability(), fresh.getAvailability())) changed.add("availability");
+        return changed;
     }
 
     /**
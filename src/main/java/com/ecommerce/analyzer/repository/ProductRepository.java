@@ -110,15 +110,33 @@ public class ProductRepository {
         return products;
     }
 
+    /**
+     * Number of products in the catalog
+     */
+    public long count() throws SQLException {
+        try (Connection conn = DBUtil.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM product")) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
     /**
      * Update product last_updated timestamp
      */
     public void updateTimestamp(Long productId) throws SQLException {
-        String sql = "UPDATE product SET last_updated = CURRENT_TIMESTAMP WHERE id = ?";
+        try (Connection conn = DBUtil.getConnection()) {
+            updateTimestamp(conn, productId);
+        }
+    }
 
-        try (Connection conn = DBUtil.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+    /**
+     * Update product last_updated timestamp on the caller's connection
+     */
+    public void updateTimestamp(Connection conn, Long productId) throws SQLException {
+        String sql = "UPDATE product SET last_updated = CURRENT_TIMESTAMP WHERE id = ?";
 
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setLong(1, productId);
             stmt.executeUpdate();
         }
@@ -0,0 +1,76 @@
+package com.ecommerce.analyzer.repository;
+
+import com.ecommerce.analyzer.util.DBUtil;
+
+import java.sql.*;
+
+/**
+ * Recommendation Repository
+ * Latest AI recommendation per product, saved when it arrives together with
+ * the platform data so the UI can show it without a second Gemini call.
+ */
+public class RecommendationRepository {
+
+    private static volatile boolean tableReady = false;
+
+    /**
+     * Create the product_recommendation table if it doesn't exist yet
+     */
+    public void ensureTable() throws SQLException {
+        if (tableReady) {
+            return;
+        }
+        synchronized (RecommendationRepository.class) {
+            if (tableReady) {
+                return;
+            }
+            String createTable = """
+                CREATE TABLE IF NOT EXISTS product_recommendation (
+                    product_id BIGINT PRIMARY KEY,
+                    recommendation TEXT NOT NULL,
+                    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+                )
+                """;
+
+            try (Connection conn = DBUtil.getConnection();
+                 Statement stmt = conn.createStatement()) {
+                stmt.execute(createTable);
+            }
+            tableReady = true;
+        }
+    }
+
+    /** Save (or replace) the recommendation for a product */
+    public void save(Long productId, String recommendation) throws SQLException {
+        ensureTable();
+        String sql = """
+            INSERT INTO product_recommendation (product_id, recommendation)
+            VALUES (?, ?)
+            ON CONFLICT (product_id) DO UPDATE
+            SET recommendation = EXCLUDED.recommendation, created_at = CURRENT_TIMESTAMP
+            """;
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, productId);
+            stmt.setString(2, recommendation);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Stored recommendation for a product
+     * @return the text, or null if none has been saved
+     */
+    public String findByProductId(Long productId) throws SQLException {
+        ensureTable();
+        String sql = "SELECT recommendation FROM product_recommendation WHERE product_id = ?";
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, productId);
+            ResultSet rs = stmt.executeQuery();
+            return rs.next() ? rs.getString("recommendation") : null;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.ecommerce.analyzer.repository;
+
+import com.ecommerce.analyzer.util.DBUtil;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Refresh Node Repository
+ * Membership table for analyzer instances that run background refreshes.
+ * Each node keeps its row alive with heartbeats; a row whose heartbeat is
+ * older than the TTL counts as a dead node.
+ */
+public class RefreshNodeRepository {
+
+    private static volatile boolean tableReady = false;
+
+    /**
+     * Create the refresh_node table if it doesn't exist yet
+     */
+    public void ensureTable() throws SQLException {
+        if (tableReady) {
+            return;
+        }
+        synchronized (RefreshNodeRepository.class) {
+            if (tableReady) {
+                return;
+            }
+            String createTable = """
+                CREATE TABLE IF NOT EXISTS refresh_node (
+                    node_id VARCHAR(200) PRIMARY KEY,
+                    started_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+                    heartbeat_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+                )
+                """;
+
+            try (Connection conn = DBUtil.getConnection();
+                 Statement stmt = conn.createStatement()) {
+                stmt.execute(createTable);
+            }
+            tableReady = true;
+        }
+    }
+
+    /**
+     * Register the node or renew its heartbeat
+     */
+    public void heartbeat(String nodeId) throws SQLException {
+        ensureTable();
+        String sql = """
+            INSERT INTO refresh_node (node_id) VALUES (?)
+            ON CONFLICT (node_id) DO UPDATE SET heartbeat_at = CURRENT_TIMESTAMP
+            """;
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, nodeId);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Ids of nodes whose heartbeat is newer than ttlSeconds, in a stable order
+     */
+    public List<String> findLiveNodes(int ttlSeconds) throws SQLException {
+        ensureTable();
+        String sql = """
+            SELECT node_id FROM refresh_node
+            WHERE heartbeat_at > CURRENT_TIMESTAMP - (? * INTERVAL '1 second')
+            ORDER BY node_id
+            """;
+
+        List<String> nodes = new ArrayList<>();
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, ttlSeconds);
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                nodes.add(rs.getString("node_id"));
+            }
+        }
+        return nodes;
+    }
+
+    /**
+     * Drop rows of nodes that stopped heartbeating long ago
+     */
+    public int deleteExpired(int olderThanSeconds) throws SQLException {
+        ensureTable();
+        String sql = "DELETE FROM refresh_node WHERE heartbeat_at < CURRENT_TIMESTAMP - (? * INTERVAL '1 second')";
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, olderThanSeconds);
+            return stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Leave the cluster so the other nodes take over this node's share at once
+     */
+    public void delete(String nodeId) throws SQLException {
+        ensureTable();
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("DELETE FROM refresh_node WHERE node_id = ?")) {
+            stmt.setString(1, nodeId);
+            stmt.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.ecommerce.analyzer.repository;
+
+import com.ecommerce.analyzer.util.DBUtil;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Refresh Run Repository
+ * One row per background refresh run with its progress checkpoint. A run
+ * still RUNNING whose node has stopped heartbeating was cut short; its
+ * unfinished claims are handed back so the next run picks them up at once.
+ */
+public class RefreshRunRepository {
+
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_COMPLETED = "COMPLETED";
+    public static final String STATUS_DRAINED = "DRAINED";
+    public static final String STATUS_FAILED = "FAILED";
+    public static final String STATUS_ABANDONED = "ABANDONED";
+
+    private static volatile boolean tableReady = false;
+
+    /** Progress recorded for a run that did not finish */
+    public record AbandonedRun(long id, String nodeId, int refreshed, int failed) {
+    }
+
+    /**
+     * Create the refresh_run table if it doesn't exist yet
+     */
+    public void ensureTable() throws SQLException {
+        if (tableReady) {
+            return;
+        }
+        synchronized (RefreshRunRepository.class) {
+            if (tableReady) {
+                return;
+            }
+            String createTable = """
+                CREATE TABLE IF NOT EXISTS refresh_run (
+                    id BIGSERIAL PRIMARY KEY,
+                    node_id VARCHAR(200) NOT NULL,
+                    instance_id VARCHAR(36),
+                    status VARCHAR(20) NOT NULL,
+                    due_at_start BIGINT NOT NULL DEFAULT 0,
+                    refreshed INT NOT NULL DEFAULT 0,
+                    failed INT NOT NULL DEFAULT 0,
+                    resumed_from BIGINT,
+                    started_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+                    checkpoint_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+                    finished_at TIMESTAMP
+                )
+                """;
+            String addInstanceId = "ALTER TABLE refresh_run ADD COLUMN IF NOT EXISTS instance_id VARCHAR(36)";
+            String createStatusIndex = """
+                CREATE INDEX IF NOT EXISTS idx_refresh_run_status
+                ON refresh_run (status, node_id)
+                """;
+
+            try (Connection conn = DBUtil.getConnection();
+                 Statement stmt = conn.createStatement()) {
+                stmt.execute(createTable);
+                stmt.execute(addInstanceId);
+                stmt.execute(createStatusIndex);
+            }
+            tableReady = true;
+        }
+    }
+
+    /**
+     * Record the start of a run
+     * @param instanceId the process starting it; node ids repeat across restarts
+     * @param resumedFrom the abandoned run this one picks up after, or null
+     * @return the new run id
+     */
+    public long start(String nodeId, String instanceId, long dueAtStart, Long resumedFrom) throws SQLException {
+        ensureTable();
+        String sql = """
+            INSERT INTO refresh_run (node_id, instance_id, status, due_at_start, resumed_from)
+            VALUES (?, ?, ?, ?, ?)
+            RETURNING id
+            """;
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, nodeId);
+            stmt.setString(2, instanceId);
+            stmt.setString(3, STATUS_RUNNING);
+            stmt.setLong(4, dueAtStart);
+            if (resumedFrom != null) {
+                stmt.setLong(5, resumedFrom);
+            } else {
+                stmt.setNull(5, Types.BIGINT);
+            }
+            ResultSet rs = stmt.executeQuery();
+            if (rs.next()) {
+                return rs.getLong("id");
+            }
+            throw new SQLException("Failed to start refresh run");
+        }
+    }
+
+    /**
+     * Save the run's progress so far
+     */
+    public void checkpoint(long runId, int refreshed, int failed) throws SQLException {
+        ensureTable();
+        String sql = """
+            UPDATE refresh_run SET refreshed = ?, failed = ?, checkpoint_at = CURRENT_TIMESTAMP
+            WHERE id = ?
+            """;
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, refreshed);
+            stmt.setInt(2, failed);
+            stmt.setLong(3, runId);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Close the run with its final status and counts
+     */
+    public void finish(long runId, String status, int refreshed, int failed) throws SQLException {
+        ensureTable();
+        String sql = """
+            UPDATE refresh_run SET status = ?, refreshed = ?, failed = ?,
+                checkpoint_at = CURRENT_TIMESTAMP, finished_at = CURRENT_TIMESTAMP
+            WHERE id = ?
+            """;
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, status);
+            stmt.setInt(2, refreshed);
+            stmt.setInt(3, failed);
+            stmt.setLong(4, runId);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Mark RUNNING runs as abandoned when their process is gone: runs of other
+     * nodes that are no longer heartbeating, and runs under this node id that
+     * an earlier process started (a restarted container often gets the same
+     * pid@host back, and its heartbeat makes the id look alive)
+     * @param currentInstanceId the running process; its own runs are left alone
+     * @param nodeTtlSeconds heartbeat age after which a node counts as dead
+     * @return the runs that were marked, with their last checkpoint
+     */
+    public List<AbandonedRun> abandonOrphanedRuns(String currentNodeId, String currentInstanceId,
+                                                  int nodeTtlSeconds) throws SQLException {
+        ensureTable();
+        new RefreshNodeRepository().ensureTable();
+        String sql = """
+            UPDATE refresh_run r SET status = ?, finished_at = CURRENT_TIMESTAMP
+            WHERE r.status = ?
+              AND ((r.node_id <> ?
+                    AND NOT EXISTS (
+                        SELECT 1 FROM refresh_node n
+                        WHERE n.node_id = r.node_id
+                          AND n.heartbeat_at > CURRENT_TIMESTAMP - (? * INTERVAL '1 second')))
+                OR (r.node_id = ? AND r.instance_id IS DISTINCT FROM ?))
+            RETURNING r.id, r.node_id, r.refreshed, r.failed
+            """;
+
+        List<AbandonedRun> runs = new ArrayList<>();
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, STATUS_ABANDONED);
+            stmt.setString(2, STATUS_RUNNING);
+            stmt.setString(3, currentNodeId);
+            stmt.setInt(4, nodeTtlSeconds);
+            stmt.setString(5, currentNodeId);
+            stmt.setString(6, currentInstanceId);
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                runs.add(new AbandonedRun(rs.getLong("id"), rs.getString("node_id"),
+                        rs.getInt("refreshed"), rs.getInt("failed")));
+            }
+        }
+        return runs;
+    }
+}
@@ -0,0 +1,297 @@
+package com.ecommerce.analyzer.repository;
+
+import com.ecommerce.analyzer.model.Product;
+import com.ecommerce.analyzer.util.DBUtil;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Refresh Schedule Repository
+ * Durable refresh priority queue: one row per product with its next due time
+ * and current cadence. Claiming pushes next_due_at out by a lease and tags the
+ * row with the claiming run, so a crashed run's products come due again: at
+ * once when the run is found abandoned, at the latest when the lease expires.
+ */
+public class RefreshScheduleRepository {
+
+    private static volatile boolean tableReady = false;
+
+    /**
+     * Inputs for choosing a product's next cadence.
+     * price_history keeps only change points (plus daily heartbeats), so its
+     * rows are not refreshes; the refreshes a platform went through are
+     * estimated from how long it has been observed at the current cadence.
+     */
+    public record ChangeStats(int changes, int platforms, double observedMinutes,
+                              boolean lowStock, int views, int intervalMinutes) {
+        /** Share of refreshes that found a new price, per platform (0..1) */
+        public double changeRate() {
+            double refreshes = platforms * observedMinutes / Math.max(1, intervalMinutes);
+            return refreshes > 0 ? Math.min(1.0, changes / refreshes) : 0.0;
+        }
+    }
+
+    /**
+     * Create the refresh_schedule table and its due-time index if they don't exist yet
+     */
+    public void ensureTable() throws SQLException {
+        if (tableReady) {
+            return;
+        }
+        synchronized (RefreshScheduleRepository.class) {
+            if (tableReady) {
+                return;
+            }
+            String createTable = """
+                CREATE TABLE IF NOT EXISTS refresh_schedule (
+                    product_id BIGINT PRIMARY KEY REFERENCES product(id) ON DELETE CASCADE,
+                    next_due_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+                    interval_minutes INT NOT NULL,
+                    view_count INT NOT NULL DEFAULT 0,
+                    last_refreshed_at TIMESTAMP,
+                    claimed_run BIGINT,
+                    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+                )
+                """;
+            String addClaimedRun = "ALTER TABLE refresh_schedule ADD COLUMN IF NOT EXISTS claimed_run BIGINT";
+            String createDueIndex = """
+                CREATE INDEX IF NOT EXISTS idx_refresh_schedule_due
+                ON refresh_schedule (next_due_at, product_id)
+                """;
+            String createClaimIndex = """
+                CREATE INDEX IF NOT EXISTS idx_refresh_schedule_claimed
+                ON refresh_schedule (claimed_run) WHERE claimed_run IS NOT NULL
+                """;
+
+            try (Connection conn = DBUtil.getConnection();
+                 Statement stmt = conn.createStatement()) {
+                stmt.execute(createTable);
+                stmt.execute(addClaimedRun);
+                stmt.execute(createDueIndex);
+                stmt.execute(createClaimIndex);
+            }
+            tableReady = true;
+        }
+    }
+
+    /**
+     * Give products that have no schedule row one, due a cadence after their last update
+     * @return number of products added
+     */
+    public int seedMissing(int intervalMinutes) throws SQLException {
+        ensureTable();
+        String sql = """
+            INSERT INTO refresh_schedule (product_id, next_due_at, interval_minutes)
+            SELECT p.id,
+                   COALESCE(p.last_updated, CURRENT_TIMESTAMP) + (? * INTERVAL '1 minute'),
+                   ?
+            FROM product p
+            WHERE NOT EXISTS (SELECT 1 FROM refresh_schedule s WHERE s.product_id = p.id)
+            ON CONFLICT (product_id) DO NOTHING
+            """;
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, intervalMinutes);
+            stmt.setInt(2, intervalMinutes);
+            return stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Claim the most overdue products in one hash bucket for a run and lease them for leaseMinutes
+     * @param shardIndex bucket to claim from, 0 .. shardCount-1 (product id mod shardCount)
+     * @return the claimed products, most overdue first
+     */
+    public List<Product> claimDue(int limit, int leaseMinutes, int shardIndex, int shardCount, long runId) throws SQLException {
+        ensureTable();
+        String sql = """
+            WITH due AS (
+                SELECT product_id FROM refresh_schedule
+                WHERE next_due_at <= CURRENT_TIMESTAMP AND mod(product_id, ?) = ?
+                ORDER BY next_due_at, product_id
+                LIMIT ?
+                FOR UPDATE SKIP LOCKED
+            )
+            UPDATE refresh_schedule s SET
+                next_due_at = CURRENT_TIMESTAMP + (? * INTERVAL '1 minute'),
+                claimed_run = ?,
+                updated_at = CURRENT_TIMESTAMP
+            FROM due, product p
+            WHERE s.product_id = due.product_id AND p.id = s.product_id
+            RETURNING p.id, p.name, p.product_url, p.created_at, p.last_updated
+            """;
+
+        List<Product> products = new ArrayList<>();
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, shardCount);
+            stmt.setInt(2, shardIndex);
+            stmt.setInt(3, limit);
+            stmt.setInt(4, leaseMinutes);
+            stmt.setLong(5, runId);
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                Timestamp createdAt = rs.getTimestamp("created_at");
+                Timestamp lastUpdated = rs.getTimestamp("last_updated");
+                products.add(new Product(
+                        rs.getLong("id"),
+                        rs.getString("name"),
+                        rs.getString("product_url"),
+                        createdAt != null ? createdAt.toLocalDateTime() : null,
+                        lastUpdated != null ? lastUpdated.toLocalDateTime() : null));
+            }
+        }
+        return products;
+    }
+
+    /**
+     * Number of products due now in one hash bucket
+     */
+    public long countDue(int shardIndex, int shardCount) throws SQLException {
+        ensureTable();
+        String sql = "SELECT COUNT(*) FROM refresh_schedule WHERE next_due_at <= CURRENT_TIMESTAMP AND mod(product_id, ?) = ?";
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, shardCount);
+            stmt.setInt(2, shardIndex);
+            ResultSet rs = stmt.executeQuery();
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    /**
+     * Price change points over the lookback window, how long the product's
+     * platforms have been observed in it, stock state, views and current cadence
+     */
+    public ChangeStats findChangeStats(Long productId, int lookbackDays) throws SQLException {
+        ensureTable();
+        String sql = """
+            WITH history AS (
+                SELECT ph.product_detail_id, ph.price, ph.recorded_at,
+                       LAG(ph.price) OVER (PARTITION BY ph.product_detail_id ORDER BY ph.recorded_at) AS prev
+                FROM price_history ph JOIN product_detail pd ON pd.id = ph.product_detail_id
+                WHERE pd.product_id = ? AND ph.recorded_at >= CURRENT_TIMESTAMP - (? * INTERVAL '1 day')
+            ),
+            first_seen AS (
+                SELECT MIN(ph.recorded_at) AS at
+                FROM price_history ph JOIN product_detail pd ON pd.id = ph.product_detail_id
+                WHERE pd.product_id = ?
+            )
+            SELECT
+                (SELECT COUNT(*) FROM history WHERE prev IS NOT NULL AND price <> prev) AS changes,
+                (SELECT COUNT(DISTINCT product_detail_id) FROM history) AS platforms,
+                COALESCE((SELECT EXTRACT(EPOCH FROM CURRENT_TIMESTAMP
+                                 - GREATEST(at, CURRENT_TIMESTAMP - (? * INTERVAL '1 day'))) / 60
+                          FROM first_seen), 0) AS observed_minutes,
+                EXISTS (SELECT 1 FROM product_detail
+                        WHERE product_id = ? AND availability IN ('Limited Stock', 'Out of Stock')) AS low_stock,
+                s.view_count,
+                s.interval_minutes
+            FROM refresh_schedule s
+            WHERE s.product_id = ?
+            """;
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, productId);
+            stmt.setInt(2, lookbackDays);
+            stmt.setLong(3, productId);
+            stmt.setInt(4, lookbackDays);
+            stmt.setLong(5, productId);
+            stmt.setLong(6, productId);
+            ResultSet rs = stmt.executeQuery();
+            if (!rs.next()) {
+                return null;
+            }
+            return new ChangeStats(rs.getInt("changes"), rs.getInt("platforms"), rs.getDouble("observed_minutes"),
+                    rs.getBoolean("low_stock"), rs.getInt("view_count"), rs.getInt("interval_minutes"));
+        }
+    }
+
+    /**
+     * Set the product's next cadence after a refresh; views restart counting
+     */
+    public void reschedule(Long productId, int intervalMinutes) throws SQLException {
+        ensureTable();
+        String sql = """
+            UPDATE refresh_schedule SET
+                interval_minutes = ?,
+                next_due_at = CURRENT_TIMESTAMP + (? * INTERVAL '1 minute'),
+                last_refreshed_at = CURRENT_TIMESTAMP,
+                view_count = 0,
+                claimed_run = NULL,
+                updated_at = CURRENT_TIMESTAMP
+            WHERE product_id = ?
+            """;
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, intervalMinutes);
+            stmt.setInt(2, intervalMinutes);
+            stmt.setLong(3, productId);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Retry a failed refresh after a short delay, keeping its cadence
+     */
+    public void retryLater(Long productId, int delayMinutes) throws SQLException {
+        ensureTable();
+        String sql = """
+            UPDATE refresh_schedule SET
+                next_due_at = CURRENT_TIMESTAMP + (? * INTERVAL '1 minute'),
+                claimed_run = NULL,
+                updated_at = CURRENT_TIMESTAMP
+            WHERE product_id = ?
+            """;
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, delayMinutes);
+            stmt.setLong(2, productId);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Hand back a run's claims that were never refreshed; they become due
+     * again at their natural due time (which has already passed)
+     * @return number of products released
+     */
+    public int releaseClaims(long runId) throws SQLException {
+        ensureTable();
+        String sql = """
+            UPDATE refresh_schedule SET
+                next_due_at = LEAST(CURRENT_TIMESTAMP,
+                        COALESCE(last_refreshed_at + interval_minutes * INTERVAL '1 minute', CURRENT_TIMESTAMP)),
+                claimed_run = NULL,
+                updated_at = CURRENT_TIMESTAMP
+            WHERE claimed_run = ?
+            """;
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, runId);
+            return stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Count a product view; popular products get shorter cadences
+     */
+    public void recordView(Long productId) throws SQLException {
+        ensureTable();
+        String sql = "UPDATE refresh_schedule SET view_count = view_count + 1 WHERE product_id = ?";
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, productId);
+            stmt.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package com.ecommerce.analyzer.repository;
+
+import com.ecommerce.analyzer.model.ScrapeJob;
+import com.ecommerce.analyzer.util.DBUtil;
+
+import java.sql.*;
+
+/**
+ * Scrape Job Repository
+ * PostgreSQL-backed job queue. Workers claim jobs with FOR UPDATE SKIP LOCKED,
+ * so any number of threads and application instances can drain it concurrently.
+ */
+public class ScrapeJobRepository {
+
+    private static volatile boolean tableReady = false;
+
+    /**
+     * Create the scrape_job table and its indexes if they don't exist yet
+     */
+    public void ensureTable() throws SQLException {
+        if (tableReady) {
+            return;
+        }
+        synchronized (ScrapeJobRepository.class) {
+            if (tableReady) {
+                return;
+            }
+            String createTable = """
+                CREATE TABLE IF NOT EXISTS scrape_job (
+                    id BIGSERIAL PRIMARY KEY,
+                    product_id BIGINT NOT NULL,
+                    job_type VARCHAR(32) NOT NULL,
+                    priority INT NOT NULL DEFAULT 0,
+                    status VARCHAR(16) NOT NULL DEFAULT 'PENDING',
+                    attempts INT NOT NULL DEFAULT 0,
+                    max_attempts INT NOT NULL DEFAULT 5,
+                    run_after TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+                    locked_by VARCHAR(128),
+                    locked_until TIMESTAMP,
+                    last_error TEXT,
+                    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+                    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+                )
+                """;
+            // Only one live job per product and type - re-enqueueing joins the existing job
+            String createActiveIndex = """
+                CREATE UNIQUE INDEX IF NOT EXISTS uq_scrape_job_active
+                ON scrape_job (product_id, job_type)
+                WHERE status IN ('PENDING', 'RUNNING')
+                """;
+            String createReadyIndex = """
+                CREATE INDEX IF NOT EXISTS idx_scrape_job_ready
+                ON scrape_job (priority DESC, run_after, id)
+                WHERE status IN ('PENDING', 'RUNNING')
+                """;
+
+            try (Connection conn = DBUtil.getConnection();
+                 Statement stmt = conn.createStatement()) {
+                stmt.execute(createTable);
+                stmt.execute(createActiveIndex);
+                stmt.execute(createReadyIndex);
+            }
+            tableReady = true;
+        }
+    }
+
+    /**
+     * Enqueue a job. If a live job for the same product and type already exists,
+     * its priority is raised if needed and its id is returned instead.
+     */
+    public Long enqueue(Long productId, String jobType, int priority, int maxAttempts) throws SQLException {
+        ensureTable();
+        String sql = """
+            INSERT INTO scrape_job (product_id, job_type, priority, max_attempts)
+            VALUES (?, ?, ?, ?)
+            ON CONFLICT (product_id, job_type) WHERE status IN ('PENDING', 'RUNNING')
+            DO UPDATE SET priority = GREATEST(scrape_job.priority, EXCLUDED.priority),
+                          updated_at = CURRENT_TIMESTAMP
+            RETURNING id
+            """;
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setLong(1, productId);
+            stmt.setString(2, jobType);
+            stmt.setInt(3, priority);
+            stmt.setInt(4, maxAttempts);
+
+            ResultSet rs = stmt.executeQuery();
+            if (rs.next()) {
+                return rs.getLong("id");
+            }
+            throw new SQLException("Failed to enqueue scrape job");
+        }
+    }
+
+    /**
+     * Claim the highest-priority runnable job for a worker.
+     * Jobs whose lease (visibility timeout) has expired are claimable again.
+     * @return the claimed job, or null if nothing is runnable
+     */
+    public ScrapeJob claimNext(String workerId, int visibilityTimeoutSeconds) throws SQLException {
+        ensureTable();
+        String sql = """
+            UPDATE scrape_job SET
+                status = 'RUNNING',
+                attempts = attempts + 1,
+                locked_by = ?,
+                locked_until = CURRENT_TIMESTAMP + (? * INTERVAL '1 second'),
+                updated_at = CURRENT_TIMESTAMP
+            WHERE id = (
+                SELECT id FROM scrape_job
+                WHERE (status = 'PENDING' AND run_after <= CURRENT_TIMESTAMP)
+                   OR (status = 'RUNNING' AND locked_until < CURRENT_TIMESTAMP)
+                ORDER BY priority DESC, run_after, id
+                LIMIT 1
+                FOR UPDATE SKIP LOCKED
+            )
+            RETURNING *
+            """;
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setString(1, workerId);
+            stmt.setInt(2, visibilityTimeoutSeconds);
+
+            ResultSet rs = stmt.executeQuery();
+            if (rs.next()) {
+                return mapResultSetToScrapeJob(rs);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Push a running job's lease out by another visibility timeout
+     * @return false if the worker no longer holds the lease
+     */
+    public boolean renewLease(Long jobId, String workerId, int visibilityTimeoutSeconds) throws SQLException {
+        String sql = """
+            UPDATE scrape_job SET
+                locked_until = CURRENT_TIMESTAMP + (? * INTERVAL '1 second'),
+                updated_at = CURRENT_TIMESTAMP
+            WHERE id = ? AND locked_by = ? AND status = 'RUNNING'
+            """;
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setInt(1, visibilityTimeoutSeconds);
+            stmt.setLong(2, jobId);
+            stmt.setString(3, workerId);
+            return stmt.executeUpdate() > 0;
+        }
+    }
+
+    /**
+     * Mark a job as done. Ignored if the worker no longer holds the lease.
+     */
+    public boolean markDone(Long jobId, String workerId) throws SQLException {
+        String sql = """
+            UPDATE scrape_job SET
+                status = 'DONE',
+                locked_by = NULL,
+                locked_until = NULL,
+                last_error = NULL,
+                updated_at = CURRENT_TIMESTAMP
+            WHERE id = ? AND locked_by = ? AND status = 'RUNNING'
+            """;
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setLong(1, jobId);
+            stmt.setString(2, workerId);
+            return stmt.executeUpdate() > 0;
+        }
+    }
+
+    /**
+     * Release a failed job back to the queue, runnable again after the backoff delay
+     */
+    public boolean scheduleRetry(Long jobId, String workerId, String error, long delaySeconds) throws SQLException {
+        String sql = """
+            UPDATE scrape_job SET
+                status = 'PENDING',
+                locked_by = NULL,
+                locked_until = NULL,
+                last_error = ?,
+                run_after = CURRENT_TIMESTAMP + (? * INTERVAL '1 second'),
+                updated_at = CURRENT_TIMESTAMP
+            WHERE id = ? AND locked_by = ? AND status = 'RUNNING'
+            """;
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setString(1, error);
+            stmt.setLong(2, delaySeconds);
+            stmt.setLong(3, jobId);
+            stmt.setString(4, workerId);
+            return stmt.executeUpdate() > 0;
+        }
+    }
+
+    /**
+     * Move a job to the dead-letter state; it will not be retried
+     */
+    public boolean markDead(Long jobId, String workerId, String error) throws SQLException {
+        String sql = """
+            UPDATE scrape_job SET
+                status = 'DEAD',
+                locked_by = NULL,
+                locked_until = NULL,
+                last_error = ?,
+                updated_at = CURRENT_TIMESTAMP
+            WHERE id = ? AND locked_by = ? AND status = 'RUNNING'
+            """;
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setString(1, error);
+            stmt.setLong(2, jobId);
+            stmt.setString(3, workerId);
+            return stmt.executeUpdate() > 0;
+        }
+    }
+
+    /**
+     * Find job by ID
+     */
+    public ScrapeJob findById(Long jobId) throws SQLException {
+        ensureTable();
+        String sql = "SELECT * FROM scrape_job WHERE id = ?";
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setLong(1, jobId);
+            ResultSet rs = stmt.executeQuery();
+
+            if (rs.next()) {
+                return mapResultSetToScrapeJob(rs);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Delete finished jobs older than the given number of days.
+     * Dead-lettered jobs are kept for inspection.
+     * @return number of jobs deleted
+     */
+    public int deleteFinishedJobs(int daysToKeep) throws SQLException {
+        ensureTable();
+        String sql = "DELETE FROM scrape_job WHERE status = 'DONE' AND updated_at < CURRENT_TIMESTAMP - (? * INTERVAL '1 day')";
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setInt(1, daysToKeep);
+            return stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Map ResultSet to ScrapeJob object
+     */
+    private ScrapeJob mapResultSetToScrapeJob(ResultSet rs) throws SQLException {
+        ScrapeJob job = new ScrapeJob();
+        job.setId(rs.getLong("id"));
+        job.setProductId(rs.getLong("product_id"));
+        job.setJobType(rs.getString("job_type"));
+        job.setPriority(rs.getInt("priority"));
+        job.setStatus(ScrapeJob.Status.valueOf(rs.getString("status")));
+        job.setAttempts(rs.getInt("attempts"));
+        job.setMaxAttempts(rs.getInt("max_attempts"));
+        job.setLockedBy(rs.getString("locked_by"));
+        job.setLastError(rs.getString("last_error"));
+
+        Timestamp runAfter = rs.getTimestamp("run_after");
+        Timestamp lockedUntil = rs.getTimestamp("locked_until");
+        Timestamp createdAt = rs.getTimestamp("created_at");
+        Timestamp updatedAt = rs.getTimestamp("updated_at");
+        job.setRunAfter(runAfter != null ? runAfter.toLocalDateTime() : null);
+        job.setLockedUntil(lockedUntil != null ? lockedUntil.toLocalDateTime() : null);
+        job.setCreatedAt(createdAt != null ? createdAt.toLocalDateTime() : null);
+        job.setUpdatedAt(updatedAt != null ? updatedAt.toLocalDateTime() : null);
+        return job;
+    }
+}
@@ -1,10 +1,10 @@
 package com.ecommerce.analyzer.service;
 
 import com.ecommerce.analyzer.model.ProductDetail;
-import com.ecommerce.analyzer.util.ConfigManager;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
-import okhttp3.*;
+import okio.BufferedSource;
 
 import java.util.List;
 
@@ -14,32 +14,63 @@ import java.util.List;
  */
 public class AIAnalyzerService {
 
-    private static final String GEMINI_API_URL = "https://generativelanguage.googleapis.com/v1beta/models/gemini-1.5-flash:generateContent";
-    private final OkHttpClient client;
-    private final String apiKey;
+    private static final String SSE_DATA_PREFIX = "data:";
+
+    // Shared with the combined scrape-and-recommend prompt so both read the same
+    static final String RECOMMENDATION_FORMAT = """
+            **Recommended Platform:** [Platform Name]
+
+            **Reasons:**
+            1. [First reason]
+            2. [Second reason]
+            3. [Third reason]
+
+            **Overall Value Score:** [Score out of 10]""";
+
+    // Fixed prefix sent as systemInstruction; only the data table varies per call
+    private static final String ANALYST_INSTRUCTION = """
+            You recommend the best Indian e-commerce platform to buy a product from.
+            You get one CSV table of offers (price in INR). Consider price, rating, delivery time,
+            return policy, warranty, and offers. Reply in this format:
+            """ + RECOMMENDATION_FORMAT;
+    private final GeminiClient gemini;
+    private final RecommendationEngine engine = new RecommendationEngine();
+
+    /**
+     * Receives recommendation text as it is generated
+     */
+    @FunctionalInterface
+    public interface StreamListener {
+        /** Called with each new piece of text, on the calling (background) thread */
+        void onText(String chunk);
+    }
 
     public AIAnalyzerService() {
-        this.client = new OkHttpClient();
-        this.apiKey = ConfigManager.getGeminiApiKey();
+        this.gemini = GeminiClient.getInstance();
     }
 
     /**
-     * Analyze products and recommend best platform
+     * Analyze products and recommend best platform.
+     * The local engine decides clear winners; Gemini is asked only for close calls.
      */
     public String analyzeAndRecommend(List<ProductDetail> productDetails) {
         if (productDetails == null || productDetails.isEmpty()) {
             return "No product data available for analysis.";
         }
 
+        RecommendationEngine.Ranking ranking = engine.rank(productDetails);
+        if (!ranking.closeCall()) {
+            return engine.format(ranking);
+        }
+
         // NEW: Check if API key is configured
-        if (apiKey == null || apiKey.isEmpty() || apiKey.contains("YOUR")) {
+        if (!gemini.isConfigured()) {
             System.out.println("AI Analyzer: No API key configured, using simple recommendation");
             return getSimpleRecommendation(productDetails);
         }
 
         try {
-            String prompt = buildAnalysisPrompt(productDetails);
-            String response = callGeminiAPI(prompt);
+            String response = callGeminiAPI(buildAnalysisPrompt(ranking));
             return response;
         } catch (Exception e) {
             System.err.println("AI Analysis error: " + e.getMessage());
@@ -49,143 +80,168 @@ public class AIAnalyzerService {
     }
 
     /**
-     * Build prompt for Gemini
+     * Streaming variant of analyzeAndRecommend: partial text is pushed to the
+     * listener as Gemini generates it. Blocks until the stream ends.
+     * @return the complete recommendation, or the simple recommendation on failure
      */
-    private String buildAnalysisPrompt(List<ProductDetail> details) {
-        StringBuilder prompt = new StringBuilder();
-        prompt.append("Analyze the following product comparison data from different e-commerce platforms and recommend the best platform to buy from. ");
-        prompt.append("Consider price, rating, delivery time, return policy, warranty, and offers.\n\n");
-
-        for (ProductDetail detail : details) {
-            prompt.append(String.format("Platform: %s\n", detail.getPlatform()));
-            prompt.append(String.format("Price: ₹%.2f\n", detail.getPrice()));
-            prompt.append(String.format("Rating: %.1f/5\n", detail.getRating()));
-            prompt.append(String.format("Seller: %s\n", detail.getSeller()));
-            prompt.append(String.format("Delivery: %s\n", detail.getDeliveryTime()));
-            prompt.append(String.format("Return Policy: %s\n", detail.getReturnPolicy()));
-            prompt.append(String.format("Warranty: %s\n", detail.getWarranty()));
-            prompt.append(String.format("Offers: %s\n\n", detail.getOffers()));
-        }
-
-        prompt.append("Provide a recommendation in this format:\n");
-        prompt.append("**Recommended Platform:** [Platform Name]\n\n");
-        prompt.append("**Reasons:**\n");
-        prompt.append("1. [First reason]\n");
-        prompt.append("2. [Second reason]\n");
-        prompt.append("3. [Third reason]\n\n");
-        prompt.append("**Overall Value Score:** [Score out of 10]");
-
-        return prompt.toString();
+    public String analyzeAndRecommendStreaming(List<ProductDetail> productDetails, StreamListener listener) {
+        return analyzeAndRecommendStreaming(productDetails, null, listener);
     }
 
     /**
-     * Call Google Gemini API
+     * As analyzeAndRecommendStreaming, but a close call uses an answer Gemini
+     * already gave (the combined scrape call) instead of a new request.
+     * Clear winners still come from the local engine.
      */
-    private String callGeminiAPI(String prompt) throws Exception {
-        // Build request JSON
-        JsonObject requestBody = new JsonObject();
-        JsonObject contents = new JsonObject();
-        JsonObject parts = new JsonObject();
-        parts.addProperty("text", prompt);
-
-        contents.add("parts", new com.google.gson.JsonArray());
-        contents.getAsJsonArray("parts").add(parts);
-
-        requestBody.add("contents", new com.google.gson.JsonArray());
-        requestBody.getAsJsonArray("contents").add(contents);
-
-        RequestBody body = RequestBody.create(
-                requestBody.toString(),
-                MediaType.parse("application/json")
-        );
-
-        Request request = new Request.Builder()
-                .url(GEMINI_API_URL + "?key=" + apiKey)
-                .post(body)
-                .addHeader("Content-Type", "application/json")
-                .build();
-
-        try (Response response = client.newCall(request).execute()) {
-            if (!response.isSuccessful()) {
-                throw new Exception("API call failed: " + response.code());
-            }
+    public String analyzeAndRecommendStreaming(List<ProductDetail> productDetails, String storedRecommendation,
+                                               StreamListener listener) {
+        if (productDetails == null || productDetails.isEmpty()) {
+            return "No product data available for analysis.";
+        }
 
-            String responseBody = response.body().string();
-            return parseGeminiResponse(responseBody);
+        RecommendationEngine.Ranking ranking = engine.rank(productDetails);
+        if (!ranking.closeCall()) {
+            return engine.format(ranking);
+        }
+        if (storedRecommendation != null) {
+            return storedRecommendation;
+        }
+
+        if (!gemini.isConfigured()) {
+            System.out.println("AI Analyzer: No API key configured, using simple recommendation");
+            return getSimpleRecommendation(productDetails);
         }
-    }
 
-    /**
-     * Parse Gemini API response
-     */
-    private String parseGeminiResponse(String responseJson) {
         try {
-            JsonObject jsonObject = JsonParser.parseString(responseJson).getAsJsonObject();
-            return jsonObject.getAsJsonArray("candidates")
-                    .get(0).getAsJsonObject()
-                    .getAsJsonObject("content")
-                    .getAsJsonArray("parts")
-                    .get(0).getAsJsonObject()
-                    .get("text").getAsString();
+            return streamGeminiAPI(buildAnalysisPrompt(ranking), listener);
         } catch (Exception e) {
-            System.err.println("Failed to parse Gemini response: " + e.getMessage());
-            return "Failed to parse AI response";
+            System.err.println("AI Analysis stream error: " + e.getMessage());
+            return getSimpleRecommendation(productDetails);
         }
     }
 
     /**
-     * Get simple recommendation based on rules
-     * Fallback if AI fails
+     * Build prompt for Gemini: offers as CSV in ranking order, within the token budget
      */
-    public String getSimpleRecommendation(List<ProductDetail> details) {
-        if (details == null || details.isEmpty()) {
-            return "No data available";
-        }
-
-        StringBuilder recommendation = new StringBuilder();
-        recommendation.append("📊 QUICK ANALYSIS\n\n");
-
-        // Best price
-        ProductDetail bestPrice = details.stream()
-                .min((d1, d2) -> Double.compare(d1.getPrice(), d2.getPrice()))
-                .orElse(details.get(0));
+    private PromptBuilder buildAnalysisPrompt(RecommendationEngine.Ranking ranking) {
+        PromptBuilder prompt = PromptBuilder.withSystemInstruction(ANALYST_INSTRUCTION);
+
+        // Point the model at the tie the local engine couldn't break
+        RecommendationEngine.ScoredOffer best = ranking.best();
+        RecommendationEngine.ScoredOffer runnerUp = ranking.offers().get(1);
+        prompt.line(String.format("Local score: %s %.1f/10 vs %s %.1f/10 - close call, weigh the trade-offs.",
+                best.detail().getPlatform(), best.score() * 10,
+                runnerUp.detail().getPlatform(), runnerUp.score() * 10));
+
+        prompt.table(ranking.offers().stream().map(RecommendationEngine.ScoredOffer::detail).toList());
+        return prompt;
+    }
 
-        // Best rating
-        ProductDetail bestRating = details.stream()
-                .max((d1, d2) -> Double.compare(d1.getRating(), d2.getRating()))
-                .orElse(details.get(0));
+    /**
+     * Call Google Gemini API
+     */
+    private String callGeminiAPI(PromptBuilder prompt) throws Exception {
+        return gemini.generateContent(prompt.toRequest());
+    }
 
-        recommendation.append(String.format("💰 BEST PRICE: %s at ₹%.2f\n",
-                bestPrice.getPlatform(), bestPrice.getPrice()));
+    /**
+     * Call Gemini's server-sent-events endpoint and forward each text part
+     */
+    private String streamGeminiAPI(PromptBuilder prompt, StreamListener listener) throws Exception {
+        long startNanos = System.nanoTime();
+        boolean firstText = true;
+        StringBuilder fullText = new StringBuilder();
+        JsonObject requestBody = prompt.toRequest();
+        JsonObject usage = null;
+
+        try (GeminiClient.SseStream stream = gemini.openStream(requestBody)) {
+            BufferedSource source = stream.response().body().source();
+            String line;
+            while ((line = source.readUtf8Line()) != null) {
+                // Each SSE event is one "data: {...}" line holding a partial GenerateContentResponse
+                if (!line.startsWith(SSE_DATA_PREFIX)) {
+                    continue;
+                }
+                JsonObject event = parseEvent(line.substring(SSE_DATA_PREFIX.length()).trim());
+                if (event == null) {
+                    continue;
+                }
+                if (event.has("usageMetadata")) {
+                    usage = event.getAsJsonObject("usageMetadata"); // Final event carries the totals
+                }
+                String chunk = extractText(event);
+                if (chunk == null || chunk.isEmpty()) {
+                    continue;
+                }
+
+                if (firstText) {
+                    firstText = false;
+                    System.out.printf("AI Analyzer: first text after %d ms%n", (System.nanoTime() - startNanos) / 1_000_000);
+                }
+                fullText.append(chunk);
+                listener.onText(chunk);
+            }
+            if (usage != null) {
+                stream.recordUsage(tokenCount(usage, "totalTokenCount"));
+            }
+        }
 
-        if (bestPrice.getOffers() != null && !bestPrice.getOffers().isEmpty()) {
-            recommendation.append("   Offer: ").append(bestPrice.getOffers()).append("\n");
+        if (fullText.length() == 0) {
+            throw new Exception("API stream returned no text");
         }
-        recommendation.append("\n");
+        System.out.printf("AI Analyzer: stream complete after %d ms (%d chars)%n",
+                (System.nanoTime() - startNanos) / 1_000_000, fullText.length());
+        if (usage != null) {
+            GeminiClient.logTokenUsage(GeminiClient.estimatePromptTokens(requestBody), tokenCount(usage, "promptTokenCount"),
+                    tokenCount(usage, "candidatesTokenCount"), tokenCount(usage, "totalTokenCount"));
+        }
+        return fullText.toString();
+    }
 
-        recommendation.append(String.format("⭐ BEST RATED: %s with %.1f stars\n",
-                bestRating.getPlatform(), bestRating.getRating()));
+    private static long tokenCount(JsonObject usage, String field) {
+        return usage.has(field) ? usage.get(field).getAsLong() : -1;
+    }
 
-        if (bestRating != bestPrice) {
-            double priceDiff = bestRating.getPrice() - bestPrice.getPrice();
-            recommendation.append(String.format("   Price: ₹%.2f (₹%.2f more)\n\n",
-                    bestRating.getPrice(), priceDiff));
-        } else {
-            recommendation.append("   (Also the cheapest option!)\n\n");
+    /**
+     * One streamed event, or null if it isn't valid JSON
+     */
+    private JsonObject parseEvent(String eventJson) {
+        try {
+            return JsonParser.parseString(eventJson).getAsJsonObject();
+        } catch (Exception e) {
+            System.err.println("Failed to parse Gemini stream event: " + e.getMessage());
+            return null;
         }
+    }
 
-        recommendation.append("💡 RECOMMENDATION:\n");
-        if (bestPrice == bestRating) {
-            recommendation.append(String.format("   Buy from %s - Best price AND top rated!\n",
-                    bestPrice.getPlatform()));
-        } else {
-            double priceDiffPercent = ((bestRating.getPrice() - bestPrice.getPrice()) / bestPrice.getPrice()) * 100;
-            if (priceDiffPercent < 10) {
-                recommendation.append("   Consider the better-rated option for slightly more.\n");
-            } else {
-                recommendation.append("   Go with the cheapest if price is your priority.\n");
+    /**
+     * Concatenated text parts of one streamed event, or null if it has none
+     */
+    private String extractText(JsonObject event) {
+        if (!event.has("candidates")) {
+            return null;
+        }
+        JsonObject content = event.getAsJsonArray("candidates").get(0).getAsJsonObject().getAsJsonObject("content");
+        if (content == null || !content.has("parts")) {
+            return null;
+        }
+        StringBuilder text = new StringBuilder();
+        for (JsonElement part : content.getAsJsonArray("parts")) {
+            if (part.getAsJsonObject().has("text")) {
+                text.append(part.getAsJsonObject().get("text").getAsString());
             }
         }
-        return recommendation.toString();
+        return text.toString();
+    }
+
+    /**
+     * Get simple recommendation based on rules
+     * Fallback if AI fails - the local weighted ranking
+     */
+    public String getSimpleRecommendation(List<ProductDetail> details) {
+        if (details == null || details.isEmpty()) {
+            return "No data available";
+        }
+        return engine.format(engine.rank(details));
     }
-}
\ No newline at end of file
+}
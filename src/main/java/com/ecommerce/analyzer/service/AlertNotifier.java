@@ -0,0 +1,16 @@
+package com.ecommerce.analyzer.service;
+
+import com.ecommerce.analyzer.model.PriceAlert;
+import com.ecommerce.analyzer.service.PriceEventBus.PriceChanged;
+
+/**
+ * Alert Notifier
+ * Delivery channel for fired price alerts; channels are picked with alerts.notifiers
+ */
+public interface AlertNotifier {
+
+    /**
+     * Deliver one fired alert together with the price change that fired it
+     */
+    void notify(PriceAlert alert, PriceChanged change);
+}
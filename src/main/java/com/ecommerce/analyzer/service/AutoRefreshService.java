@@ -1,10 +1,24 @@
 package com.ecommerce.analyzer.service;
 
+import com.ecommerce.analyzer.model.Product;
+import com.ecommerce.analyzer.repository.RefreshRunRepository;
+import com.ecommerce.analyzer.repository.RefreshRunRepository.AbandonedRun;
+import com.ecommerce.analyzer.service.RefreshNodeRegistry.Shard;
+import com.ecommerce.analyzer.service.RefreshWindowPolicy.Window;
 import com.ecommerce.analyzer.util.ConfigManager;
 
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Auto Refresh Service
@@ -14,13 +28,36 @@ public class AutoRefreshService {
 
     private final ScheduledExecutorService scheduler;
     private final ProductService productService;
+    private final RefreshScheduler refreshScheduler;
+    private final RefreshNodeRegistry nodeRegistry;
     private final int refreshIntervalMinutes;
+    private final int tickMinutes;
+    private final RefreshWindowPolicy windowPolicy;
+    private final int pageSize;
+    private final int chunkSize;
+    private final RefreshRunRepository runRepository;
+    private final int drainTimeoutSeconds;
+    private final AtomicBoolean refreshInProgress = new AtomicBoolean();
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final Object idleMonitor = new Object();
     private boolean isRunning;
 
     public AutoRefreshService() {
         this.scheduler = Executors.newScheduledThreadPool(1);
         this.productService = new ProductService();
+        this.refreshScheduler = new RefreshScheduler();
+        this.nodeRegistry = new RefreshNodeRegistry();
+        this.runRepository = new RefreshRunRepository();
+        // How long stop() lets in-flight chunks finish before giving up on them
+        this.drainTimeoutSeconds = Math.max(1, ConfigManager.getIntProperty("refresh.drain.timeout.seconds", 60));
         this.refreshIntervalMinutes = ConfigManager.getAutoRefreshInterval();
+        // How often the schedule is checked for due products; each product keeps its own cadence
+        this.tickMinutes = Math.max(1, ConfigManager.getIntProperty("refresh.tick.minutes", 5));
+        // Workers per run come from the refresh window in force
+        this.windowPolicy = RefreshWindowPolicy.getInstance();
+        this.pageSize = Math.max(1, ConfigManager.getIntProperty("refresh.page.size", 200));
+        // One chunk = one bulk scrape call; a few Gemini batches each
+        this.chunkSize = Math.max(1, ConfigManager.getIntProperty("refresh.chunk.size", 20));
         this.isRunning = false;
     }
 
@@ -33,22 +70,43 @@ public class AutoRefreshService {
             return;
         }
 
-        System.out.println("Starting auto-refresh service (interval: " + refreshIntervalMinutes + " minutes)");
+        System.out.println("Starting auto-refresh service (base interval: " + refreshIntervalMinutes
+                + " minutes, checking every " + tickMinutes + ")");
 
-        scheduler.scheduleAtFixedRate(() -> {
-            try {
-                System.out.println("Auto-refresh triggered at: " + new java.util.Date());
-                refreshAllProducts();
-            } catch (Exception e) {
-                System.err.println("Auto-refresh error: " + e.getMessage());
-            }
-        }, refreshIntervalMinutes, refreshIntervalMinutes, TimeUnit.MINUTES);
+        nodeRegistry.start();
+        scheduleTick(windowPolicy.firstTickDelayMillis(tickMinutes * 60_000L));
 
         isRunning = true;
     }
 
     /**
-     * Stop auto-refresh
+     * Each tick schedules the next one with fresh jitter, instead of a fixed
+     * rate that fires at the same instant on every node
+     */
+    private void scheduleTick(long delayMillis) {
+        if (scheduler.isShutdown()) {
+            return;
+        }
+        try {
+            scheduler.schedule(() -> {
+                try {
+                    System.out.println("Auto-refresh triggered at: " + new java.util.Date());
+                    refreshDueProducts(false);
+                } catch (Exception e) {
+                    System.err.println("Auto-refresh error: " + e.getMessage());
+                } finally {
+                    scheduleTick(windowPolicy.nextTickDelayMillis(tickMinutes * 60_000L));
+                }
+            }, delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Stopped while the tick was running
+        }
+    }
+
+    /**
+     * Stop auto-refresh, draining a run in progress: chunks already scraping
+     * finish, nothing new starts, and the run's untouched claims are handed
+     * back so the next start picks up exactly where this one stopped
      */
     public void stop() {
         if (!isRunning) {
@@ -56,43 +114,227 @@ public class AutoRefreshService {
         }
 
         System.out.println("Stopping auto-refresh service");
+        draining.set(true);
         scheduler.shutdown();
         try {
-            if (!scheduler.awaitTermination(5, TimeUnit.SECONDS)) {
+            if (refreshInProgress.get()) {
+                System.out.println("[AutoRefresh] Draining the current run (up to " + drainTimeoutSeconds + "s)...");
+            }
+            if (!awaitIdle(drainTimeoutSeconds * 1000L)) {
+                System.err.println("[AutoRefresh] ⚠ Drain timed out - unfinished products come due again when their lease expires");
                 scheduler.shutdownNow();
             }
         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
             scheduler.shutdownNow();
         }
+        nodeRegistry.stop();
         isRunning = false;
     }
 
+    private boolean awaitIdle(long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        synchronized (idleMonitor) {
+            while (refreshInProgress.get()) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                idleMonitor.wait(remaining);
+            }
+        }
+        return true;
+    }
+
     /**
-     * Refresh all products in database
+     * Refresh the products that are due.
+     * Due products are claimed from the refresh schedule, most overdue first,
+     * and split into chunks that run on as many workers as the current refresh
+     * window allows; at most twice that many chunks are in flight. When the
+     * window changes the run stops claiming, and the next tick continues under
+     * the new window's limit. Each refreshed product is then
+     * rescheduled according to how volatile, popular and scarce it is.
+     * The run is recorded in refresh_run and checkpointed after every page.
+     * The schedule itself is the resume cursor: finished products are already
+     * rescheduled, so a run cut short never redoes completed work.
      */
-    private void refreshAllProducts() {
-        try {
-            // Get all products and refresh their data
-            var products = productService.searchProducts("");
+    private void refreshDueProducts(boolean manual) {
+        Window window = windowPolicy.currentWindow();
+        if (window.paused() && !manual) {
+            System.out.println("[AutoRefresh] Refresh window " + window.label() + " is paused - skipping");
+            return;
+        }
+        if (!refreshInProgress.compareAndSet(false, true)) {
+            System.out.println("[AutoRefresh] Previous refresh still running - skipping this one");
+            return;
+        }
 
-            for (var product : products) {
-                try {
-                    productService.refreshProduct(product.getId());
-                    System.out.println("Refreshed: " + product.getName());
+        int concurrency = Math.max(1, window.concurrency());
+        long startNanos = System.nanoTime();
+        AtomicInteger refreshed = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        Semaphore inFlight = new Semaphore(concurrency * 2);
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "refresh-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Long runId = null;
 
-                    // Wait a bit between requests to avoid being blocked
-                    Thread.sleep(2000);
+        try {
+            if (draining.get()) {
+                return;
+            }
+            int seeded = refreshScheduler.seedNewProducts();
+            if (seeded > 0) {
+                System.out.println("[AutoRefresh] Scheduled " + seeded + " new products");
+            }
+            Long resumedFrom = recoverAbandonedRuns();
 
-                } catch (Exception e) {
-                    System.err.println("Failed to refresh product " + product.getId() + ": " + e.getMessage());
+            Shard shard = nodeRegistry.currentShard();
+            long due = refreshScheduler.countDue(shard);
+            if (due == 0) {
+                System.out.println("[AutoRefresh] Nothing due");
+                return;
+            }
+            runId = runRepository.start(nodeRegistry.getNodeId(), nodeRegistry.getInstanceId(), due, resumedFrom);
+            long run = runId;
+            System.out.println("[AutoRefresh] 🔄 Run #" + run + ": " + due + " of " + productService.getCatalogSize()
+                    + " products due in bucket " + (shard.index() + 1) + "/" + shard.count()
+                    + ", " + concurrency + " workers (window " + window.label() + ")");
+
+            // Claimed products are leased, so the next claim returns the following ones.
+            // The bucket is re-read each time, so a rebalance applies mid-run.
+            List<Product> page;
+            while (!draining.get() && (manual || windowPolicy.currentWindow().equals(window))
+                    && !(page = refreshScheduler.claimDue(pageSize, nodeRegistry.currentShard(), run)).isEmpty()) {
+                for (int from = 0; from < page.size() && !draining.get(); from += chunkSize) {
+                    List<Product> chunk = page.subList(from, Math.min(page.size(), from + chunkSize));
+                    inFlight.acquire(); // Back-pressure: don't claim ahead of the workers
+                    workers.execute(() -> {
+                        try {
+                            if (draining.get()) {
+                                return; // Never started - released with the run's other claims
+                            }
+                            Set<Long> saved = new HashSet<>(productService.scrapeAllPlatformDetails(chunk));
+                            for (Product product : chunk) {
+                                if (saved.contains(product.getId())) {
+                                    refreshScheduler.completed(product.getId());
+                                    refreshed.incrementAndGet();
+                                } else {
+                                    refreshScheduler.failed(product.getId());
+                                    failed.incrementAndGet();
+                                }
+                            }
+                        } catch (Exception e) {
+                            chunk.forEach(product -> refreshScheduler.failed(product.getId()));
+                            failed.addAndGet(chunk.size());
+                            System.err.println("[AutoRefresh] ⚠ Chunk failed: " + e.getMessage());
+                        } finally {
+                            inFlight.release();
+                        }
+                    });
                 }
+                runRepository.checkpoint(run, refreshed.get(), failed.get());
+                reportProgress(refreshed.get() + failed.get(), due, startNanos);
             }
 
-            System.out.println("Auto-refresh completed for " + products.size() + " products");
+            // Wait for the last chunks
+            inFlight.acquire(concurrency * 2);
+            inFlight.release(concurrency * 2);
 
+            boolean drained = draining.get();
+            int released = refreshScheduler.releaseClaims(run);
+            runRepository.finish(run, drained ? RefreshRunRepository.STATUS_DRAINED : RefreshRunRepository.STATUS_COMPLETED,
+                    refreshed.get(), failed.get());
+
+            double minutes = (System.nanoTime() - startNanos) / 60_000_000_000.0;
+            System.out.printf("[AutoRefresh] ✓ Run #%d %s: %d refreshed, %d failed in %.1f min (%.0f products/min)%s%n",
+                    run, drained ? "drained" : "completed", refreshed.get(), failed.get(), minutes,
+                    (refreshed.get() + failed.get()) / Math.max(minutes, 1e-6),
+                    released > 0 ? ", " + released + " handed back" : "");
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("[AutoRefresh] Interrupted after " + refreshed.get() + " products");
+            workers.shutdownNow(); // Queued chunks never start; running scrapes are interrupted
+            failRun(runId, workers, refreshed, failed);
         } catch (Exception e) {
             System.err.println("Auto-refresh failed: " + e.getMessage());
+            workers.shutdown(); // Chunks already handed out still finish
+            failRun(runId, workers, refreshed, failed);
+        } finally {
+            workers.shutdown();
+            refreshInProgress.set(false);
+            synchronized (idleMonitor) {
+                idleMonitor.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Hand back the claims of runs whose process died mid-run, including an
+     * earlier process of this node
+     * @return id of the latest such run, recorded as the one this run resumes
+     */
+    private Long recoverAbandonedRuns() throws SQLException {
+        Long resumedFrom = null;
+        for (AbandonedRun run : runRepository.abandonOrphanedRuns(nodeRegistry.getNodeId(),
+                nodeRegistry.getInstanceId(), nodeRegistry.getTtlSeconds())) {
+            int released = refreshScheduler.releaseClaims(run.id());
+            System.out.println("[AutoRefresh] ↻ Run #" + run.id() + " on " + run.nodeId() + " stopped after "
+                    + (run.refreshed() + run.failed()) + " products; resuming its " + released + " unfinished ones");
+            resumedFrom = run.id();
+        }
+        return resumedFrom;
+    }
+
+    /**
+     * Close a run that ended with an error. Its claims are handed back only
+     * once every chunk has stopped; releasing earlier would let another node or
+     * the next tick scrape a product this run is still scraping. If the workers
+     * don't stop in time the claims are left to expire with their lease.
+     */
+    private void failRun(Long runId, ExecutorService workers, AtomicInteger refreshed, AtomicInteger failed) {
+        if (runId == null) {
+            return;
+        }
+        boolean interrupted = Thread.interrupted(); // Wait even when we were interrupted
+        boolean stopped;
+        try {
+            stopped = workers.awaitTermination(drainTimeoutSeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            stopped = false;
+            interrupted = true;
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        try {
+            if (stopped) {
+                refreshScheduler.releaseClaims(runId);
+            } else {
+                System.err.println("[AutoRefresh] ⚠ Run #" + runId + " still has chunks running - its claims expire with their lease");
+            }
+            runRepository.finish(runId, RefreshRunRepository.STATUS_FAILED, refreshed.get(), failed.get());
+        } catch (SQLException e) {
+            System.err.println("[AutoRefresh] ⚠ Could not close run #" + runId + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Throughput so far and the projected finish for this run
+     */
+    private void reportProgress(int done, long total, long startNanos) {
+        double minutes = (System.nanoTime() - startNanos) / 60_000_000_000.0;
+        if (done == 0 || minutes <= 0) {
+            return;
         }
+        double rate = done / minutes;
+        System.out.printf("[AutoRefresh] %d/%d products, %.0f products/min, ~%.0f min left%n",
+                done, total, rate, Math.max(0, total - done) / rate);
     }
 
     /**
@@ -100,7 +342,7 @@ public class AutoRefreshService {
      */
     public void triggerRefresh() {
         System.out.println("Manual refresh triggered");
-        new Thread(this::refreshAllProducts).start();
+        new Thread(() -> refreshDueProducts(true)).start();
     }
 
     /**
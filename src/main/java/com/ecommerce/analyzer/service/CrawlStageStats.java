@@ -0,0 +1,48 @@
+package com.ecommerce.analyzer.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Crawl Stage Stats
+ * Item counts and throughput for one stage of a crawl pipeline
+ */
+public class CrawlStageStats {
+
+    private final String stage;
+    private final String unit;
+    private final long startNanos = System.nanoTime();
+    private final AtomicLong succeeded = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+
+    public CrawlStageStats(String stage, String unit) {
+        this.stage = stage;
+        this.unit = unit;
+    }
+
+    public void recordSuccess() { succeeded.incrementAndGet(); }
+    public void recordFailure() { failed.incrementAndGet(); }
+    public void recordSkipped() { skipped.incrementAndGet(); }
+
+    public long getSucceeded() { return succeeded.get(); }
+    public long getFailed() { return failed.get(); }
+
+    public double getElapsedSeconds() {
+        return (System.nanoTime() - startNanos) / 1_000_000_000.0;
+    }
+
+    /**
+     * Items per minute completed so far (successes and failures)
+     */
+    public double getThroughputPerMinute() {
+        double seconds = getElapsedSeconds();
+        long done = succeeded.get() + failed.get();
+        return seconds > 0 ? done * 60.0 / seconds : 0.0;
+    }
+
+    public void report() {
+        System.out.printf("[Crawl] Stage '%s': %d %s ok, %d failed, %d skipped in %.1f s (%.1f %s/min)%n",
+                stage, succeeded.get(), unit, failed.get(), skipped.get(),
+                getElapsedSeconds(), getThroughputPerMinute(), unit);
+    }
+}
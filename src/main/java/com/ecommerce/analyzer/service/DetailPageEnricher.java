@@ -0,0 +1,239 @@
+package com.ecommerce.analyzer.service;
+
+import com.ecommerce.analyzer.model.ProductDetail;
+import com.ecommerce.analyzer.util.ConfigManager;
+import org.jsoup.Connection;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Detail Page Enricher
+ * Second crawl stage: fetches the product pages discovered on search results
+ * and fills seller, delivery, return policy and warranty from the real page.
+ * URLs flow through a bounded frontier drained by a worker pool; duplicate
+ * URLs share one fetch and every fetch goes through the per-host politeness limiter.
+ */
+public class DetailPageEnricher {
+
+    private static final String USER_AGENT = "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/130.0.0.0 Safari/537.36";
+    private static final int TIMEOUT_MS = 15000;
+
+    private static DetailPageEnricher instance;
+
+    /** Fields read from one detail page; any may be null */
+    static class DetailPageData {
+        StructuredDataExtractor.StructuredProduct structured;
+        String seller;
+        String deliveryTime;
+        String returnPolicy;
+        String warranty;
+    }
+
+    private record FetchTask(String url, String platform, CompletableFuture<DetailPageData> result) {
+    }
+
+    private final BlockingQueue<FetchTask> frontier;
+    private final Map<String, CompletableFuture<DetailPageData>> inFlight = new ConcurrentHashMap<>();
+    private final HostPolitenessLimiter politeness = HostPolitenessLimiter.shared();
+    private final StructuredDataExtractor structuredDataExtractor = new StructuredDataExtractor();
+    private final long stageTimeoutMs;
+
+    private DetailPageEnricher() {
+        int workers = ConfigManager.getIntProperty("crawl.detail.workers", 4);
+        this.frontier = new ArrayBlockingQueue<>(ConfigManager.getIntProperty("crawl.frontier.capacity", 100));
+        this.stageTimeoutMs = ConfigManager.getIntProperty("crawl.detail.timeout.seconds", 120) * 1000L;
+
+        AtomicInteger threadIndex = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "detail-crawler-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < workers; i++) {
+            pool.submit(this::workerLoop);
+        }
+    }
+
+    public static synchronized DetailPageEnricher getInstance() {
+        if (instance == null) {
+            instance = new DetailPageEnricher();
+        }
+        return instance;
+    }
+
+    /**
+     * Enrich search-stage results in place from their detail pages.
+     * Results whose link is not a product page are left as they are.
+     */
+    public void enrich(List<ProductDetail> details) {
+        CrawlStageStats stats = new CrawlStageStats("detail", "pages");
+        Map<ProductDetail, CompletableFuture<DetailPageData>> pending = new LinkedHashMap<>();
+
+        for (ProductDetail detail : details) {
+            String url = detail.getProductLink();
+            if (url == null || !isDetailUrl(detail.getPlatform(), url)) {
+                stats.recordSkipped();
+                continue;
+            }
+            try {
+                pending.put(detail, submit(normalizeUrl(url), detail.getPlatform()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        long deadline = System.currentTimeMillis() + stageTimeoutMs;
+        for (Map.Entry<ProductDetail, CompletableFuture<DetailPageData>> entry : pending.entrySet()) {
+            try {
+                long remaining = Math.max(1, deadline - System.currentTimeMillis());
+                DetailPageData data = entry.getValue().get(remaining, TimeUnit.MILLISECONDS);
+                apply(data, entry.getKey());
+                stats.recordSuccess();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                System.err.println("[Crawl] Detail page failed for " + entry.getKey().getPlatform() + ": " + e.getMessage());
+                stats.recordFailure();
+            }
+        }
+        stats.report();
+    }
+
+    /**
+     * Queue a URL unless the same URL is already being fetched.
+     * Blocks while the frontier is full.
+     */
+    private CompletableFuture<DetailPageData> submit(String url, String platform) throws InterruptedException {
+        CompletableFuture<DetailPageData> future = new CompletableFuture<>();
+        CompletableFuture<DetailPageData> existing = inFlight.putIfAbsent(url, future);
+        if (existing != null) {
+            return existing;
+        }
+        future.whenComplete((data, error) -> inFlight.remove(url, future));
+        frontier.put(new FetchTask(url, platform, future));
+        return future;
+    }
+
+    private void workerLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            FetchTask task;
+            try {
+                task = frontier.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            String host = HostPolitenessLimiter.hostOf(task.url());
+            try {
+                politeness.acquire(host);
+                try {
+                    task.result().complete(fetch(task.url(), task.platform()));
+                } finally {
+                    politeness.release(host);
+                }
+            } catch (InterruptedException e) {
+                task.result().completeExceptionally(e);
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                task.result().completeExceptionally(e);
+            }
+        }
+    }
+
+    private DetailPageData fetch(String url, String platform) throws Exception {
+        Connection.Response response = Jsoup.connect(url)
+                .userAgent(USER_AGENT)
+                .header("Accept-Language", "en-US,en;q=0.9")
+                .timeout(TIMEOUT_MS)
+                .followRedirects(true)
+                .execute();
+        String html = response.body();
+
+        DetailPageData data = new DetailPageData();
+        data.structured = structuredDataExtractor.extract(html);
+
+        Document document = Jsoup.parse(html, url);
+        if ("Flipkart".equalsIgnoreCase(platform)) {
+            data.seller = selectText(document, ScraperSelectors.FLIPKART_DETAIL_SELLER);
+            data.deliveryTime = selectText(document, ScraperSelectors.FLIPKART_DETAIL_DELIVERY);
+            data.returnPolicy = selectText(document, ScraperSelectors.FLIPKART_DETAIL_RETURNS);
+            data.warranty = selectText(document, ScraperSelectors.FLIPKART_DETAIL_WARRANTY);
+        } else if ("Amazon".equalsIgnoreCase(platform)) {
+            data.seller = selectText(document, ScraperSelectors.AMAZON_DETAIL_SELLER);
+            data.deliveryTime = selectText(document, ScraperSelectors.AMAZON_DETAIL_DELIVERY);
+            data.returnPolicy = selectText(document, ScraperSelectors.AMAZON_DETAIL_RETURNS);
+            data.warranty = selectText(document, ScraperSelectors.AMAZON_DETAIL_WARRANTY);
+        }
+        return data;
+    }
+
+    private String selectText(Document document, SelectorPlan plan) {
+        return plan.evaluate(selector -> {
+            Element element = document.selectFirst(selector);
+            String text = element != null ? element.text().trim() : "";
+            return text.isEmpty() ? null : text;
+        });
+    }
+
+    /**
+     * Detail page values replace search-stage placeholders
+     */
+    private void apply(DetailPageData data, ProductDetail detail) {
+        if (data.structured != null) {
+            if (detail.getPrice() == null || detail.getPrice() <= 0) {
+                detail.setPrice(data.structured.getPrice());
+            }
+            if (data.structured.getRating() != null && (detail.getRating() == null || detail.getRating() <= 0)) {
+                detail.setRating(data.structured.getRating());
+            }
+            if (data.structured.getReviewCount() != null) detail.setReviewCount(data.structured.getReviewCount());
+            if (data.structured.getAvailability() != null) detail.setAvailability(data.structured.getAvailability());
+            if (data.structured.getSeller() != null) detail.setSeller(data.structured.getSeller());
+        }
+        if (data.seller != null) detail.setSeller(data.seller);
+        if (data.deliveryTime != null) detail.setDeliveryTime(data.deliveryTime);
+        if (data.returnPolicy != null) detail.setReturnPolicy(data.returnPolicy);
+        if (data.warranty != null) detail.setWarranty(data.warranty);
+    }
+
+    /**
+     * Only product pages are worth a second fetch - search URLs are skipped
+     */
+    static boolean isDetailUrl(String platform, String url) {
+        String lower = url.toLowerCase(Locale.ROOT);
+        return switch (platform.toLowerCase(Locale.ROOT)) {
+            case "flipkart" -> lower.contains("flipkart.com/") && lower.contains("/p/");
+            case "amazon" -> lower.contains("/dp/") || lower.contains("/gp/product/");
+            default -> false;
+        };
+    }
+
+    /**
+     * Drop query string and fragment so tracking parameters don't defeat dedupe.
+     * Flipkart keeps its pid parameter, which selects the product variant.
+     */
+    static String normalizeUrl(String url) {
+        int fragment = url.indexOf('#');
+        String base = fragment >= 0 ? url.substring(0, fragment) : url;
+        int query = base.indexOf('?');
+        if (query < 0) {
+            return base;
+        }
+
+        String path = base.substring(0, query);
+        for (String param : base.substring(query + 1).split("&")) {
+            if (param.startsWith("pid=")) {
+                return path + "?" + param;
+            }
+        }
+        return path;
+    }
+}
@@ -0,0 +1,40 @@
+package com.ecommerce.analyzer.service;
+
+import com.ecommerce.analyzer.model.PriceAlert;
+import com.ecommerce.analyzer.service.PriceEventBus.PriceChanged;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * File Alert Notifier
+ * Appends fired alerts to a tab-separated file, one line per alert
+ */
+public class FileAlertNotifier implements AlertNotifier {
+
+    private final Path file;
+
+    public FileAlertNotifier(Path file) {
+        this.file = file;
+    }
+
+    @Override
+    public synchronized void notify(PriceAlert alert, PriceChanged change) {
+        String line = String.join("\t",
+                change.at().toString(),
+                String.valueOf(alert.getId()),
+                String.valueOf(alert.getProductId()),
+                change.platform(),
+                String.format("%.2f", change.price()),
+                alert.describe()) + System.lineSeparator();
+        try {
+            Files.writeString(file, line, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            System.err.println("[PriceAlert] ⚠ Could not write " + file + ": " + e.getMessage());
+        }
+    }
+}
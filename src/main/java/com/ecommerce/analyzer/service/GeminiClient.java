@@ -0,0 +1,570 @@
+package com.ecommerce.analyzer.service;
+
+import com.ecommerce.analyzer.util.ConfigManager;
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import okhttp3.*;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.SocketTimeoutException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Gemini Client
+ * One process-wide HTTP client for the Gemini API, shared by the scraper and
+ * the analyzer. Owns the only connection pool and dispatcher to the API host,
+ * prefers HTTP/2 so concurrent calls multiplex over one connection, and
+ * records per-call latency, size and protocol. Every call passes through the
+ * quota limiter and is retried with backoff on throttling or transient errors.
+ */
+public class GeminiClient {
+
+    private static final String DEFAULT_MODEL_URL = "https://generativelanguage.googleapis.com/v1beta/models/gemini-1.5-flash";
+    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+    private static final Set<Integer> RETRYABLE_STATUS = Set.of(429, 500, 502, 503, 504);
+    private static final Pattern RETRY_DELAY = Pattern.compile("\"retryDelay\"\\s*:\\s*\"(\\d+(?:\\.\\d+)?)s\"");
+    private static final long DEFAULT_OUTPUT_TOKENS = 1024;
+
+    private static GeminiClient instance;
+
+    /**
+     * Non-2xx answer from the API; the body usually explains why
+     */
+    public static class GeminiApiException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        private final int statusCode;
+        private final long retryAfterMs;
+
+        public GeminiApiException(int statusCode, String body, long retryAfterMs) {
+            super("Gemini API HTTP " + statusCode + ": " + body);
+            this.statusCode = statusCode;
+            this.retryAfterMs = retryAfterMs;
+        }
+
+        public int getStatusCode() { return statusCode; }
+
+        /** Server-requested delay in ms, or -1 if none was given */
+        public long getRetryAfterMs() { return retryAfterMs; }
+    }
+
+    /**
+     * 2xx answer that carried no usable generated text
+     */
+    public static class GeminiResponseException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        public GeminiResponseException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    private final OkHttpClient httpClient;
+    private final String modelUrl;
+    private final String apiKey;
+    private final GeminiRateLimiter rateLimiter;
+    private final int maxAttempts;
+
+    // Call metrics
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong totalLatencyMs = new AtomicLong();
+    private final AtomicLong newConnections = new AtomicLong();
+    private final AtomicLong http2Calls = new AtomicLong();
+
+    private GeminiClient() {
+        int timeoutSeconds = ConfigManager.getIntProperty("gemini.http.timeout.seconds", 30);
+
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(ConfigManager.getIntProperty("gemini.http.max.requests", 16));
+        dispatcher.setMaxRequestsPerHost(ConfigManager.getIntProperty("gemini.http.max.requests.per.host", 8));
+
+        ConnectionPool connectionPool = new ConnectionPool(
+                ConfigManager.getIntProperty("gemini.http.pool.max.idle", 4),
+                ConfigManager.getIntProperty("gemini.http.pool.keep.alive.seconds", 300),
+                TimeUnit.SECONDS);
+
+        this.httpClient = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(connectionPool)
+                .protocols(List.of(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .connectTimeout(timeoutSeconds, TimeUnit.SECONDS)
+                .readTimeout(timeoutSeconds, TimeUnit.SECONDS)
+                .writeTimeout(timeoutSeconds, TimeUnit.SECONDS)
+                .eventListener(new EventListener() {
+                    @Override
+                    public void connectStart(Call call, InetSocketAddress address, Proxy proxy) {
+                        newConnections.incrementAndGet();
+                    }
+                })
+                .build();
+
+        this.modelUrl = ConfigManager.getGeminiApiUrl(DEFAULT_MODEL_URL);
+        this.apiKey = ConfigManager.getGeminiApiKey();
+        this.rateLimiter = GeminiRateLimiter.fromConfig();
+        this.maxAttempts = Math.max(1, ConfigManager.getIntProperty("gemini.retry.max.attempts", 4));
+    }
+
+    public static synchronized GeminiClient getInstance() {
+        if (instance == null) {
+            instance = new GeminiClient();
+        }
+        return instance;
+    }
+
+    /**
+     * Check if a usable API key is configured
+     */
+    public boolean isConfigured() {
+        return apiKey != null && !apiKey.isEmpty() && !apiKey.contains("YOUR");
+    }
+
+    /**
+     * An open streamGenerateContent response and the quota permit it was sent
+     * under. The usage totals only arrive with the last event, so the reader
+     * reports them back through recordUsage.
+     */
+    public record SseStream(Response response, GeminiRateLimiter.Permit permit) implements AutoCloseable {
+        public void recordUsage(long totalTokens) {
+            permit.recordUsage(totalTokens);
+        }
+
+        @Override
+        public void close() {
+            response.close();
+        }
+    }
+
+    /**
+     * Parses the generated (candidate) text of a response
+     */
+    @FunctionalInterface
+    public interface TextParser<T> {
+        T parse(String text) throws IOException;
+    }
+
+    /**
+     * Blocking generateContent call
+     * @return the generated text
+     */
+    public String generateContent(JsonObject requestBody) throws IOException {
+        return generateContent(requestBody, text -> text);
+    }
+
+    /**
+     * Blocking generateContent call. Waits for quota, and retries throttling,
+     * server errors and network failures with backoff. The response envelope
+     * is streamed from the socket; only the generated text is materialized.
+     * @return the parser's result for the generated text
+     */
+    public <T> T generateContent(JsonObject requestBody, TextParser<T> parser) throws IOException {
+        Request request = buildRequest(modelUrl + ":generateContent?key=" + apiKey, requestBody);
+        long estimatedTokens = estimateTokens(requestBody);
+        long estimatedPromptTokens = estimatePromptTokens(requestBody);
+        long backoffMs = 0;
+
+        for (int attempt = 1; ; attempt++) {
+            GeminiRateLimiter.Permit permit = acquirePermit(estimatedTokens);
+            long startNanos = System.nanoTime();
+            try (Response response = httpClient.newCall(request).execute()) {
+                return readCandidate(response, startNanos, permit, estimatedPromptTokens, parser);
+            } catch (IOException e) {
+                recordFailure(startNanos, e);
+                if (attempt >= maxAttempts || !isRetryable(e)) {
+                    throw e;
+                }
+                backoffMs = retryDelayMs(e, backoffMs, attempt);
+                sleepMs(backoffMs);
+            }
+        }
+    }
+
+    /**
+     * Asynchronous generateContent call on the shared dispatcher, with the same
+     * quota and retry handling as the blocking call
+     * @return future completed with the parser's result, or exceptionally on failure
+     */
+    public <T> CompletableFuture<T> generateContentAsync(JsonObject requestBody, TextParser<T> parser) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Request request = buildRequest(modelUrl + ":generateContent?key=" + apiKey, requestBody);
+        attemptAsync(request, estimateTokens(requestBody), estimatePromptTokens(requestBody), parser, 1, 0, result);
+        return result;
+    }
+
+    private <T> void attemptAsync(Request request, long estimatedTokens, long estimatedPromptTokens, TextParser<T> parser,
+                                  int attempt, long previousBackoffMs, CompletableFuture<T> result) {
+        rateLimiter.acquireAsync(estimatedTokens).whenComplete((permit, admissionError) -> {
+            if (admissionError != null) {
+                result.completeExceptionally(admissionError);
+                return;
+            }
+            if (result.isDone()) {
+                return; // Cancelled by the caller while waiting for quota
+            }
+
+            long startNanos = System.nanoTime();
+            httpClient.newCall(request).enqueue(new Callback() {
+                @Override
+                public void onResponse(Call call, Response response) {
+                    try (response) {
+                        result.complete(readCandidate(response, startNanos, permit, estimatedPromptTokens, parser));
+                    } catch (IOException e) {
+                        retryOrFail(e, startNanos);
+                    }
+                }
+
+                @Override
+                public void onFailure(Call call, IOException e) {
+                    retryOrFail(e, startNanos);
+                }
+
+                private void retryOrFail(IOException e, long startNanos) {
+                    recordFailure(startNanos, e);
+                    if (attempt >= maxAttempts || !isRetryable(e) || result.isDone()) {
+                        result.completeExceptionally(e);
+                        return;
+                    }
+                    long delayMs = retryDelayMs(e, previousBackoffMs, attempt);
+                    CompletableFuture.delayedExecutor(delayMs, TimeUnit.MILLISECONDS).execute(
+                            () -> attemptAsync(request, estimatedTokens, estimatedPromptTokens, parser,
+                                    attempt + 1, delayMs, result));
+                }
+            });
+        });
+    }
+
+    /**
+     * Open a server-sent-events stream. The caller reads and must close the
+     * stream, and reports the final usageMetadata total through recordUsage.
+     * Only opening the stream is retried; a stream that breaks midway is not.
+     */
+    public SseStream openStream(JsonObject requestBody) throws IOException {
+        Request request = buildRequest(modelUrl + ":streamGenerateContent?alt=sse&key=" + apiKey, requestBody)
+                .newBuilder()
+                .addHeader("Accept", "text/event-stream")
+                .build();
+        long estimatedTokens = estimateTokens(requestBody);
+        long backoffMs = 0;
+
+        for (int attempt = 1; ; attempt++) {
+            GeminiRateLimiter.Permit permit = acquirePermit(estimatedTokens);
+            long startNanos = System.nanoTime();
+            try {
+                Response response = httpClient.newCall(request).execute();
+                if (!response.isSuccessful()) {
+                    String errorBody = response.body() != null ? response.body().string() : "";
+                    response.close();
+                    throw new GeminiApiException(response.code(), errorBody, parseRetryAfterMs(response, errorBody));
+                }
+                recordCall("streamGenerateContent", response, startNanos, -1);
+                return new SseStream(response, permit);
+            } catch (IOException e) {
+                recordFailure(startNanos, e);
+                if (attempt >= maxAttempts || !isRetryable(e)) {
+                    throw e;
+                }
+                backoffMs = retryDelayMs(e, backoffMs, attempt);
+                sleepMs(backoffMs);
+            }
+        }
+    }
+
+    private GeminiRateLimiter.Permit acquirePermit(long estimatedTokens) throws IOException {
+        try {
+            return rateLimiter.acquire(estimatedTokens);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for Gemini quota");
+        }
+    }
+
+    private void sleepMs(long delayMs) throws IOException {
+        try {
+            Thread.sleep(delayMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted during Gemini retry backoff");
+        }
+    }
+
+    /**
+     * Throttling, transient server errors and network failures are worth retrying
+     */
+    private boolean isRetryable(IOException error) {
+        if (error instanceof GeminiApiException apiError) {
+            return RETRYABLE_STATUS.contains(apiError.getStatusCode());
+        }
+        if (error instanceof GeminiResponseException) {
+            return false; // Same request would likely get the same unusable answer
+        }
+        // Timeouts are retryable; a thread interrupt is not
+        return !(error instanceof InterruptedIOException) || error instanceof SocketTimeoutException;
+    }
+
+    /**
+     * Jittered backoff, never shorter than the server's Retry-After.
+     * A 429 also pauses every other caller through the limiter.
+     */
+    private long retryDelayMs(IOException error, long previousBackoffMs, int attempt) {
+        long delayMs = rateLimiter.nextBackoffMs(previousBackoffMs);
+        if (error instanceof GeminiApiException apiError) {
+            delayMs = Math.max(delayMs, apiError.getRetryAfterMs());
+            if (apiError.getStatusCode() == 429) {
+                rateLimiter.pauseFor(delayMs);
+            }
+        }
+        System.out.println("[GeminiClient] ↻ Retry " + attempt + "/" + (maxAttempts - 1) + " in " + delayMs + " ms");
+        return delayMs;
+    }
+
+    /**
+     * Prompt characters / 4 plus the requested output budget
+     */
+    private long estimateTokens(JsonObject requestBody) {
+        long outputTokens = DEFAULT_OUTPUT_TOKENS;
+        if (requestBody.has("generationConfig")
+                && requestBody.getAsJsonObject("generationConfig").has("maxOutputTokens")) {
+            outputTokens = requestBody.getAsJsonObject("generationConfig").get("maxOutputTokens").getAsLong();
+        }
+        return requestBody.toString().length() / 4 + outputTokens;
+    }
+
+    /**
+     * Input-only estimate (system instruction + contents), for comparing with usageMetadata
+     */
+    static long estimatePromptTokens(JsonObject requestBody) {
+        long chars = 0;
+        if (requestBody.has("systemInstruction")) {
+            chars += requestBody.get("systemInstruction").toString().length();
+        }
+        if (requestBody.has("contents")) {
+            chars += requestBody.get("contents").toString().length();
+        }
+        return chars / 4;
+    }
+
+    /**
+     * One line per call comparing the prompt estimate with the billed token counts
+     */
+    static void logTokenUsage(long estimatedPromptTokens, long promptTokens, long outputTokens, long totalTokens) {
+        if (totalTokens < 0) {
+            return; // No usageMetadata in the response
+        }
+        System.out.printf("[GeminiClient] 🧮 Tokens: prompt %d (estimated %d), output %d, total %d%n",
+                promptTokens, estimatedPromptTokens, outputTokens, totalTokens);
+    }
+
+    /**
+     * Retry-After header (seconds), else the RetryInfo delay in the error body, else -1
+     */
+    private static long parseRetryAfterMs(Response response, String body) {
+        String header = response.header("Retry-After");
+        if (header != null) {
+            try {
+                return Long.parseLong(header.trim()) * 1000;
+            } catch (NumberFormatException e) {
+                // HTTP-date form - fall through to the body
+            }
+        }
+        Matcher matcher = RETRY_DELAY.matcher(body);
+        return matcher.find() ? (long) (Double.parseDouble(matcher.group(1)) * 1000) : -1;
+    }
+
+    private Request buildRequest(String url, JsonObject requestBody) {
+        return new Request.Builder()
+                .url(url)
+                .post(RequestBody.create(requestBody.toString(), JSON))
+                .build();
+    }
+
+    /**
+     * Stream the response envelope and hand the candidate text to the parser
+     */
+    private <T> T readCandidate(Response response, long startNanos, GeminiRateLimiter.Permit permit,
+                                long estimatedPromptTokens, TextParser<T> parser) throws IOException {
+        if (!response.isSuccessful()) {
+            String body = response.body() != null ? response.body().string() : "";
+            throw new GeminiApiException(response.code(), body, parseRetryAfterMs(response, body));
+        }
+
+        Envelope envelope;
+        try (JsonReader reader = new JsonReader(response.body().charStream())) {
+            envelope = readEnvelope(reader);
+        } catch (IOException | RuntimeException e) {
+            throw new GeminiResponseException("Malformed Gemini response: " + e.getMessage(), e);
+        }
+        recordCall("generateContent", response, startNanos, envelope.text != null ? envelope.text.length() : 0);
+        permit.recordUsage(envelope.totalTokens);
+        logTokenUsage(estimatedPromptTokens, envelope.promptTokens, envelope.outputTokens, envelope.totalTokens);
+
+        if (envelope.errorMessage != null) {
+            throw new GeminiResponseException("Gemini API error: " + envelope.errorMessage, null);
+        }
+        if (envelope.text == null) {
+            throw new GeminiResponseException("Gemini returned no text (finish reason: " + envelope.finishReason + ")", null);
+        }
+        try {
+            return parser.parse(envelope.text);
+        } catch (IOException | RuntimeException e) {
+            throw new GeminiResponseException("Unparseable Gemini output: " + e.getMessage(), e);
+        }
+    }
+
+    /** The parts of a generateContent response we use */
+    private static class Envelope {
+        String text;
+        String finishReason;
+        String errorMessage;
+        long promptTokens = -1;
+        long outputTokens = -1;
+        long totalTokens = -1;
+    }
+
+    /**
+     * Walk the response JSON once: first candidate's text parts, usage and error
+     */
+    private static Envelope readEnvelope(JsonReader reader) throws IOException {
+        Envelope envelope = new Envelope();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "candidates" -> {
+                    reader.beginArray();
+                    if (reader.hasNext()) {
+                        readFirstCandidate(reader, envelope);
+                    }
+                    while (reader.hasNext()) {
+                        reader.skipValue(); // Only the first candidate is used
+                    }
+                    reader.endArray();
+                }
+                case "usageMetadata" -> {
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        switch (reader.nextName()) {
+                            case "promptTokenCount" -> envelope.promptTokens = reader.nextLong();
+                            case "candidatesTokenCount" -> envelope.outputTokens = reader.nextLong();
+                            case "totalTokenCount" -> envelope.totalTokens = reader.nextLong();
+                            default -> reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                }
+                case "error" -> {
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        if ("message".equals(reader.nextName())) {
+                            envelope.errorMessage = reader.nextString();
+                        } else {
+                            reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                }
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return envelope;
+    }
+
+    private static void readFirstCandidate(JsonReader reader, Envelope envelope) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "content" -> {
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        if ("parts".equals(reader.nextName())) {
+                            envelope.text = readTextParts(reader);
+                        } else {
+                            reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                }
+                case "finishReason" -> envelope.finishReason = reader.nextString();
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    private static String readTextParts(JsonReader reader) throws IOException {
+        String first = null;
+        StringBuilder joined = null;
+        reader.beginArray();
+        while (reader.hasNext()) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if ("text".equals(reader.nextName())) {
+                    String text = reader.nextString();
+                    if (first == null) {
+                        first = text;
+                    } else {
+                        // Rare multi-part answer - only then pay for a join
+                        if (joined == null) joined = new StringBuilder(first);
+                        joined.append(text);
+                    }
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+        reader.endArray();
+        return joined != null ? joined.toString() : first;
+    }
+
+    private void recordCall(String method, Response response, long startNanos, long chars) {
+        long latencyMs = (System.nanoTime() - startNanos) / 1_000_000;
+        calls.incrementAndGet();
+        totalLatencyMs.addAndGet(latencyMs);
+        if (response.protocol() == Protocol.HTTP_2) {
+            http2Calls.incrementAndGet();
+        }
+
+        String size = chars >= 0 ? String.format(", %.1f KB", chars / 1024.0) : "";
+        System.out.printf("[GeminiClient] %s %d %s in %d ms%s (pool: %d idle / %d open, %d in flight)%n",
+                method, response.code(), response.protocol(), latencyMs, size,
+                httpClient.connectionPool().idleConnectionCount(),
+                httpClient.connectionPool().connectionCount(),
+                httpClient.dispatcher().runningCallsCount());
+    }
+
+    private void recordFailure(long startNanos, IOException error) {
+        calls.incrementAndGet();
+        failures.incrementAndGet();
+        totalLatencyMs.addAndGet((System.nanoTime() - startNanos) / 1_000_000);
+        System.err.println("[GeminiClient] ⚠️  Call failed: " + error.getMessage());
+    }
+
+    /**
+     * One-line summary of all calls made through the client
+     */
+    public String getMetricsSummary() {
+        long total = calls.get();
+        return String.format("%d calls, %d failed, avg %d ms, %d over HTTP/2, %d new connections",
+                total, failures.get(), total > 0 ? totalLatencyMs.get() / total : 0,
+                http2Calls.get(), newConnections.get());
+    }
+
+    /**
+     * Release pooled connections and dispatcher threads
+     */
+    public void shutdown() {
+        System.out.println("[GeminiClient] " + getMetricsSummary());
+        rateLimiter.shutdown();
+        httpClient.dispatcher().executorService().shutdown();
+        httpClient.connectionPool().evictAll();
+    }
+}
@@ -4,14 +4,24 @@ import com.ecommerce.analyzer.model.ProductDetail;
 import com.ecommerce.analyzer.util.ConfigManager;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
-import okhttp3.*;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
 
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.StringReader;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Enhanced Google Gemini AI scraper for multi-platform product comparison
@@ -25,15 +35,23 @@ import java.util.concurrent.TimeUnit;
  * - Smart error handling
  */
 public class GeminiProductScraperService {
-    private static final String GEMINI_API_URL = "https://generativelanguage.googleapis.com/v1beta/models/gemini-1.5-flash:generateContent";
-    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
-
-    // Enhanced timeout configuration
-    private static final int API_TIMEOUT_SECONDS = 30;
     private static final int MAX_RETRIES = 2;
-    private final OkHttpClient client;
-    private final String apiKey;
+    private static final int MAX_OUTPUT_TOKENS = 2048;
+    private static final int MAX_BATCH_OUTPUT_TOKENS = 8192;
+    private static final int MAX_COMBINED_OUTPUT_TOKENS = 3072;
+    private static final Pattern NUMBER = Pattern.compile("(\\d[\\d,]*(?:\\.\\d+)?)");
+    private final GeminiClient gemini;
     private final Random random = new Random();
+    private final ProductCategoryClassifier classifier = ProductCategoryClassifier.getInstance();
+    private final int batchSize;
+
+    /** One product in a batch scrape */
+    public record ScrapeRequest(String productName, Long productId) {
+    }
+
+    /** Platform data for one product, plus the recommendation when it was asked for */
+    public record ScrapeResult(List<ProductDetail> details, String recommendation) {
+    }
 
     // All supported platforms
     private static final String[] ALL_PLATFORMS = {
@@ -42,15 +60,10 @@ public class GeminiProductScraperService {
     };
 
     public GeminiProductScraperService() {
-        // Enhanced OkHttpClient with proper timeout configuration
-        this.client = new OkHttpClient.Builder()
-                .connectTimeout(API_TIMEOUT_SECONDS, TimeUnit.SECONDS)
-                .readTimeout(API_TIMEOUT_SECONDS, TimeUnit.SECONDS)
-                .writeTimeout(API_TIMEOUT_SECONDS, TimeUnit.SECONDS)
-                .build();
-
-        this.apiKey = ConfigManager.getGeminiApiKey();
-        if (apiKey == null || apiKey.contains("YOUR") || apiKey.isEmpty()) {
+        // Shared client: one connection pool and dispatcher for every service instance
+        this.gemini = GeminiClient.getInstance();
+        this.batchSize = Math.max(1, ConfigManager.getIntProperty("gemini.batch.size", 5));
+        if (!gemini.isConfigured()) {
             System.out.println("[Gemini] ⚠️  API key not configured - will use enhanced mock data");
             System.out.println("[Gemini] Get your free API key at: https://ai.google.dev");
         } else {
@@ -63,6 +76,19 @@ public class GeminiProductScraperService {
      * Enhanced with retry logic and better error handling
      */
     public List<ProductDetail> scrapeAllPlatforms(String productName, Long productId) {
+        return scrapeSingle(productName, productId, false).details();
+    }
+
+    /**
+     * Platform data and a buying recommendation in one structured response,
+     * so a first-time lookup needs one round trip instead of two.
+     * The recommendation is null when the data came from the mock fallback.
+     */
+    public ScrapeResult scrapeWithRecommendation(String productName, Long productId) {
+        return scrapeSingle(productName, productId, true);
+    }
+
+    private ScrapeResult scrapeSingle(String productName, Long productId, boolean withRecommendation) {
         System.out.println("\n╔══════════════════════════════════════════════════════╗");
         System.out.println("║    MULTI-PLATFORM PRODUCT DATA RETRIEVAL (AI)        ║");
         System.out.println("╚══════════════════════════════════════════════════════╝");
@@ -74,29 +100,33 @@ public class GeminiProductScraperService {
         System.out.println("[Gemini Scraper] 📊 Relevant Platforms: " + String.join(", ", relevantPlatforms));
 
         // Try Gemini API with retry logic
-        if (apiKey != null && !apiKey.contains("YOUR") && !apiKey.isEmpty()) {
+        if (gemini.isConfigured()) {
+            long startNanos = System.nanoTime();
             for (int attempt = 1; attempt <= MAX_RETRIES; attempt++) {
                 try {
                     System.out.println("\n[Gemini Scraper] 🤖 Attempt " + attempt + "/" + MAX_RETRIES + " - Calling Gemini API...");
 
-                    String prompt = buildEnhancedPrompt(productName, relevantPlatforms);
-                    String geminiResponse = callGeminiAPI(prompt);
-
-                    if (geminiResponse != null && !geminiResponse.isEmpty()) {
-                        List<ProductDetail> parsed = parseGeminiResponse(geminiResponse, productName, productId);
-                        if (parsed != null && !parsed.isEmpty()) {
-                            System.out.println("\n[Gemini Scraper] ✓ SUCCESS! Retrieved " + parsed.size() + " platforms");
-                            printPlatformSummary(parsed);
-                            return parsed;
-                        }
+                    PromptBuilder prompt = buildEnhancedPrompt(productName, relevantPlatforms, withRecommendation);
+                    ScrapeResult parsed = callGeminiAPI(prompt,
+                            withRecommendation ? MAX_COMBINED_OUTPUT_TOKENS : MAX_OUTPUT_TOKENS,
+                            withRecommendation ? COMBINED_SCHEMA : PLATFORMS_SCHEMA,
+                            text -> parseGeminiResponse(text, productName, productId));
+
+                    if (parsed != null) {
+                        System.out.println("\n[Gemini Scraper] ✓ SUCCESS! Retrieved " + parsed.details().size() + " platforms in "
+                                + (System.nanoTime() - startNanos) / 1_000_000 + " ms (attempt " + attempt + ")"
+                                + (parsed.recommendation() != null ? " with recommendation" : ""));
+                        printPlatformSummary(parsed.details());
+                        return parsed;
                     }
 
+                    // Throttling and transport errors are retried inside GeminiClient;
+                    // this loop only re-asks when the answer itself was unusable
                     if (attempt < MAX_RETRIES) {
-                        System.out.println("[Gemini Scraper] ⚠️  Attempt failed, retrying in 2 seconds...");
-                        Thread.sleep(2000);
+                        System.out.println("[Gemini Scraper] ⚠️  Response unusable, asking again...");
                     }
 
-                } catch (InterruptedException e) {
+                } catch (InterruptedIOException e) {
                     Thread.currentThread().interrupt();
                     break;
                 } catch (Exception e) {
@@ -111,7 +141,152 @@ public class GeminiProductScraperService {
         List<ProductDetail> mockData = generateEnhancedMockData(productName, productId, relevantPlatforms);
         System.out.println("[Gemini Scraper] ✓ Generated " + mockData.size() + " platform entries");
         printPlatformSummary(mockData);
-        return mockData;
+        return new ScrapeResult(mockData, null);
+    }
+
+    /**
+     * Gets product data for ALL supported platforms for several products.
+     * Products are packed into shared prompts of gemini.batch.size; each
+     * product's answer is validated on its own and only the products that
+     * failed are sent again. Products still missing fall back to mock data.
+     * @return platform details per request, in request order
+     */
+    public Map<ScrapeRequest, List<ProductDetail>> scrapeAllPlatforms(List<ScrapeRequest> requests) {
+        Map<ScrapeRequest, List<ProductDetail>> results = new LinkedHashMap<>();
+        System.out.println("\n[Gemini Scraper] 📚 Batch request for " + requests.size() + " products (batch size " + batchSize + ")");
+
+        if (gemini.isConfigured()) {
+            // Batches run concurrently on the shared client's dispatcher
+            List<CompletableFuture<Map<ScrapeRequest, List<ProductDetail>>>> inFlight = new ArrayList<>();
+            for (int start = 0; start < requests.size(); start += batchSize) {
+                List<ScrapeRequest> batch = requests.subList(start, Math.min(start + batchSize, requests.size()));
+                inFlight.add(scrapeBatchAsync(new ArrayList<>(batch), 1));
+            }
+            for (CompletableFuture<Map<ScrapeRequest, List<ProductDetail>>> batch : inFlight) {
+                try {
+                    results.putAll(batch.join());
+                } catch (CompletionException e) {
+                    System.err.println("[Gemini Scraper] ⚠️  Batch failed: " + e.getCause().getMessage());
+                }
+            }
+        }
+
+        int fallbacks = 0;
+        for (ScrapeRequest request : requests) {
+            if (!results.containsKey(request)) {
+                String[] relevantPlatforms = getRelevantPlatforms(request.productName());
+                results.put(request, generateEnhancedMockData(request.productName(), request.productId(), relevantPlatforms));
+                fallbacks++;
+            }
+        }
+
+        System.out.println("[Gemini Scraper] ✓ Batch complete: " + (requests.size() - fallbacks)
+                + " from API, " + fallbacks + " from mock data");
+        return results;
+    }
+
+    /**
+     * Run one batch, re-sending only the products whose answer was missing or invalid
+     */
+    private CompletableFuture<Map<ScrapeRequest, List<ProductDetail>>> scrapeBatchAsync(List<ScrapeRequest> pending, int attempt) {
+        Map<String, ScrapeRequest> keyed = new LinkedHashMap<>();
+        for (int i = 0; i < pending.size(); i++) {
+            keyed.put("p" + (i + 1), pending.get(i));
+        }
+
+        System.out.println("[Gemini Scraper] 🤖 Batch attempt " + attempt + "/" + MAX_RETRIES
+                + " - " + keyed.size() + " products in one call...");
+        int outputBudget = Math.min(MAX_BATCH_OUTPUT_TOKENS, MAX_OUTPUT_TOKENS * keyed.size());
+
+        return callGeminiAPIAsync(buildBatchPrompt(keyed), outputBudget, buildBatchSchema(keyed.keySet()),
+                        text -> parseBatchResponse(text, keyed))
+                .exceptionally(error -> {
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                    System.err.println("[Gemini Scraper] ⚠️  Batch error on attempt " + attempt + ": " + cause.getMessage());
+                    return new LinkedHashMap<>();
+                })
+                .thenCompose(results -> {
+                    List<ScrapeRequest> failed = new ArrayList<>(pending);
+                    failed.removeIf(results::containsKey);
+                    if (failed.isEmpty() || attempt >= MAX_RETRIES) {
+                        return CompletableFuture.completedFuture(results);
+                    }
+
+                    // No fixed sleep: the client's rate limiter paces the re-ask
+                    System.out.println("[Gemini Scraper] ⚠️  " + failed.size() + " products failed, asking again for them...");
+                    return scrapeBatchAsync(failed, attempt + 1)
+                            .thenApply(retried -> {
+                                results.putAll(retried);
+                                return results;
+                            });
+                });
+    }
+
+    /**
+     * Split a keyed batch answer into per-product results.
+     * Products with a missing or empty entry are left out so they can be retried.
+     */
+    private Map<ScrapeRequest, List<ProductDetail>> parseBatchResponse(String text, Map<String, ScrapeRequest> keyed) throws IOException {
+        Map<ScrapeRequest, List<ProductDetail>> results = new LinkedHashMap<>();
+        JsonReader reader = openJson(text);
+        if (reader == null) {
+            System.err.println("[Gemini Scraper] ⚠️  Batch response doesn't look like JSON");
+            return results;
+        }
+
+        boolean sawProducts = false;
+        try {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (!"products".equals(reader.nextName()) || reader.peek() != JsonToken.BEGIN_OBJECT) {
+                    reader.skipValue();
+                    continue;
+                }
+                sawProducts = true;
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    ScrapeRequest request = keyed.get(reader.nextName());
+                    if (request == null || reader.peek() != JsonToken.BEGIN_OBJECT) {
+                        reader.skipValue(); // Key we didn't ask for
+                        continue;
+                    }
+                    List<ProductDetail> details = new ArrayList<>();
+                    // Registered before reading so a truncated entry keeps its complete platforms
+                    results.put(request, details);
+                    readProductEntry(reader, request, details);
+                }
+                reader.endObject();
+            }
+        } catch (EOFException | MalformedJsonException e) {
+            if (!sawProducts) {
+                throw e;
+            }
+            System.out.println("[Gemini Scraper] 🩹 Batch response truncated - keeping complete entries");
+        }
+        results.values().removeIf(List::isEmpty);
+
+        if (!sawProducts) {
+            System.err.println("[Gemini Scraper] ⚠️  Batch JSON missing 'products' object");
+        }
+        for (Map.Entry<String, ScrapeRequest> entry : keyed.entrySet()) {
+            if (!results.containsKey(entry.getValue())) {
+                System.err.println("[Gemini Scraper] ⚠️  No valid entry for " + entry.getKey() + " (" + entry.getValue().productName() + ")");
+            }
+        }
+        System.out.println("[Gemini Scraper] ✓ Batch parsed: " + results.size() + "/" + keyed.size() + " products valid");
+        return results;
+    }
+
+    private void readProductEntry(JsonReader reader, ScrapeRequest request, List<ProductDetail> into) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if ("platforms".equals(reader.nextName())) {
+                readPlatforms(reader, request.productName(), request.productId(), into);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
     }
 
     /** Prints summary of platforms for console visibility */
@@ -134,267 +309,376 @@ public class GeminiProductScraperService {
     }
 
     /**
-     * Enhanced platform detection with more categories
+     * Platforms that sell this product's category
      */
     private String[] getRelevantPlatforms(String productName) {
-        String lower = productName.toLowerCase();
-
-        // Beauty/cosmetics products
-        if (lower.contains("lipstick") || lower.contains("makeup") ||
-                lower.contains("skincare") || lower.contains("cosmetic") ||
-                lower.contains("beauty") || lower.contains("nail polish")) {
-            return new String[]{"Amazon", "Flipkart", "Myntra", "Nykaa", "Tata CLiQ", "Meesho"};
-        }
-
-        // Baby products
-        if (lower.contains("baby") || lower.contains("diaper") ||
-                lower.contains("kids") || lower.contains("toy") ||
-                lower.contains("infant") || lower.contains("newborn")) {
-            return new String[]{"Amazon", "Flipkart", "FirstCry", "Meesho", "Shopify"};
-        }
-
-        // Fashion/clothing
-        if (lower.contains("shirt") || lower.contains("dress") ||
-                lower.contains("jeans") || lower.contains("shoe") ||
-                lower.contains("saree") || lower.contains("kurta") ||
-                lower.contains("t-shirt") || lower.contains("clothing")) {
-            return new String[]{"Amazon", "Flipkart", "Myntra", "Ajio", "Meesho", "Tata CLiQ"};
-        }
-
-        // Footwear specific
-        if (lower.contains("sneaker") || lower.contains("sandal") ||
-                lower.contains("boot") || lower.contains("footwear")) {
-            return new String[]{"Amazon", "Flipkart", "Myntra", "Ajio", "Meesho"};
-        }
-
-        // Electronics (most common)
-        return new String[]{"Amazon", "Flipkart", "Tata CLiQ", "Shopify", "Snapdeal", "Meesho"};
+        return classifier.classify(productName).platformArray();
     }
 
-    /**
-     * Enhanced prompt with better structure and examples
-     */
-    private String buildEnhancedPrompt(String productName, String[] platforms) {
-        return String.format("""
-            You are an expert Indian e-commerce pricing analyst with real-time market knowledge as of October 2025.
-            
-            TASK: Provide realistic product comparison data for: "%s"
-            
-            PLATFORMS TO ANALYZE: %s
-            
-            RESPONSE FORMAT (JSON ONLY, NO OTHER TEXT):
-            {
-              "platforms": [
-                {
-                  "platform": "Platform Name",
-                  "price": <realistic INR price>,
-                  "rating": <3.0 to 5.0>,
-                  "reviewCount": <realistic number>,
-                  "seller": "<official seller name>",
-                  "deliveryTime": "<X-Y days>",
-                  "returnPolicy": "<platform policy>",
-                  "warranty": "<warranty details>",
-                  "offers": "<current offer>",
-                  "availability": "<In Stock | Limited Stock | Out of Stock>"
-                }
-              ]
-            }
-            
+    // The response schema fixes the JSON shape; these only describe the values
+    private static final String FIELD_HINTS = """
+            FIELDS: price = realistic INR number; rating 3.0-5.0; reviewCount realistic;
+            seller = official seller name; deliveryTime "X-Y days"; returnPolicy = platform policy;
+            warranty = warranty details; offers = current offer; availability from the allowed values.
+            """;
+
+    private static final String PRICING_RULES = """
             CRITICAL PRICING RULES:
             1. Base prices on October 2025 Indian market rates
-            2. Prices must vary 5-15%% across platforms (realistic competition)
-            3. Meesho: 15-25%% cheaper (budget platform)
+            2. Prices must vary 5-15% across platforms (realistic competition)
+            3. Meesho: 15-25% cheaper (budget platform)
             4. Amazon/Flipkart: Market average
-            5. Tata CLiQ: 3-8%% premium (premium platform)
+            5. Tata CLiQ: 3-8% premium (premium platform)
             6. Diwali season (Oct 2025) = festival offers on all platforms
             
             REALISTIC CONSTRAINTS:
             - Ratings: Not all 4.5+, use realistic distribution
             - Reviews: Vary by platform popularity (Amazon highest)
-            - Availability: 75%% in stock, 20%% limited, 5%% out of stock
+            - Availability: 75% in stock, 20% limited, 5% out of stock
             - Include ONLY platforms that actually sell this product category
             
             EXAMPLE (for reference):
             iPhone 15 would be: Amazon ₹79,900, Flipkart ₹79,999, Meesho ₹67,500
-            
-            Respond ONLY with valid JSON. No explanations, no markdown, just JSON.
-            """,
-                productName,
-                String.join(", ", platforms)
-        );
+            """;
+
+    // Fixed prefix shared by the single and batch prompts, sent as systemInstruction
+    private static final String SCRAPER_INSTRUCTION =
+            "You are an expert Indian e-commerce pricing analyst with real-time market knowledge as of October 2025. " +
+            "Provide realistic product comparison data for the requested products and platforms only.\n\n" +
+            FIELD_HINTS + "\n" + PRICING_RULES;
+
+    // Response schemas (OpenAPI subset accepted by responseSchema)
+    private static final JsonObject PLATFORM_SCHEMA = buildPlatformSchema();
+    private static final JsonObject PLATFORMS_SCHEMA = objectSchema(Map.of("platforms", arraySchema(PLATFORM_SCHEMA)));
+    // Platforms first: the recommendation is written after the data it is based on
+    private static final JsonObject COMBINED_SCHEMA = buildCombinedSchema();
+
+    private static JsonObject buildPlatformSchema() {
+        Map<String, JsonObject> properties = new LinkedHashMap<>();
+        properties.put("platform", typeSchema("STRING"));
+        properties.put("price", typeSchema("NUMBER"));
+        properties.put("rating", typeSchema("NUMBER"));
+        properties.put("reviewCount", typeSchema("INTEGER"));
+        properties.put("seller", typeSchema("STRING"));
+        properties.put("deliveryTime", typeSchema("STRING"));
+        properties.put("returnPolicy", typeSchema("STRING"));
+        properties.put("warranty", typeSchema("STRING"));
+        properties.put("offers", typeSchema("STRING"));
+
+        JsonObject availability = typeSchema("STRING");
+        JsonArray values = new JsonArray();
+        values.add("In Stock");
+        values.add("Limited Stock");
+        values.add("Out of Stock");
+        availability.add("enum", values);
+        properties.put("availability", availability);
+        return objectSchema(properties);
+    }
+
+    private static JsonObject buildCombinedSchema() {
+        Map<String, JsonObject> properties = new LinkedHashMap<>();
+        properties.put("platforms", arraySchema(PLATFORM_SCHEMA));
+        properties.put("recommendation", typeSchema("STRING"));
+        return objectSchema(properties);
     }
 
     /**
-     * Enhanced API call with better error handling
+     * Batch schema lists each product key explicitly (the schema has no map type)
      */
-    private String callGeminiAPI(String prompt) throws IOException {
-        // Build request
-        JsonObject request = new JsonObject();
-        JsonArray contents = new JsonArray();
-        JsonObject content = new JsonObject();
-        JsonArray parts = new JsonArray();
-        JsonObject part = new JsonObject();
-
-        part.addProperty("text", prompt);
-        parts.add(part);
-        content.add("parts", parts);
-        contents.add(content);
-        request.add("contents", contents);
-
-        // Add generation config for better responses
-        JsonObject generationConfig = new JsonObject();
-        generationConfig.addProperty("temperature", 0.7);  // Balanced creativity
-        generationConfig.addProperty("topK", 40);
-        generationConfig.addProperty("topP", 0.95);
-        generationConfig.addProperty("maxOutputTokens", 2048);
-        request.add("generationConfig", generationConfig);
-
-        // Make API call
-        String url = GEMINI_API_URL + "?key=" + apiKey;
-        RequestBody body = RequestBody.create(request.toString(), JSON);
-        Request httpRequest = new Request.Builder()
-                .url(url)
-                .post(body)
-                .addHeader("Content-Type", "application/json")
-                .build();
-
-        try (Response response = client.newCall(httpRequest).execute()) {
-            if (!response.isSuccessful()) {
-                String errorBody = response.body() != null ? response.body().string() : "Unknown error";
-                System.err.println("[Gemini Scraper] ⚠️  API HTTP " + response.code() + ": " + errorBody);
-                return null;
-            }
+    private static JsonObject buildBatchSchema(Collection<String> keys) {
+        Map<String, JsonObject> products = new LinkedHashMap<>();
+        for (String key : keys) {
+            products.put(key, PLATFORMS_SCHEMA);
+        }
+        return objectSchema(Map.of("products", objectSchema(products)));
+    }
 
-            String responseBody = response.body().string();
+    private static JsonObject typeSchema(String type) {
+        JsonObject schema = new JsonObject();
+        schema.addProperty("type", type);
+        return schema;
+    }
 
-            // Enhanced response parsing
-            JsonObject jsonResponse = JsonParser.parseString(responseBody).getAsJsonObject();
+    private static JsonObject arraySchema(JsonObject items) {
+        JsonObject schema = typeSchema("ARRAY");
+        schema.add("items", items);
+        return schema;
+    }
 
-            // Check for API errors
-            if (jsonResponse.has("error")) {
-                JsonObject error = jsonResponse.getAsJsonObject("error");
-                System.err.println("[Gemini Scraper] ⚠️  API Error: " + error.get("message").getAsString());
-                return null;
-            }
+    /** Object schema with every property required, in the given order */
+    private static JsonObject objectSchema(Map<String, JsonObject> properties) {
+        JsonObject schema = typeSchema("OBJECT");
+        JsonObject props = new JsonObject();
+        JsonArray required = new JsonArray();
+        JsonArray ordering = new JsonArray();
+        properties.forEach((name, property) -> {
+            props.add(name, property);
+            required.add(name);
+            ordering.add(name);
+        });
+        schema.add("properties", props);
+        schema.add("required", required);
+        schema.add("propertyOrdering", ordering);
+        return schema;
+    }
 
-            JsonArray candidates = jsonResponse.getAsJsonArray("candidates");
+    /**
+     * Per-product part of the prompt; the instructions live in SCRAPER_INSTRUCTION
+     */
+    private PromptBuilder buildEnhancedPrompt(String productName, String[] platforms, boolean withRecommendation) {
+        PromptBuilder prompt = PromptBuilder.withSystemInstruction(SCRAPER_INSTRUCTION)
+                .line("Product: \"" + productName + "\"")
+                .line("Platforms: " + String.join(", ", platforms));
+        if (withRecommendation) {
+            prompt.line("Then fill \"recommendation\" with the best platform to buy from, considering price, rating, " +
+                            "delivery time, return policy, warranty, and offers, in this format:")
+                    .line(AIAnalyzerService.RECOMMENDATION_FORMAT);
+        }
+        return prompt;
+    }
 
-            if (candidates != null && candidates.size() > 0) {
-                JsonObject candidate = candidates.get(0).getAsJsonObject();
-                JsonObject contentObj = candidate.getAsJsonObject("content");
-                JsonArray partsArray = contentObj.getAsJsonArray("parts");
+    /**
+     * Batch prompt: the instruction block is sent once for several products,
+     * and the answer is keyed so each product's platforms can be split out
+     */
+    private PromptBuilder buildBatchPrompt(Map<String, ScrapeRequest> keyed) {
+        PromptBuilder prompt = PromptBuilder.withSystemInstruction(SCRAPER_INSTRUCTION)
+                .line("Answer each product under products.<key>, using only its listed platforms.")
+                .line("key,product,platforms");
+        for (Map.Entry<String, ScrapeRequest> entry : keyed.entrySet()) {
+            String productName = entry.getValue().productName();
+            prompt.line(PromptBuilder.csvRow(entry.getKey(), productName,
+                    String.join(" ", getRelevantPlatforms(productName))));
+        }
+        return prompt;
+    }
 
-                if (partsArray != null && partsArray.size() > 0) {
-                    String text = partsArray.get(0).getAsJsonObject().get("text").getAsString();
-                    System.out.println("[Gemini Scraper] ✓ API response received (" + text.length() + " chars)");
-                    return extractJSON(text);
-                }
-            }
+    /**
+     * Enhanced API call with better error handling.
+     * The parser receives the generated text; the response body itself is streamed.
+     * @return the parsed result, or null if the API gave no usable answer
+     */
+    private <T> T callGeminiAPI(PromptBuilder prompt, int maxOutputTokens, JsonObject responseSchema,
+                                GeminiClient.TextParser<T> parser) throws IOException {
+        try {
+            return gemini.generateContent(buildRequest(prompt, maxOutputTokens, responseSchema), parser);
+        } catch (GeminiClient.GeminiApiException e) {
+            System.err.println("[Gemini Scraper] ⚠️  API HTTP " + e.getStatusCode() + ": " + e.getMessage());
+            return null;
+        } catch (GeminiClient.GeminiResponseException e) {
+            System.err.println("[Gemini Scraper] ⚠️  " + e.getMessage());
+            return null;
         } catch (IOException e) {
             System.err.println("[Gemini Scraper] ⚠️  Network error: " + e.getMessage());
             throw e;
         }
-
-        return null;
     }
 
     /**
-     * Extracts JSON from Gemini response (removes markdown formatting)
+     * Non-blocking variant on the shared client's dispatcher
      */
-    private String extractJSON(String text) {
-        if (text == null || text.isEmpty()) {
-            return text;
-        }
-        text = text.trim();
-        // Remove markdown code blocks
-        if (text.startsWith("```json")) {
-            text = text.substring(7);
-        } else if (text.startsWith("```")) {
-            text = text.substring(3);
-        }
-        if (text.endsWith("```")) {
-            text = text.substring(0, text.length() - 3);
-        }
-        text = text.trim();
-        if (!text.startsWith("{") || !text.endsWith("}")) {
-            System.err.println("[Gemini Scraper] ⚠️  Response doesn't look like JSON");
-            return null;
-        }
-        return text;
+    private <T> CompletableFuture<T> callGeminiAPIAsync(PromptBuilder prompt, int maxOutputTokens, JsonObject responseSchema,
+                                                        GeminiClient.TextParser<T> parser) {
+        return gemini.generateContentAsync(buildRequest(prompt, maxOutputTokens, responseSchema), parser);
+    }
+
+    private JsonObject buildRequest(PromptBuilder prompt, int maxOutputTokens, JsonObject responseSchema) {
+        JsonObject request = prompt.toRequest();
+
+        // Add generation config for better responses
+        JsonObject generationConfig = new JsonObject();
+        generationConfig.addProperty("temperature", 0.7);  // Balanced creativity
+        generationConfig.addProperty("topK", 40);
+        generationConfig.addProperty("topP", 0.95);
+        generationConfig.addProperty("maxOutputTokens", maxOutputTokens);
+        // JSON mode: the API guarantees the shape, so no fences or prose to strip
+        generationConfig.addProperty("responseMimeType", "application/json");
+        generationConfig.add("responseSchema", responseSchema);
+        request.add("generationConfig", generationConfig);
+        return request;
     }
 
 
 /**
- * Enhanced JSON parsing with better error messages
+ * Streaming parse of the generated text straight into ProductDetail objects.
+ * Markdown fences or chatter before the JSON are skipped in place - no copies.
  */
-private List<ProductDetail> parseGeminiResponse(String jsonResponse, String productName, Long productId) {
-    if (jsonResponse == null || jsonResponse.isEmpty()) {
-        System.err.println("[Gemini Scraper] ⚠️  Empty JSON response");
+private ScrapeResult parseGeminiResponse(String text, String productName, Long productId) throws IOException {
+    JsonReader reader = openJson(text);
+    if (reader == null) {
+        System.err.println("[Gemini Scraper] ⚠️  Response doesn't look like JSON");
         return null;
     }
 
     List<ProductDetail> details = new ArrayList<>();
-
+    String recommendation = null;
+    boolean sawPlatforms = false;
     try {
-        JsonObject root = JsonParser.parseString(jsonResponse).getAsJsonObject();
-
-        if (!root.has("platforms")) {
-            System.err.println("[Gemini Scraper] ⚠️  JSON missing 'platforms' array");
-            return null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("platforms".equals(name)) {
+                sawPlatforms = true;
+                readPlatforms(reader, productName, productId, details);
+            } else if ("recommendation".equals(name)) {
+                recommendation = readString(reader);
+            } else {
+                reader.skipValue();
+            }
         }
-
-        JsonArray platforms = root.getAsJsonArray("platforms");
-
-        if (platforms == null || platforms.size() == 0) {
-            System.err.println("[Gemini Scraper] ⚠️  Empty platforms array");
-            return null;
+        // Not calling endObject(): anything after the object is ignored
+    } catch (EOFException | MalformedJsonException e) {
+        // Repair: output cut off (usually maxOutputTokens) - keep the complete entries
+        if (!sawPlatforms || details.isEmpty()) {
+            throw e;
         }
+        System.out.println("[Gemini Scraper] 🩹 Response truncated - kept " + details.size() + " complete platforms");
+    }
 
-        System.out.println("[Gemini Scraper] 📦 Parsing " + platforms.size() + " platforms...");
-
-        for (int i = 0; i < platforms.size(); i++) {
-            try {
-                JsonObject platformData = platforms.get(i).getAsJsonObject();
+    if (!sawPlatforms) {
+        System.err.println("[Gemini Scraper] ⚠️  JSON missing 'platforms' array");
+        return null;
+    }
+    if (details.isEmpty()) {
+        System.err.println("[Gemini Scraper] ⚠️  Empty platforms array");
+        return null;
+    }
 
-                ProductDetail detail = new ProductDetail();
-                detail.setProductId(productId);
+    System.out.println("[Gemini Scraper] ✓ Successfully parsed " + details.size() + " platforms");
+    return new ScrapeResult(details, recommendation != null && !recommendation.isBlank() ? recommendation : null);
+}
 
-                // ✅ FIX: Validate platform name
-                String platformName = platformData.has("platform") ?
-                        platformData.get("platform").getAsString() : "Unknown";
+/**
+ * Lenient reader positioned at the first '{' of the text, or null if there is none
+ */
+private JsonReader openJson(String text) throws IOException {
+    int start = text != null ? text.indexOf('{') : -1;
+    if (start < 0) {
+        return null;
+    }
+    StringReader source = new StringReader(text);
+    source.skip(start);
+    JsonReader reader = new JsonReader(source);
+    reader.setLenient(true);
+    return reader;
+}
 
-                if (platformName == null || platformName.trim().isEmpty() || platformName.equals("Unknown")) {
-                    System.err.println("[Gemini Scraper] ⚠️  Skipping platform with invalid name at index " + i);
-                    continue;  // Skip this platform
-                }
+/**
+ * Decode one product's platform array into the list, skipping entries that are incomplete.
+ * Entries are added as they complete, so a truncated array keeps everything before the cut.
+ */
+private void readPlatforms(JsonReader reader, String productName, Long productId, List<ProductDetail> into) throws IOException {
+    if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+        reader.skipValue();
+        return;
+    }
 
-                detail.setPlatform(platformName);
-                detail.setPrice(platformData.get("price").getAsDouble());
-                detail.setRating(platformData.get("rating").getAsDouble());
-                detail.setReviewCount(platformData.get("reviewCount").getAsInt());
-                detail.setSeller(platformData.get("seller").getAsString());
-                detail.setDeliveryTime(platformData.get("deliveryTime").getAsString());
-                detail.setReturnPolicy(platformData.get("returnPolicy").getAsString());
-                detail.setWarranty(platformData.get("warranty").getAsString());
-                detail.setOffers(platformData.get("offers").getAsString());
-                detail.setAvailability(platformData.get("availability").getAsString());
-                detail.setProductLink(generatePlatformLink(detail.getPlatform(), productName));
-
-                details.add(detail);
-            } catch (Exception e) {
-                System.err.println("[Gemini Scraper] ⚠️  Error parsing platform " + i + ": " + e.getMessage());
-            }
+    reader.beginArray();
+    for (int i = 0; reader.hasNext(); i++) {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            continue;
+        }
+        ProductDetail detail = readPlatform(reader, i, productName, productId);
+        if (detail != null) {
+            into.add(detail);
         }
+    }
+    reader.endArray();
+}
 
-        System.out.println("[Gemini Scraper] ✓ Successfully parsed " + details.size() + " platforms");
+/**
+ * Decode one platform object field by field
+ * @return the detail, or null if a required field is missing or invalid
+ */
+private ProductDetail readPlatform(JsonReader reader, int index, String productName, Long productId) throws IOException {
+    String platformName = null, seller = null, deliveryTime = null, returnPolicy = null;
+    String warranty = null, offers = null, availability = null;
+    Double price = null, rating = null, reviewCount = null;
+
+    reader.beginObject();
+    while (reader.hasNext()) {
+        switch (reader.nextName()) {
+            case "platform" -> platformName = readString(reader);
+            case "price" -> price = readNumber(reader);
+            case "rating" -> rating = readNumber(reader);
+            case "reviewCount" -> reviewCount = readNumber(reader);
+            case "seller" -> seller = readString(reader);
+            case "deliveryTime" -> deliveryTime = readString(reader);
+            case "returnPolicy" -> returnPolicy = readString(reader);
+            case "warranty" -> warranty = readString(reader);
+            case "offers" -> offers = readString(reader);
+            case "availability" -> availability = readString(reader);
+            default -> reader.skipValue();
+        }
+    }
+    reader.endObject();
 
-    } catch (Exception e) {
-        System.err.println("[Gemini Scraper] ⚠️  JSON parsing error: " + e.getMessage());
+    // ✅ FIX: Validate platform name
+    if (platformName == null || platformName.trim().isEmpty() || platformName.equals("Unknown")) {
+        System.err.println("[Gemini Scraper] ⚠️  Skipping platform with invalid name at index " + index);
         return null;
     }
-    return details;
+    if (price == null || price <= 0) {
+        System.err.println("[Gemini Scraper] ⚠️  Skipping " + platformName + " with invalid price");
+        return null;
+    }
+    if (rating == null || reviewCount == null || seller == null || deliveryTime == null
+            || returnPolicy == null || warranty == null || offers == null || availability == null) {
+        System.err.println("[Gemini Scraper] ⚠️  Error parsing platform " + index + ": incomplete entry for " + platformName);
+        return null;
+    }
+
+    ProductDetail detail = new ProductDetail();
+    detail.setProductId(productId);
+    detail.setPlatform(platformName);
+    detail.setPrice(price);
+    detail.setRating(rating);
+    detail.setReviewCount(reviewCount.intValue());
+    detail.setSeller(seller);
+    detail.setDeliveryTime(deliveryTime);
+    detail.setReturnPolicy(returnPolicy);
+    detail.setWarranty(warranty);
+    detail.setOffers(offers);
+    detail.setAvailability(availability);
+    detail.setProductLink(generatePlatformLink(platformName, productName));
+    return detail;
 }
 
+private String readString(JsonReader reader) throws IOException {
+    return switch (reader.peek()) {
+        case STRING, NUMBER -> reader.nextString();
+        case BOOLEAN -> String.valueOf(reader.nextBoolean());
+        case NULL -> {
+            reader.nextNull();
+            yield null;
+        }
+        default -> {
+            reader.skipValue();
+            yield null;
+        }
+    };
+}
+
+/**
+ * Numbers may arrive quoted or formatted ("₹79,900", "Rs. 1,299", "4.5 out of 5") -
+ * take the first number and drop its grouping commas
+ */
+private Double readNumber(JsonReader reader) throws IOException {
+    String value = readString(reader);
+    if (value == null) {
+        return null;
+    }
+    Matcher number = NUMBER.matcher(value);
+    if (!number.find()) {
+        return null;
+    }
+    try {
+        return Double.parseDouble(number.group(1).replace(",", ""));
+    } catch (NumberFormatException e) {
+        return null;
+    }
+}
 
 /** Enhanced mock data generation with more realistic pricing */
 private List<ProductDetail> generateEnhancedMockData(String productName, Long productId, String[] platforms) {
@@ -436,48 +720,7 @@ private List<ProductDetail> generateEnhancedMockData(String productName, Long pr
 // ========== HELPER METHODS FOR REALISTIC DATA ==========
 
 private double estimateBasePrice(String productName) {
-    String lower = productName.toLowerCase();
-
-    // Electronics - Popular models
-    if (lower.contains("iphone 16")) return 89900;
-    if (lower.contains("iphone 15 pro")) return 134900;
-    if (lower.contains("iphone 15")) return 79900;
-    if (lower.contains("iphone 14")) return 69900;
-    if (lower.contains("iphone 13")) return 59900;
-    if (lower.contains("samsung s24 ultra")) return 124999;
-    if (lower.contains("samsung s24")) return 74999;
-    if (lower.contains("samsung s23")) return 64999;
-    if (lower.contains("oneplus 12")) return 64999;
-    if (lower.contains("oneplus 11")) return 56999;
-    if (lower.contains("pixel 8")) return 75999;
-
-    // General electronics
-    if (lower.contains("laptop")) return 50000 + random.nextDouble() * 50000;
-    if (lower.contains("macbook")) return 95000 + random.nextDouble() * 100000;
-    if (lower.contains("airpods")) return 12000 + random.nextDouble() * 12000;
-    if (lower.contains("watch") || lower.contains("smartwatch")) return 5000 + random.nextDouble() * 20000;
-    if (lower.contains("tv") || lower.contains("television")) return 25000 + random.nextDouble() * 75000;
-    if (lower.contains("tablet") || lower.contains("ipad")) return 25000 + random.nextDouble() * 75000;
-
-    // Fashion
-    if (lower.contains("nike") || lower.contains("adidas")) return 3000 + random.nextDouble() * 7000;
-    if (lower.contains("shoe") || lower.contains("sneaker")) return 2000 + random.nextDouble() * 8000;
-    if (lower.contains("shirt") || lower.contains("tshirt")) return 400 + random.nextDouble() * 1600;
-    if (lower.contains("jeans") || lower.contains("pants")) return 800 + random.nextDouble() * 2200;
-    if (lower.contains("dress")) return 1000 + random.nextDouble() * 4000;
-    if (lower.contains("saree")) return 1500 + random.nextDouble() * 8500;
-
-    // Beauty
-    if (lower.contains("lipstick")) return 300 + random.nextDouble() * 1700;
-    if (lower.contains("perfume")) return 1500 + random.nextDouble() * 8500;
-    if (lower.contains("skincare")) return 500 + random.nextDouble() * 2500;
-
-    // Baby
-    if (lower.contains("diaper")) return 800 + random.nextDouble() * 1200;
-    if (lower.contains("baby")) return 500 + random.nextDouble() * 4500;
-
-    // Default
-    return 1000 + random.nextDouble() * 9000;
+    return classifier.classify(productName).samplePrice(random);
 }
 
 private double adjustPriceByPlatform(double basePrice, String platform) {
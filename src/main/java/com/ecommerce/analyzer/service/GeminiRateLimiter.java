@@ -0,0 +1,198 @@
+package com.ecommerce.analyzer.service;
+
+import com.ecommerce.analyzer.util.ConfigManager;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Gemini Rate Limiter
+ * Keeps Gemini traffic inside the configured requests-per-minute and
+ * tokens-per-minute quota using a sliding one-minute window. Callers are
+ * admitted in arrival order, a 429's Retry-After pauses everyone, and
+ * retries back off with decorrelated jitter.
+ */
+public class GeminiRateLimiter {
+
+    private static final long WINDOW_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    /**
+     * One admitted request; its token count is corrected once usage is known
+     */
+    public class Permit {
+        private final long grantedAtNanos;
+        private long tokens;
+        private boolean evicted; // Left the window; its tokens no longer count
+
+        private Permit(long grantedAtNanos, long tokens) {
+            this.grantedAtNanos = grantedAtNanos;
+            this.tokens = tokens;
+        }
+
+        /**
+         * Replace the estimate with the tokens the API actually billed.
+         * A permit that has already aged out of the window no longer counts
+         * towards it, so the correction is dropped.
+         */
+        public void recordUsage(long actualTokens) {
+            if (actualTokens <= 0) return;
+            synchronized (window) {
+                if (!evicted) {
+                    tokensInWindow += actualTokens - tokens;
+                    tokens = actualTokens;
+                }
+            }
+        }
+    }
+
+    // Fair admission lock: waiting callers are admitted first-come, first-served.
+    // Window state is guarded separately so usage updates never wait behind a sleeper.
+    private final ReentrantLock admission = new ReentrantLock(true);
+    private final Deque<Permit> window = new ArrayDeque<>();
+    private final ExecutorService asyncAdmission;
+    private final int requestsPerMinute;
+    private final long tokensPerMinute;
+    private final long baseBackoffMs;
+    private final long maxBackoffMs;
+    private long tokensInWindow;
+    private long pausedUntilNanos;
+
+    public GeminiRateLimiter(int requestsPerMinute, long tokensPerMinute, long baseBackoffMs, long maxBackoffMs) {
+        this.requestsPerMinute = Math.max(1, requestsPerMinute);
+        this.tokensPerMinute = Math.max(1, tokensPerMinute);
+        this.baseBackoffMs = Math.max(1, baseBackoffMs);
+        this.maxBackoffMs = Math.max(this.baseBackoffMs, maxBackoffMs);
+        this.asyncAdmission = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "gemini-rate-limiter");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Limiter configured from application.properties
+     */
+    public static GeminiRateLimiter fromConfig() {
+        return new GeminiRateLimiter(
+                ConfigManager.getIntProperty("gemini.rate.rpm", 15),
+                ConfigManager.getIntProperty("gemini.rate.tpm", 1_000_000),
+                ConfigManager.getIntProperty("gemini.retry.base.ms", 1000),
+                ConfigManager.getIntProperty("gemini.retry.max.ms", 60000));
+    }
+
+    /**
+     * Block until a request of the estimated size fits the quota
+     */
+    public Permit acquire(long estimatedTokens) throws InterruptedException {
+        long tokens = Math.min(Math.max(1, estimatedTokens), tokensPerMinute);
+        admission.lockInterruptibly();
+        try {
+            while (true) {
+                long waitNanos;
+                synchronized (window) {
+                    long now = System.nanoTime();
+                    evictExpired(now);
+
+                    waitNanos = pausedUntilNanos - now;
+                    if (window.size() >= requestsPerMinute) {
+                        waitNanos = Math.max(waitNanos, window.peekFirst().grantedAtNanos + WINDOW_NANOS - now);
+                    }
+                    if (waitNanos <= 0 && tokensInWindow + tokens > tokensPerMinute) {
+                        waitNanos = nanosUntilTokensFree(tokens, now);
+                    }
+
+                    if (waitNanos <= 0) {
+                        Permit permit = new Permit(now, tokens);
+                        window.addLast(permit);
+                        tokensInWindow += tokens;
+                        return permit;
+                    }
+                }
+
+                // Sleep while holding the admission lock so later callers stay queued behind us
+                System.out.printf("[GeminiRateLimiter] ⏳ Quota full, waiting %d ms (%s)%n",
+                        TimeUnit.NANOSECONDS.toMillis(waitNanos), getUsageSummary());
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            }
+        } finally {
+            admission.unlock();
+        }
+    }
+
+    /**
+     * Non-blocking admission for async callers, served in order on one thread
+     */
+    public CompletableFuture<Permit> acquireAsync(long estimatedTokens) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return acquire(estimatedTokens);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for Gemini quota", e);
+            }
+        }, asyncAdmission);
+    }
+
+    /**
+     * Hold every caller until the server's Retry-After has passed
+     */
+    public void pauseFor(long delayMs) {
+        synchronized (window) {
+            pausedUntilNanos = Math.max(pausedUntilNanos, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMs));
+        }
+        System.out.println("[GeminiRateLimiter] ⏸  Throttled by server, pausing all calls for " + delayMs + " ms");
+    }
+
+    /**
+     * Decorrelated-jitter backoff: random between base and 3x the previous delay, capped
+     * @param previousDelayMs the last delay used, or 0 for the first retry
+     */
+    public long nextBackoffMs(long previousDelayMs) {
+        long upper = Math.max(baseBackoffMs + 1, Math.min(maxBackoffMs, Math.max(baseBackoffMs, previousDelayMs) * 3));
+        return Math.min(maxBackoffMs, ThreadLocalRandom.current().nextLong(baseBackoffMs, upper));
+    }
+
+    private void evictExpired(long now) {
+        while (!window.isEmpty() && now - window.peekFirst().grantedAtNanos >= WINDOW_NANOS) {
+            Permit expired = window.pollFirst();
+            expired.evicted = true;
+            tokensInWindow -= expired.tokens;
+        }
+    }
+
+    /**
+     * Time until enough of the oldest grants expire to fit the request
+     */
+    private long nanosUntilTokensFree(long tokens, long now) {
+        long freed = 0;
+        long needed = tokensInWindow + tokens - tokensPerMinute;
+        for (Permit permit : window) {
+            freed += permit.tokens;
+            if (freed >= needed) {
+                return permit.grantedAtNanos + WINDOW_NANOS - now;
+            }
+        }
+        return WINDOW_NANOS;
+    }
+
+    /**
+     * Requests and tokens used in the current window, for logging
+     */
+    public String getUsageSummary() {
+        synchronized (window) {
+            evictExpired(System.nanoTime());
+            return String.format("%d/%d requests, %d/%d tokens in the last minute",
+                    window.size(), requestsPerMinute, tokensInWindow, tokensPerMinute);
+        }
+    }
+
+    public void shutdown() {
+        asyncAdmission.shutdownNow();
+    }
+}
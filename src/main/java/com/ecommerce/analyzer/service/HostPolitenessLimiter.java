@@ -0,0 +1,97 @@
+package com.ecommerce.analyzer.service;
+
+import com.ecommerce.analyzer.util.ConfigManager;
+
+import java.net.URI;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Host Politeness Limiter
+ * Caps concurrent requests per host and spaces request starts to the same
+ * host by a minimum interval, so concurrent crawling never hammers one site.
+ */
+public class HostPolitenessLimiter {
+
+    private static HostPolitenessLimiter shared;
+
+    private static class HostState {
+        final Semaphore permits;
+        long nextStartNanos;
+
+        HostState(int maxConcurrent) {
+            this.permits = new Semaphore(maxConcurrent, true);
+        }
+    }
+
+    private final Map<String, HostState> hosts = new ConcurrentHashMap<>();
+    private final long minIntervalNanos;
+    private final int maxConcurrentPerHost;
+
+    public HostPolitenessLimiter(long minIntervalMs, int maxConcurrentPerHost) {
+        this.minIntervalNanos = TimeUnit.MILLISECONDS.toNanos(minIntervalMs);
+        this.maxConcurrentPerHost = Math.max(1, maxConcurrentPerHost);
+    }
+
+    /**
+     * Get the process-wide limiter configured from application.properties
+     */
+    public static synchronized HostPolitenessLimiter shared() {
+        if (shared == null) {
+            shared = new HostPolitenessLimiter(
+                    ConfigManager.getIntProperty("crawl.host.min.interval.ms", 1500),
+                    ConfigManager.getIntProperty("crawl.host.max.concurrent", 1));
+        }
+        return shared;
+    }
+
+    /**
+     * Block until a request to the host may start. Must be paired with release().
+     */
+    public void acquire(String host) throws InterruptedException {
+        HostState state = hosts.computeIfAbsent(host, h -> new HostState(maxConcurrentPerHost));
+        state.permits.acquire();
+
+        long waitNanos;
+        synchronized (state) {
+            long now = System.nanoTime();
+            long slot = Math.max(now, state.nextStartNanos);
+            state.nextStartNanos = slot + minIntervalNanos;
+            waitNanos = slot - now;
+        }
+
+        if (waitNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                state.permits.release();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Release the slot taken by acquire()
+     */
+    public void release(String host) {
+        HostState state = hosts.get(host);
+        if (state != null) {
+            state.permits.release();
+        }
+    }
+
+    /**
+     * Lower-cased host of a URL, or "unknown" if it can't be parsed
+     */
+    public static String hostOf(String url) {
+        try {
+            String host = URI.create(url).getHost();
+            return host != null ? host.toLowerCase(Locale.ROOT) : "unknown";
+        } catch (IllegalArgumentException e) {
+            return "unknown";
+        }
+    }
+}
@@ -2,12 +2,19 @@ package com.ecommerce.analyzer.service;
 
 import com.ecommerce.analyzer.model.ProductDetail;
 import org.htmlunit.BrowserVersion;
+import org.htmlunit.StringWebResponse;
 import org.htmlunit.WebClient;
+import org.htmlunit.WebRequest;
+import org.htmlunit.WebResponse;
 import org.htmlunit.html.HtmlPage;
+import org.htmlunit.html.DomElement;
 import org.htmlunit.html.DomNode;
 import org.htmlunit.html.DomNodeList;
+import org.htmlunit.util.WebConnectionWrapper;
 import org.w3c.dom.Node;
 
+import java.io.IOException;
+import java.net.URL;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.util.logging.Level;
@@ -23,13 +30,16 @@ public class HtmlUnitScraperService {
     private static final int TIMEOUT_MS = 15000;
     private static final int JS_WAIT_MS = 5000;
 
+    private final StructuredDataExtractor structuredDataExtractor = new StructuredDataExtractor();
+
     /**
      * Scrapes product details from Flipkart using HtmlUnit
      */
     public ProductDetail scrapeFlipkart(String productName, Long productId) {
         System.out.println("[HtmlUnit] Scraping Flipkart for: " + productName);
 
-        WebClient webClient = createWebClient(BrowserVersion.CHROME);
+        PageLoadStats stats = new PageLoadStats("HtmlUnit", "Flipkart");
+        WebClient webClient = createWebClient(BrowserVersion.CHROME, PageLoadProfile.forPlatform("Flipkart"), stats);
 
         try {
             // Add delay to avoid rate limiting
@@ -38,21 +48,29 @@ public class HtmlUnitScraperService {
             String encodedSearch = URLEncoder.encode(productName, StandardCharsets.UTF_8);
             String url = "https://www.flipkart.com/search?q=" + encodedSearch;
 
-            HtmlPage page = webClient.getPage(url);
+            stats.start();
+
+            // Structured data first - raw HTML only, no JavaScript or DOM
+            WebResponse response = webClient.loadWebResponse(new WebRequest(new URL(url)));
+            ProductDetail structured = extractStructuredDetail(response, url, "Flipkart", productId);
+            if (structured != null) {
+                stats.report();
+                if (structured.getAvailability() == null) structured.setAvailability("In Stock");
+                structured.setDeliveryTime("Check website");
+                structured.setReturnPolicy("10 days return policy");
+                return structured;
+            }
+
+            HtmlPage page = renderPage(webClient, response);
 
             // Critical: Wait for JavaScript to execute
             webClient.waitForBackgroundJavaScript(JS_WAIT_MS);
+            stats.report();
 
-            // Try multiple selectors (Flipkart changes these frequently)
-            DomNodeList<DomNode> products = page.querySelectorAll("div[data-id]");
-            if (products.isEmpty()) {
-                products = page.querySelectorAll("div._1AtVbE");
-            }
-            if (products.isEmpty()) {
-                products = page.querySelectorAll("div.cPHDOP");
-            }
+            // Candidate selectors in learned order (Flipkart changes these frequently)
+            DomNodeList<DomNode> products = findCards(page, ScraperSelectors.FLIPKART_CARD);
 
-            if (products.isEmpty()) {
+            if (products == null) {
                 System.out.println("[HtmlUnit] No products found for Flipkart. Possible blocking.");
                 return null;
             }
@@ -62,13 +80,13 @@ public class HtmlUnitScraperService {
             ProductDetail detail = new ProductDetail();
             detail.setProductId(productId);
             detail.setPlatform("Flipkart");
-            detail.setProductLink(url);
+            detail.setProductLink(extractLink(page, firstProduct, ScraperSelectors.FLIPKART_LINK, url));
 
             // Extract product details
-            detail.setPrice(extractPrice(firstProduct, "div._30jeq3, div._3I9_wc"));
-            detail.setRating(extractRating(firstProduct, "div._3LWZlK"));
-            detail.setReviewCount(extractReviewCount(firstProduct, "span._2_R_DZ"));
-            detail.setSeller(extractText(firstProduct, "div._2WkVRV"));
+            detail.setPrice(extractPrice(firstProduct, ScraperSelectors.FLIPKART_PRICE));
+            detail.setRating(extractRating(firstProduct, ScraperSelectors.FLIPKART_RATING));
+            detail.setReviewCount(extractReviewCount(firstProduct, ScraperSelectors.FLIPKART_REVIEWS));
+            detail.setSeller(extractText(firstProduct, ScraperSelectors.FLIPKART_SELLER));
             detail.setDeliveryTime("Check website");
             detail.setReturnPolicy("10 days return policy");
             detail.setAvailability("In Stock");
@@ -94,7 +112,8 @@ public class HtmlUnitScraperService {
     public ProductDetail scrapeAmazon(String productName, Long productId) {
         System.out.println("[HtmlUnit] Scraping Amazon for: " + productName);
 
-        WebClient webClient = createWebClient(BrowserVersion.CHROME);
+        PageLoadStats stats = new PageLoadStats("HtmlUnit", "Amazon");
+        WebClient webClient = createWebClient(BrowserVersion.CHROME, PageLoadProfile.forPlatform("Amazon"), stats);
 
         try {
             Thread.sleep(4000); // Longer delay for Amazon (more aggressive)
@@ -102,13 +121,26 @@ public class HtmlUnitScraperService {
             String encodedSearch = URLEncoder.encode(productName, StandardCharsets.UTF_8);
             String url = "https://www.amazon.in/s?k=" + encodedSearch;
 
-            HtmlPage page = webClient.getPage(url);
+            stats.start();
+
+            WebResponse response = webClient.loadWebResponse(new WebRequest(new URL(url)));
+            ProductDetail structured = extractStructuredDetail(response, url, "Amazon", productId);
+            if (structured != null) {
+                stats.report();
+                if (structured.getAvailability() == null) structured.setAvailability("In Stock");
+                structured.setDeliveryTime("2-3 days");
+                structured.setReturnPolicy("30 days return");
+                return structured;
+            }
+
+            HtmlPage page = renderPage(webClient, response);
             webClient.waitForBackgroundJavaScript(JS_WAIT_MS);
+            stats.report();
 
             // Amazon product selectors
-            DomNodeList<DomNode> products = page.querySelectorAll("div[data-component-type='s-search-result']");
+            DomNodeList<DomNode> products = findCards(page, ScraperSelectors.AMAZON_CARD);
 
-            if (products.isEmpty()) {
+            if (products == null) {
                 System.out.println("[HtmlUnit] No products found for Amazon. Likely blocked.");
                 return null;
             }
@@ -118,11 +150,11 @@ public class HtmlUnitScraperService {
             ProductDetail detail = new ProductDetail();
             detail.setProductId(productId);
             detail.setPlatform("Amazon");
-            detail.setProductLink(url);
+            detail.setProductLink(extractLink(page, firstProduct, ScraperSelectors.AMAZON_LINK, url));
 
-            detail.setPrice(extractPrice(firstProduct, "span.a-price-whole"));
-            detail.setRating(extractRating(firstProduct, "span.a-icon-alt"));
-            detail.setSeller(extractText(firstProduct, "span.a-size-base"));
+            detail.setPrice(extractPrice(firstProduct, ScraperSelectors.AMAZON_PRICE));
+            detail.setRating(extractRating(firstProduct, ScraperSelectors.AMAZON_RATING));
+            detail.setSeller(extractText(firstProduct, ScraperSelectors.AMAZON_SELLER));
             detail.setDeliveryTime("2-3 days");
             detail.setReturnPolicy("30 days return");
             detail.setAvailability("In Stock");
@@ -138,15 +170,46 @@ public class HtmlUnitScraperService {
         }
     }
 
+    /**
+     * Reads JSON-LD / embedded state from the raw response (no JavaScript, no DOM)
+     * @return detail with the structured fields, or null to fall back to selectors
+     */
+    private ProductDetail extractStructuredDetail(WebResponse response, String url, String platform, Long productId) {
+        StructuredDataExtractor.StructuredProduct data = structuredDataExtractor.extract(response.getContentAsString());
+        if (data == null) {
+            return null;
+        }
+
+        ProductDetail detail = new ProductDetail();
+        detail.setProductId(productId);
+        detail.setPlatform(platform);
+        detail.setProductLink(url);
+        detail.setSeller("N/A");
+        data.applyTo(detail);
+
+        System.out.println("[HtmlUnit] ✓ " + platform + " structured data found - skipped JavaScript render");
+        return detail;
+    }
+
+    /**
+     * Builds the DOM (and runs the page's JavaScript) from a response already
+     * fetched, so a structured-data miss doesn't request the page a second time
+     */
+    private HtmlPage renderPage(WebClient webClient, WebResponse response) throws IOException {
+        return (HtmlPage) webClient.loadWebResponseInto(response, webClient.getCurrentWindow());
+    }
+
     /**
      * Creates configured WebClient for scraping
+     * Requests matching the profile's blocklist are answered locally and never fetched
      */
-    private WebClient createWebClient(BrowserVersion browser) {
+    private WebClient createWebClient(BrowserVersion browser, PageLoadProfile profile, PageLoadStats stats) {
         WebClient client = new WebClient(browser);
 
         // Critical configurations for anti-bot bypass
-        client.getOptions().setJavaScriptEnabled(true);
+        client.getOptions().setJavaScriptEnabled(profile.isJavaScriptEnabled());
         client.getOptions().setCssEnabled(false); // Faster scraping
+        client.getOptions().setDownloadImages(profile.isLoadImages());
         client.getOptions().setThrowExceptionOnScriptError(false);
         client.getOptions().setThrowExceptionOnFailingStatusCode(false);
         client.getOptions().setPrintContentOnFailingStatusCode(false);
@@ -160,21 +223,90 @@ public class HtmlUnitScraperService {
         client.addRequestHeader("Accept-Encoding", "gzip, deflate, br");
         client.addRequestHeader("Connection", "keep-alive");
 
+        // Registers itself as the client's web connection
+        new BlockingWebConnection(client, profile, stats);
+
         return client;
     }
 
-    // Helper methods for data extraction
-    private String extractText(DomNode parent, String cssQuery) {
-        try {
-            DomNode node = parent.querySelector(cssQuery);
-            return node != null ? node.getTextContent().trim() : "N/A";
-        } catch (Exception e) {
-            return "N/A";
+    /**
+     * Web connection that drops blocklisted requests and counts transferred bytes
+     */
+    private static class BlockingWebConnection extends WebConnectionWrapper {
+        private final PageLoadProfile profile;
+        private final PageLoadStats stats;
+
+        BlockingWebConnection(WebClient client, PageLoadProfile profile, PageLoadStats stats) {
+            super(client);
+            this.profile = profile;
+            this.stats = stats;
         }
+
+        @Override
+        public WebResponse getResponse(WebRequest request) throws IOException {
+            if (profile.isBlocked(request.getUrl().toString())) {
+                stats.recordBlocked();
+                return new StringWebResponse("", request.getUrl());
+            }
+            WebResponse response = super.getResponse(request);
+            stats.recordResponse(transferredBytes(response));
+            return response;
+        }
+
+        /**
+         * Bytes on the wire: Content-Length is the compressed size. A chunked
+         * response has no header and counts at its decoded size instead.
+         */
+        private static long transferredBytes(WebResponse response) {
+            String contentLength = response.getResponseHeaderValue("Content-Length");
+            if (contentLength != null) {
+                try {
+                    return Long.parseLong(contentLength.trim());
+                } catch (NumberFormatException e) {
+                    // Malformed header - fall through to the decoded size
+                }
+            }
+            return response.getContentLength();
+        }
+    }
+
+    // Helper methods for data extraction
+    // HtmlUnit has no compiled-selector API, so plans only control evaluation order
+
+    private DomNodeList<DomNode> findCards(HtmlPage page, SelectorPlan plan) {
+        return plan.evaluate(selector -> {
+            DomNodeList<DomNode> nodes = page.querySelectorAll(selector);
+            return nodes.isEmpty() ? null : nodes;
+        });
+    }
+
+    private String extractText(DomNode parent, SelectorPlan plan) {
+        String text = plan.evaluate(selector -> {
+            DomNode node = parent.querySelector(selector);
+            String value = node != null ? node.getTextContent().trim() : "";
+            return value.isEmpty() ? null : value;
+        });
+        return text != null ? text : "N/A";
+    }
+
+    /** Absolute product-page link from a result card, or the fallback (search URL) */
+    private String extractLink(HtmlPage page, DomNode parent, SelectorPlan plan, String fallback) {
+        String link = plan.evaluate(selector -> {
+            DomNode node = parent.querySelector(selector);
+            if (!(node instanceof DomElement element) || element.getAttribute("href").isEmpty()) {
+                return null;
+            }
+            try {
+                return page.getFullyQualifiedUrl(element.getAttribute("href")).toString();
+            } catch (IOException e) {
+                return null;
+            }
+        });
+        return link != null ? link : fallback;
     }
 
-    private double extractPrice(DomNode parent, String cssQuery) {
-        String priceText = extractText(parent, cssQuery)
+    private double extractPrice(DomNode parent, SelectorPlan plan) {
+        String priceText = extractText(parent, plan)
                 .replaceAll("[^0-9.]", ""); // Keep only numbers and decimal
         try {
             return priceText.isEmpty() ? 0.0 : Double.parseDouble(priceText);
@@ -183,8 +315,8 @@ public class HtmlUnitScraperService {
         }
     }
 
-    private double extractRating(DomNode parent, String cssQuery) {
-        String ratingText = extractText(parent, cssQuery)
+    private double extractRating(DomNode parent, SelectorPlan plan) {
+        String ratingText = extractText(parent, plan)
                 .replaceAll("[^0-9.]", "");
         try {
             return ratingText.isEmpty() ? 0.0 : Double.parseDouble(ratingText);
@@ -193,8 +325,8 @@ public class HtmlUnitScraperService {
         }
     }
 
-    private Integer extractReviewCount(DomNode parent, String cssQuery) {
-        String reviewText = extractText(parent, cssQuery)
+    private Integer extractReviewCount(DomNode parent, SelectorPlan plan) {
+        String reviewText = extractText(parent, plan)
                 .replaceAll("[^0-9]", "");
         try {
             return reviewText.isEmpty() ? 0 : Integer.parseInt(reviewText);
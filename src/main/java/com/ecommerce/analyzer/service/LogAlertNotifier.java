@@ -0,0 +1,17 @@
+package com.ecommerce.analyzer.service;
+
+import com.ecommerce.analyzer.model.PriceAlert;
+import com.ecommerce.analyzer.service.PriceEventBus.PriceChanged;
+
+/**
+ * Log Alert Notifier
+ * Prints fired alerts to the console
+ */
+public class LogAlertNotifier implements AlertNotifier {
+
+    @Override
+    public void notify(PriceAlert alert, PriceChanged change) {
+        System.out.printf("[PriceAlert] 🔔 Alert #%d: %s - %s now ₹%.2f%n",
+                alert.getId(), alert.describe(), change.platform(), change.price());
+    }
+}
@@ -46,19 +46,8 @@ public class MockScraperService {
     }
 
     private double getBasePriceByCategory(String productName) {
-        String lower = productName.toLowerCase();
-        if (lower.contains("laptop") || lower.contains("macbook")) {
-            return 45000 + random.nextDouble() * 55000; // 45k-100k
-        } else if (lower.contains("phone") || lower.contains("iphone") || lower.contains("samsung")) {
-            return 15000 + random.nextDouble() * 85000; // 15k-100k
-        } else if (lower.contains("watch") || lower.contains("smartwatch")) {
-            return 2000 + random.nextDouble() * 48000; // 2k-50k
-        } else if (lower.contains("shoe") || lower.contains("sneaker")) {
-            return 1500 + random.nextDouble() * 8500; // 1.5k-10k
-        } else if (lower.contains("shirt") || lower.contains("tshirt")) {
-            return 300 + random.nextDouble() * 1700; // 300-2k
-        }
-        return 500 + random.nextDouble() * 9500; // Default: 500-10k
+        // Same category table as the Gemini scraper, so mock prices stay in step
+        return ProductCategoryClassifier.getInstance().classify(productName).samplePrice(random);
     }
 
     private double adjustPriceByPlatform(double basePrice, String platform) {
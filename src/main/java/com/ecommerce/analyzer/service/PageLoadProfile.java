@@ -0,0 +1,97 @@
+package com.ecommerce.analyzer.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Page Load Profile
+ * Per-platform rules for loading only what extraction needs:
+ * URL-pattern blocklist (images, fonts, media, ads, analytics),
+ * image loading and Selenium page-load strategy.
+ */
+public class PageLoadProfile {
+
+    // Blocked on every platform - static assets and third-party trackers
+    private static final List<String> COMMON_BLOCKLIST = List.of(
+            ".png", ".jpg", ".jpeg", ".gif", ".webp", ".avif", ".svg", ".ico",
+            ".woff", ".woff2", ".ttf", ".otf", ".eot",
+            ".mp4", ".webm", ".m3u8",
+            "google-analytics.com", "googletagmanager.com", "googlesyndication.com",
+            "doubleclick.net", "googleadservices.com", "facebook.net", "connect.facebook",
+            "hotjar.com", "clarity.ms", "scorecardresearch.com", "criteo.", "branch.io",
+            "newrelic.com", "nr-data.net", "sentry.io", "adsystem"
+    );
+
+    private final String platform;
+    private final List<String> blockedPatterns;
+    private final boolean loadImages;
+    private final boolean javaScriptEnabled;
+    private final String pageLoadStrategy;
+
+    private PageLoadProfile(String platform, List<String> platformPatterns,
+                            boolean loadImages, boolean javaScriptEnabled, String pageLoadStrategy) {
+        this.platform = platform;
+        this.blockedPatterns = new ArrayList<>(COMMON_BLOCKLIST);
+        this.blockedPatterns.addAll(platformPatterns);
+        this.loadImages = loadImages;
+        this.javaScriptEnabled = javaScriptEnabled;
+        this.pageLoadStrategy = pageLoadStrategy;
+    }
+
+    /**
+     * Get the lean profile for a platform
+     */
+    public static PageLoadProfile forPlatform(String platform) {
+        return switch (platform.toLowerCase(Locale.ROOT)) {
+            // Flipkart's own JS bundles (static-assets-web, fk-p-linchpin) must load:
+            // the result grid is rendered by them, so only images and beacons are cut
+            case "flipkart" -> new PageLoadProfile("Flipkart", List.of(
+                    "rukminim1.flixcart.com", "rukminim2.flixcart.com",
+                    "/dc/collect", "flipkart.d1.sc.omtrdc.net"
+            ), false, true, "eager");
+            case "amazon" -> new PageLoadProfile("Amazon", List.of(
+                    "m.media-amazon.com/images", "images-eu.ssl-images-amazon.com",
+                    "fls-eu.amazon", "unagi.amazon", "aax-eu.amazon", "/rd/uedata", "/1/batch/1/OE/"
+            ), false, true, "eager");
+            default -> new PageLoadProfile(platform, List.of(), false, true, "eager");
+        };
+    }
+
+    /**
+     * Whether a request URL should be dropped without being fetched
+     */
+    public boolean isBlocked(String url) {
+        String lower = url.toLowerCase(Locale.ROOT);
+        int query = lower.indexOf('?');
+        String path = query >= 0 ? lower.substring(0, query) : lower;
+
+        for (String pattern : blockedPatterns) {
+            // Extension patterns only match the path, host/path fragments match anywhere
+            if (pattern.startsWith(".") && pattern.indexOf('/') < 0 && !pattern.endsWith(".")) {
+                if (path.endsWith(pattern)) {
+                    return true;
+                }
+            } else if (lower.contains(pattern)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Blocklist as Chrome DevTools Network.setBlockedURLs wildcard patterns
+     */
+    public List<String> getChromeBlockedUrlPatterns() {
+        List<String> patterns = new ArrayList<>(blockedPatterns.size());
+        for (String pattern : blockedPatterns) {
+            patterns.add("*" + pattern + "*");
+        }
+        return patterns;
+    }
+
+    public String getPlatform() { return platform; }
+    public boolean isLoadImages() { return loadImages; }
+    public boolean isJavaScriptEnabled() { return javaScriptEnabled; }
+    public String getPageLoadStrategy() { return pageLoadStrategy; }
+}
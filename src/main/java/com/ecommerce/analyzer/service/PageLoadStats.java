@@ -0,0 +1,75 @@
+package com.ecommerce.analyzer.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Page Load Stats
+ * Bytes, request counts and render time for one scrape, plus running
+ * per-platform averages so bytes-per-scrape can be tracked over time.
+ */
+public class PageLoadStats {
+
+    private static final Map<String, AtomicLong[]> TOTALS = new ConcurrentHashMap<>();
+
+    private final String engine;
+    private final String platform;
+    private volatile long startNanos = System.nanoTime();
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong blockedRequests = new AtomicLong();
+
+    public PageLoadStats(String engine, String platform) {
+        this.engine = engine;
+        this.platform = platform;
+    }
+
+    /**
+     * Restart the render timer - call right before navigating
+     */
+    public void start() {
+        startNanos = System.nanoTime();
+    }
+
+    public void recordResponse(long responseBytes) {
+        requests.incrementAndGet();
+        if (responseBytes > 0) {
+            bytes.addAndGet(responseBytes);
+        }
+    }
+
+    public void recordBlocked() {
+        blockedRequests.incrementAndGet();
+    }
+
+    public void addBytes(long transferredBytes) {
+        if (transferredBytes > 0) {
+            bytes.addAndGet(transferredBytes);
+        }
+    }
+
+    public long getBytes() { return bytes.get(); }
+    public long getRequests() { return requests.get(); }
+    public long getBlockedRequests() { return blockedRequests.get(); }
+
+    public long getElapsedMs() {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    /**
+     * Print this scrape's numbers and the running average for the platform
+     */
+    public void report() {
+        long elapsed = getElapsedMs();
+        AtomicLong[] totals = TOTALS.computeIfAbsent(engine + ":" + platform,
+                key -> new AtomicLong[]{new AtomicLong(), new AtomicLong(), new AtomicLong()});
+        long scrapes = totals[0].incrementAndGet();
+        long totalBytes = totals[1].addAndGet(bytes.get());
+        long totalMs = totals[2].addAndGet(elapsed);
+
+        System.out.printf("[%s] %s page load: %,d KB in %d ms (%d requests, %d blocked) | avg %,d KB / %d ms over %d scrapes%n",
+                engine, platform, bytes.get() / 1024, elapsed, requests.get(), blockedRequests.get(),
+                totalBytes / scrapes / 1024, totalMs / scrapes, scrapes);
+    }
+}
@@ -0,0 +1,248 @@
+package com.ecommerce.analyzer.service;
+
+import com.ecommerce.analyzer.model.PriceAlert;
+import com.ecommerce.analyzer.model.ProductDetail;
+import com.ecommerce.analyzer.repository.PriceAlertRepository;
+import com.ecommerce.analyzer.repository.ProductDetailRepository;
+import com.ecommerce.analyzer.service.PriceEventBus.PriceChanged;
+import com.ecommerce.analyzer.util.ConfigManager;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Price Alert Engine
+ * Keeps every active alert in a PriceAlertIndex and checks each PriceChanged
+ * event from the bus against it, so a refresh that writes thousands of prices
+ * only touches the alerts those prices actually reach. Fired alerts are
+ * marked in price_alert and handed to the configured notifiers. Every
+ * alerts.sync.seconds the index picks up alerts registered on other nodes and
+ * drops the ones fired or deleted there.
+ */
+public class PriceAlertEngine {
+
+    private static PriceAlertEngine instance;
+
+    private final PriceAlertRepository alertRepository;
+    private final ProductDetailRepository productDetailRepository;
+    private final PriceAlertIndex index = new PriceAlertIndex();
+    private final List<AlertNotifier> notifiers;
+    private final int syncSeconds;
+    private PriceEventBus.Subscription subscription;
+    private ScheduledExecutorService syncer;
+    private volatile long lastSeenId;
+
+    private PriceAlertEngine() {
+        this.alertRepository = new PriceAlertRepository();
+        this.productDetailRepository = new ProductDetailRepository();
+        this.notifiers = createNotifiers();
+        this.syncSeconds = Math.max(5, ConfigManager.getIntProperty("alerts.sync.seconds", 60));
+    }
+
+    public static synchronized PriceAlertEngine getInstance() {
+        if (instance == null) {
+            instance = new PriceAlertEngine();
+        }
+        return instance;
+    }
+
+    /**
+     * Load active alerts and start listening for price changes.
+     * Price changes are never dropped: a full queue slows the writer instead.
+     */
+    public synchronized void start() throws SQLException {
+        if (subscription != null) {
+            return;
+        }
+        long startNanos = System.nanoTime();
+        List<PriceAlert> active = alertRepository.findActive();
+        synchronized (index) {
+            for (PriceAlert alert : active) {
+                index.add(alert);
+                lastSeenId = Math.max(lastSeenId, alert.getId());
+            }
+        }
+        System.out.printf("[PriceAlert] ✓ Loaded %d active alerts in %.0f ms (%d notifiers)%n",
+                active.size(), (System.nanoTime() - startNanos) / 1e6, notifiers.size());
+
+        subscription = PriceEventBus.getInstance().subscribe("price-alerts", PriceChanged.class,
+                this::onPriceChanged, PriceEventBus.Overflow.BLOCK_PUBLISHER);
+
+        syncer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "price-alert-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        syncer.scheduleWithFixedDelay(this::sync, syncSeconds, syncSeconds, TimeUnit.SECONDS);
+    }
+
+    public synchronized void stop() {
+        if (syncer != null) {
+            syncer.shutdownNow();
+            syncer = null;
+        }
+        if (subscription != null) {
+            subscription.close();
+            subscription = null;
+        }
+    }
+
+    /**
+     * Alert when any platform's price reaches targetPrice
+     */
+    public PriceAlert addBelowPriceAlert(Long productId, double targetPrice) throws SQLException {
+        if (targetPrice <= 0) {
+            throw new IllegalArgumentException("Target price must be positive");
+        }
+        return register(PriceAlert.belowPrice(productId, targetPrice));
+    }
+
+    /**
+     * Alert when any platform's price falls dropPercent below today's lowest price
+     */
+    public PriceAlert addPercentDropAlert(Long productId, double dropPercent) throws SQLException {
+        if (dropPercent <= 0 || dropPercent >= 100) {
+            throw new IllegalArgumentException("Drop must be between 0 and 100 percent");
+        }
+        double lowest = productDetailRepository.findByProductId(productId).stream()
+                .mapToDouble(ProductDetail::getPrice)
+                .filter(price -> price > 0)
+                .min()
+                .orElseThrow(() -> new SQLException("No prices known yet for product " + productId));
+        return register(PriceAlert.percentDrop(productId, dropPercent, lowest));
+    }
+
+    /**
+     * Delete an alert; it stops firing at once, whichever copy of it the caller holds
+     */
+    public void removeAlert(Long alertId) throws SQLException {
+        alertRepository.delete(alertId);
+        synchronized (index) {
+            index.remove(alertId);
+        }
+        System.out.println("[PriceAlert] Removed #" + alertId);
+    }
+
+    public List<PriceAlert> getAlerts(Long productId) throws SQLException {
+        return alertRepository.findByProductId(productId);
+    }
+
+    /**
+     * Save and index an alert. A price change is only published when a price
+     * moves, so a threshold today's lowest price already reaches is fired here
+     * instead of waiting for the next move.
+     */
+    private PriceAlert register(PriceAlert alert) throws SQLException {
+        alertRepository.insert(alert);
+        synchronized (index) {
+            index.add(alert);
+        }
+        System.out.println("[PriceAlert] Registered #" + alert.getId() + ": " + alert.describe());
+
+        productDetailRepository.findByProductId(alert.getProductId()).stream()
+                .filter(detail -> detail.getPrice() > 0)
+                .min(Comparator.comparingDouble(ProductDetail::getPrice))
+                .ifPresent(lowest -> onPriceChanged(new PriceChanged(alert.getProductId(), lowest.getId(),
+                        lowest.getPlatform(), null, lowest.getPrice(), Instant.now())));
+        return alert;
+    }
+
+    /**
+     * Index alerts registered elsewhere since the last sync and drop the ones
+     * no longer active in price_alert
+     */
+    private void sync() {
+        try {
+            // Ids first: an alert created after that read is neither in
+            // activeIds nor below its highest id, so retainActive keeps it
+            long afterId = lastSeenId;
+            Set<Long> activeIds = alertRepository.findActiveIds();
+            long snapshotMaxId = activeIds.stream().mapToLong(Long::longValue).max().orElse(afterId);
+            List<PriceAlert> added = alertRepository.findActiveAfter(afterId);
+            int dropped;
+            synchronized (index) {
+                for (PriceAlert alert : added) {
+                    index.add(alert);
+                    lastSeenId = Math.max(lastSeenId, alert.getId());
+                }
+                dropped = index.retainActive(activeIds, snapshotMaxId);
+            }
+            if (!added.isEmpty() || dropped > 0) {
+                System.out.println("[PriceAlert] Synced: +" + added.size() + " new, -" + dropped
+                        + " fired or removed elsewhere (" + index.size() + " indexed)");
+            }
+        } catch (SQLException e) {
+            System.err.println("[PriceAlert] ⚠ Sync failed: " + e.getMessage());
+        }
+    }
+
+    private void onPriceChanged(PriceChanged change) {
+        List<PriceAlert> fired;
+        synchronized (index) {
+            fired = index.match(change.productId(), change.productDetailId(), change.price());
+        }
+        if (fired.isEmpty()) {
+            return;
+        }
+
+        for (PriceAlert alert : fired) {
+            alert.setStatus(PriceAlert.Status.TRIGGERED);
+            alert.setTriggeredAt(change.at().atZone(ZoneId.systemDefault()).toLocalDateTime());
+            alert.setTriggeredPrice(change.price());
+            alert.setTriggeredPlatform(change.platform());
+        }
+        List<PriceAlert> marked;
+        try {
+            marked = alertRepository.markTriggered(fired);
+        } catch (SQLException e) {
+            // Put them back so the next price that reaches them tries again
+            System.err.println("[PriceAlert] ⚠ Could not mark " + fired.size() + " alerts triggered: " + e.getMessage());
+            synchronized (index) {
+                for (PriceAlert alert : fired) {
+                    alert.setStatus(PriceAlert.Status.ACTIVE);
+                    alert.setTriggeredAt(null);
+                    alert.setTriggeredPrice(null);
+                    alert.setTriggeredPlatform(null);
+                    index.add(alert);
+                }
+            }
+            return;
+        }
+        if (marked.size() < fired.size()) {
+            System.out.println("[PriceAlert] " + (fired.size() - marked.size())
+                    + " alerts already fired elsewhere or were removed - not notifying again");
+        }
+        for (PriceAlert alert : marked) {
+            for (AlertNotifier notifier : notifiers) {
+                notifier.notify(alert, change);
+            }
+        }
+    }
+
+    /**
+     * Notifiers named in alerts.notifiers (log, file)
+     */
+    private static List<AlertNotifier> createNotifiers() {
+        List<AlertNotifier> notifiers = new ArrayList<>();
+        for (String name : ConfigManager.getProperty("alerts.notifiers", "log").split(",")) {
+            switch (name.trim().toLowerCase(Locale.ROOT)) {
+                case "" -> { }
+                case "log" -> notifiers.add(new LogAlertNotifier());
+                case "file" -> notifiers.add(new FileAlertNotifier(
+                        Path.of(ConfigManager.getProperty("alerts.file.path", "price-alerts.log"))));
+                default -> System.err.println("[PriceAlert] Unknown notifier '" + name.trim() + "' ignored");
+            }
+        }
+        return notifiers;
+    }
+}
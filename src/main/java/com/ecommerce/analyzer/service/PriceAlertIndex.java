@@ -0,0 +1,132 @@
+package com.ecommerce.analyzer.service;
+
+import com.ecommerce.analyzer.model.PriceAlert;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Price Alert Index
+ * Active alerts sorted by threshold price, one TreeMap per product_detail.
+ * A new price only looks at the thresholds at or above it, so checking a
+ * price costs O(log n + fired) however many alerts exist. A detail's map is
+ * built the first time a price arrives for it, which also covers platforms
+ * that appear after an alert was registered. Alerts are one-shot: a match
+ * removes the alert everywhere. Alerts are keyed by id, so a copy loaded from
+ * the database removes the indexed instance. Not thread-safe; PriceAlertEngine
+ * guards it.
+ */
+public class PriceAlertIndex {
+
+    // Prices within half a paisa of the threshold count as reaching it
+    private static final double EPSILON = 0.005;
+
+    private final Map<Long, PriceAlert> alertsById = new HashMap<>();
+    private final Map<Long, List<PriceAlert>> alertsByProduct = new HashMap<>();
+    private final Map<Long, TreeMap<Double, List<PriceAlert>>> thresholdsByDetail = new HashMap<>();
+    private final Map<Long, Set<Long>> detailsByProduct = new HashMap<>();
+
+    public void add(PriceAlert alert) {
+        if (alertsById.putIfAbsent(alert.getId(), alert) != null) {
+            return; // Already indexed
+        }
+        alertsByProduct.computeIfAbsent(alert.getProductId(), id -> new ArrayList<>()).add(alert);
+        for (Long detailId : detailsByProduct.getOrDefault(alert.getProductId(), Set.of())) {
+            insert(thresholdsByDetail.get(detailId), alert);
+        }
+    }
+
+    /**
+     * Remove the alert with this id
+     * @return false if it wasn't indexed (already fired or never loaded)
+     */
+    public boolean remove(Long alertId) {
+        PriceAlert alert = alertsById.remove(alertId);
+        if (alert == null) {
+            return false;
+        }
+        List<PriceAlert> productAlerts = alertsByProduct.get(alert.getProductId());
+        productAlerts.remove(alert);
+        if (productAlerts.isEmpty()) {
+            alertsByProduct.remove(alert.getProductId());
+        }
+        for (Long detailId : detailsByProduct.getOrDefault(alert.getProductId(), Set.of())) {
+            TreeMap<Double, List<PriceAlert>> thresholds = thresholdsByDetail.get(detailId);
+            List<PriceAlert> atThreshold = thresholds.get(alert.getThresholdPrice());
+            if (atThreshold != null && atThreshold.remove(alert) && atThreshold.isEmpty()) {
+                thresholds.remove(alert.getThresholdPrice());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Remove indexed alerts with ids up to maxId that are not in activeIds -
+     * fired or deleted elsewhere. Newer ids are left alone: they may have been
+     * registered after activeIds was read.
+     * @return number of alerts removed
+     */
+    public int retainActive(Set<Long> activeIds, long maxId) {
+        List<Long> stale = new ArrayList<>();
+        for (Long id : alertsById.keySet()) {
+            if (id <= maxId && !activeIds.contains(id)) {
+                stale.add(id);
+            }
+        }
+        stale.forEach(this::remove);
+        return stale.size();
+    }
+
+    /**
+     * Alerts whose threshold the new price reaches; they are removed from the index
+     */
+    public List<PriceAlert> match(Long productId, Long productDetailId, double price) {
+        TreeMap<Double, List<PriceAlert>> thresholds = thresholdsByDetail.get(productDetailId);
+        if (thresholds == null) {
+            if (!alertsByProduct.containsKey(productId)) {
+                return List.of(); // Nothing registered - don't build maps for it
+            }
+            thresholds = attach(productId, productDetailId);
+        }
+
+        NavigableMap<Double, List<PriceAlert>> reached = thresholds.tailMap(price - EPSILON, true);
+        if (reached.isEmpty()) {
+            return List.of();
+        }
+        List<PriceAlert> fired = new ArrayList<>();
+        for (List<PriceAlert> atThreshold : reached.values()) {
+            fired.addAll(atThreshold);
+        }
+        for (PriceAlert alert : fired) {
+            remove(alert.getId());
+        }
+        return fired;
+    }
+
+    public int size() {
+        return alertsById.size();
+    }
+
+    /**
+     * Build the threshold map of a detail seen for the first time
+     */
+    private TreeMap<Double, List<PriceAlert>> attach(Long productId, Long productDetailId) {
+        TreeMap<Double, List<PriceAlert>> thresholds = new TreeMap<>();
+        for (PriceAlert alert : alertsByProduct.get(productId)) {
+            insert(thresholds, alert);
+        }
+        thresholdsByDetail.put(productDetailId, thresholds);
+        detailsByProduct.computeIfAbsent(productId, id -> new HashSet<>()).add(productDetailId);
+        return thresholds;
+    }
+
+    private static void insert(TreeMap<Double, List<PriceAlert>> thresholds, PriceAlert alert) {
+        thresholds.computeIfAbsent(alert.getThresholdPrice(), price -> new ArrayList<>(1)).add(alert);
+    }
+}
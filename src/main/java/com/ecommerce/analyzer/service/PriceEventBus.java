@@ -0,0 +1,222 @@
+package com.ecommerce.analyzer.service;
+
+import com.ecommerce.analyzer.model.ProductDetail;
+import com.ecommerce.analyzer.util.ConfigManager;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Price Event Bus
+ * In-process publish/subscribe for data changes written by ProductService.
+ * Every subscriber gets its own single-thread executor and bounded queue, so a
+ * slow subscriber never delays the writer or the other subscribers. What
+ * happens when a subscriber's queue is full is chosen per subscriber.
+ */
+public class PriceEventBus {
+
+    /** Base type of everything published on the bus */
+    public sealed interface Event permits PriceChanged, DetailChanged {
+        Long productId();
+        Instant at();
+    }
+
+    /**
+     * A platform's price moved (or the platform appeared; previousPrice is then null)
+     */
+    public record PriceChanged(Long productId, Long productDetailId, String platform,
+                               Double previousPrice, double price, Instant at) implements Event {
+        /** Percentage drop from the previous price; negative for a rise, 0 when new */
+        public double dropPercent() {
+            return previousPrice == null || previousPrice <= 0 ? 0.0 : (previousPrice - price) / previousPrice * 100.0;
+        }
+    }
+
+    /**
+     * Some stored field of a platform's row changed; detail holds the values just written
+     */
+    public record DetailChanged(Long productId, Long productDetailId, String platform,
+                                Set<String> changedFields, ProductDetail detail, Instant at) implements Event {
+    }
+
+    /** What to do when a subscriber's queue is full */
+    public enum Overflow {
+        /** Drop the oldest queued event - for consumers that only need the latest state */
+        DROP_OLDEST,
+        /** Drop the new event */
+        DROP_NEWEST,
+        /**
+         * Make the publishing thread wait for room, slowing the writer down.
+         * Nothing is lost and the subscriber's thread still runs every event in order.
+         */
+        BLOCK_PUBLISHER
+    }
+
+    /** Handle for one subscription */
+    public static final class Subscription implements AutoCloseable {
+        private final String name;
+        private final Class<? extends Event> type;
+        private final Consumer<Event> handler;
+        private final ThreadPoolExecutor executor;
+        private final AtomicLong delivered = new AtomicLong();
+        private final AtomicLong dropped = new AtomicLong();
+
+        private Subscription(String name, Class<? extends Event> type, Consumer<Event> handler,
+                             int capacity, Overflow overflow) {
+            this.name = name;
+            this.type = type;
+            this.handler = handler;
+            this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(Math.max(1, capacity)), runnable -> {
+                        Thread thread = new Thread(runnable, "event-" + name);
+                        thread.setDaemon(true);
+                        return thread;
+                    }, rejectionHandler(overflow));
+        }
+
+        private RejectedExecutionHandler rejectionHandler(Overflow overflow) {
+            ThreadPoolExecutor.DiscardOldestPolicy discardOldest = new ThreadPoolExecutor.DiscardOldestPolicy();
+            return (task, pool) -> {
+                if (pool.isShutdown()) {
+                    return;
+                }
+                switch (overflow) {
+                    case DROP_OLDEST -> {
+                        countDrop();
+                        discardOldest.rejectedExecution(task, pool);
+                    }
+                    case DROP_NEWEST -> countDrop();
+                    case BLOCK_PUBLISHER -> waitForRoom(task, pool);
+                }
+            };
+        }
+
+        /**
+         * Queue the task once there is room, polling so a shutdown can't strand the publisher
+         */
+        private void waitForRoom(Runnable task, ThreadPoolExecutor pool) {
+            try {
+                while (!pool.getQueue().offer(task, 100, TimeUnit.MILLISECONDS)) {
+                    if (pool.isShutdown()) {
+                        countDrop();
+                        return;
+                    }
+                }
+                // Closed while we waited and the worker has already drained the queue
+                if (pool.isTerminated() && pool.getQueue().remove(task)) {
+                    countDrop();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                countDrop();
+            }
+        }
+
+        private void countDrop() {
+            long total = dropped.incrementAndGet();
+            if (total == 1 || total % 1000 == 0) {
+                System.err.println("[EventBus] ⚠ " + name + " is falling behind - " + total + " events dropped");
+            }
+        }
+
+        private void offer(Event event) {
+            if (type.isInstance(event)) {
+                executor.execute(() -> {
+                    try {
+                        handler.accept(event);
+                        delivered.incrementAndGet();
+                    } catch (Exception e) {
+                        System.err.println("[EventBus] ⚠ " + name + " failed on " + event.getClass().getSimpleName()
+                                + ": " + e.getMessage());
+                    }
+                });
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getDelivered() {
+            return delivered.get();
+        }
+
+        public long getDropped() {
+            return dropped.get();
+        }
+
+        /**
+         * Stop receiving events; events already queued are still delivered
+         */
+        @Override
+        public void close() {
+            getInstance().subscriptions.remove(this);
+            executor.shutdown();
+        }
+    }
+
+    private static PriceEventBus instance;
+
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final int defaultCapacity;
+
+    private PriceEventBus() {
+        this.defaultCapacity = Math.max(1, ConfigManager.getIntProperty("events.queue.capacity", 1024));
+    }
+
+    public static synchronized PriceEventBus getInstance() {
+        if (instance == null) {
+            instance = new PriceEventBus();
+        }
+        return instance;
+    }
+
+    /**
+     * Subscribe to one event type with the default queue capacity
+     */
+    public <E extends Event> Subscription subscribe(String name, Class<E> type, Consumer<E> handler, Overflow overflow) {
+        return subscribe(name, type, handler, defaultCapacity, overflow);
+    }
+
+    /**
+     * Subscribe to one event type (Event.class for everything)
+     * @param name used for the subscriber's thread and in logs
+     * @param capacity events that may wait for this subscriber before overflow applies
+     */
+    public <E extends Event> Subscription subscribe(String name, Class<E> type, Consumer<E> handler,
+                                                    int capacity, Overflow overflow) {
+        Subscription subscription = new Subscription(name, type, event -> handler.accept(type.cast(event)),
+                capacity, overflow);
+        subscriptions.add(subscription);
+        System.out.println("[EventBus] " + name + " subscribed to " + type.getSimpleName());
+        return subscription;
+    }
+
+    /**
+     * Hand the event to every matching subscriber. Returns at once unless a
+     * full subscriber was registered with BLOCK_PUBLISHER; then it waits until
+     * that subscriber's queue has room.
+     */
+    public void publish(Event event) {
+        for (Subscription subscription : subscriptions) {
+            subscription.offer(event);
+        }
+    }
+
+    /**
+     * Stop all subscribers, letting each finish what is already queued
+     */
+    public void shutdown() {
+        for (Subscription subscription : subscriptions) {
+            subscription.close();
+        }
+    }
+}
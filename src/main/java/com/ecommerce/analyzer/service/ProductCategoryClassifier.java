@@ -0,0 +1,199 @@
+package com.ecommerce.analyzer.service;
+
+import com.google.gson.Gson;
+
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Product Category Classifier
+ * Classifies a product name against the keyword table in
+ * /data/product-categories.json. All keywords are compiled into one
+ * Aho-Corasick automaton, so the name is scanned once regardless of how many
+ * keywords there are. One call gives the category, the platforms that sell it
+ * and the base price band.
+ */
+public class ProductCategoryClassifier {
+
+    private static final String TABLE_RESOURCE = "/data/product-categories.json";
+    private static ProductCategoryClassifier instance;
+
+    /** Result of classifying one product name */
+    public record Classification(String category, List<String> platforms,
+                                 double priceMin, double priceMax, String matchedKeyword) {
+
+        public String[] platformArray() {
+            return platforms.toArray(new String[0]);
+        }
+
+        /** Base price drawn from the band (exact when the band is a single price) */
+        public double samplePrice(Random random) {
+            return priceMin + random.nextDouble() * (priceMax - priceMin);
+        }
+    }
+
+    // Table file layout (read by Gson)
+    private record Table(CategoryEntry defaultCategory, List<CategoryEntry> categories) {
+    }
+
+    private record CategoryEntry(String name, List<String> platforms, double priceMin, double priceMax,
+                                 List<KeywordEntry> keywords) {
+    }
+
+    private record KeywordEntry(String keyword, Double priceMin, Double priceMax) {
+    }
+
+    /** One compiled keyword: its category's precedence and its own band, if any */
+    private record Keyword(String text, int category, Double priceMin, Double priceMax) {
+    }
+
+    private final List<CategoryEntry> categories;
+    private final Classification fallback;
+    private final List<Keyword> keywords = new ArrayList<>();
+
+    // Automaton: goto transitions, failure links and per-state matched keyword ids
+    private final List<Map<Character, Integer>> transitions = new ArrayList<>();
+    private final List<Integer> failure = new ArrayList<>();
+    private final List<List<Integer>> outputs = new ArrayList<>();
+
+    private ProductCategoryClassifier(Table table) {
+        this.categories = table.categories();
+        CategoryEntry general = table.defaultCategory();
+        this.fallback = new Classification(general.name(), List.copyOf(general.platforms()),
+                general.priceMin(), general.priceMax(), null);
+
+        newState();
+        for (int c = 0; c < categories.size(); c++) {
+            for (KeywordEntry entry : categories.get(c).keywords()) {
+                addKeyword(new Keyword(entry.keyword().toLowerCase(), c, entry.priceMin(), entry.priceMax()));
+            }
+        }
+        buildFailureLinks();
+        System.out.println("[Classifier] ✓ Compiled " + keywords.size() + " keywords in "
+                + categories.size() + " categories (" + transitions.size() + " states)");
+    }
+
+    public static synchronized ProductCategoryClassifier getInstance() {
+        if (instance == null) {
+            instance = new ProductCategoryClassifier(loadTable());
+        }
+        return instance;
+    }
+
+    private static Table loadTable() {
+        try (InputStream input = ProductCategoryClassifier.class.getResourceAsStream(TABLE_RESOURCE)) {
+            if (input == null) {
+                throw new IllegalStateException("Unable to find " + TABLE_RESOURCE);
+            }
+            return new Gson().fromJson(new InputStreamReader(input, StandardCharsets.UTF_8), Table.class);
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to load category table " + TABLE_RESOURCE, e);
+        }
+    }
+
+    /**
+     * Classify in a single pass over the name.
+     * The earliest-listed matching category wins; within it the longest keyword
+     * that has a price band sets the band, otherwise the category's band applies.
+     */
+    public Classification classify(String productName) {
+        if (productName == null || productName.isBlank()) {
+            return fallback;
+        }
+        String text = productName.toLowerCase();
+
+        int bestCategory = Integer.MAX_VALUE;
+        Keyword bestBand = null;
+        Keyword firstMatch = null;
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            state = next(state, text.charAt(i));
+            for (int id : outputs.get(state)) {
+                Keyword keyword = keywords.get(id);
+                int start = i - keyword.text().length() + 1;
+                if (start > 0 && Character.isLetterOrDigit(text.charAt(start - 1))) {
+                    continue; // Only match at the start of a word ("toy" is not in "toyota")
+                }
+                if (keyword.category() < bestCategory) {
+                    bestCategory = keyword.category();
+                    bestBand = null;
+                    firstMatch = keyword;
+                }
+                if (keyword.category() == bestCategory && keyword.priceMin() != null
+                        && (bestBand == null || keyword.text().length() > bestBand.text().length())) {
+                    bestBand = keyword;
+                }
+            }
+        }
+
+        if (firstMatch == null) {
+            return fallback;
+        }
+        CategoryEntry category = categories.get(bestCategory);
+        if (bestBand == null) {
+            return new Classification(category.name(), List.copyOf(category.platforms()),
+                    category.priceMin(), category.priceMax(), firstMatch.text());
+        }
+        double max = bestBand.priceMax() != null ? bestBand.priceMax() : bestBand.priceMin();
+        return new Classification(category.name(), List.copyOf(category.platforms()),
+                bestBand.priceMin(), max, bestBand.text());
+    }
+
+    private int newState() {
+        transitions.add(new HashMap<>());
+        failure.add(0);
+        outputs.add(new ArrayList<>());
+        return transitions.size() - 1;
+    }
+
+    private void addKeyword(Keyword keyword) {
+        int state = 0;
+        for (char ch : keyword.text().toCharArray()) {
+            Integer target = transitions.get(state).get(ch);
+            if (target == null) {
+                target = newState();
+                transitions.get(state).put(ch, target);
+            }
+            state = target;
+        }
+        keywords.add(keyword);
+        outputs.get(state).add(keywords.size() - 1);
+    }
+
+    /**
+     * Breadth-first failure links; each state also inherits its failure state's matches
+     */
+    private void buildFailureLinks() {
+        Deque<Integer> queue = new ArrayDeque<>(transitions.get(0).values());
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (Map.Entry<Character, Integer> edge : transitions.get(state).entrySet()) {
+                int child = edge.getValue();
+                int fail = failure.get(state);
+                while (fail != 0 && !transitions.get(fail).containsKey(edge.getKey())) {
+                    fail = failure.get(fail);
+                }
+                Integer target = transitions.get(fail).get(edge.getKey());
+                int link = target != null && target != child ? target : 0;
+                failure.set(child, link);
+                outputs.get(child).addAll(outputs.get(link));
+                queue.add(child);
+            }
+        }
+    }
+
+    private int next(int state, char ch) {
+        while (state != 0 && !transitions.get(state).containsKey(ch)) {
+            state = failure.get(state);
+        }
+        return transitions.get(state).getOrDefault(ch, 0);
+    }
+}
@@ -3,12 +3,27 @@ package com.ecommerce.analyzer.service;
 import com.ecommerce.analyzer.model.Product;
 import com.ecommerce.analyzer.model.ProductDetail;
 import com.ecommerce.analyzer.model.PriceHistory;
+import com.ecommerce.analyzer.model.ScrapeJob;
 import com.ecommerce.analyzer.repository.ProductRepository;
 import com.ecommerce.analyzer.repository.ProductDetailRepository;
+import com.ecommerce.analyzer.repository.ProductDetailRepository.UpsertResult;
 import com.ecommerce.analyzer.repository.PriceHistoryRepository;
+import com.ecommerce.analyzer.repository.RecommendationRepository;
+import com.ecommerce.analyzer.service.GeminiProductScraperService.ScrapeRequest;
+import com.ecommerce.analyzer.service.PriceEventBus.DetailChanged;
+import com.ecommerce.analyzer.service.PriceEventBus.PriceChanged;
+import com.ecommerce.analyzer.service.GeminiProductScraperService.ScrapeResult;
+import com.ecommerce.analyzer.util.ConfigManager;
+import com.ecommerce.analyzer.util.DBUtil;
 
+import java.sql.Connection;
 import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Product Service
@@ -16,16 +31,41 @@ import java.util.List;
  */
 public class ProductService {
 
+    // Scrape job types and priorities
+    public static final String JOB_SCRAPE_ALL_PLATFORMS = "SCRAPE_ALL_PLATFORMS";
+    public static final String JOB_REFRESH_ALL_PLATFORMS = "REFRESH_ALL_PLATFORMS";
+    public static final int PRIORITY_INTERACTIVE = 10;
+
     private final ProductRepository productRepository;
     private final ProductDetailRepository productDetailRepository;
     private final PriceHistoryRepository priceHistoryRepository;
+    private final RecommendationRepository recommendationRepository;
     private final ScraperService scraperService;
+    private final ScrapeJobQueueService jobQueue;
+    private final RefreshScheduler refreshScheduler;
+    private final PriceEventBus eventBus;
+    private final boolean useJobQueue;
+    private final long jobTimeoutMs;
+    private final boolean combinedRecommendation;
+    private final int priceHeartbeatHours;
 
     public ProductService() {
         this.productRepository = new ProductRepository();
         this.productDetailRepository = new ProductDetailRepository();
         this.priceHistoryRepository = new PriceHistoryRepository();
+        this.recommendationRepository = new RecommendationRepository();
         this.scraperService = new ScraperService();
+        this.jobQueue = ScrapeJobQueueService.getInstance();
+        this.refreshScheduler = new RefreshScheduler();
+        this.eventBus = PriceEventBus.getInstance();
+        this.useJobQueue = ConfigManager.getBooleanProperty("scrape.queue.enabled", true);
+        this.jobTimeoutMs = ConfigManager.getIntProperty("scrape.queue.await.timeout.seconds", 180) * 1000L;
+        this.combinedRecommendation = ConfigManager.getBooleanProperty("gemini.combined.recommendation.enabled", false);
+        this.priceHeartbeatHours = Math.max(1, ConfigManager.getIntProperty("price.history.heartbeat.hours", 24));
+
+        if (useJobQueue) {
+            jobQueue.start(this::runScrapeJob);
+        }
     }
 
     /**
@@ -64,9 +104,56 @@ public class ProductService {
 
     /**
      * Scrape product details for ALL platforms at once
-     * This is the preferred method for multi-platform comparison
+     * This is the preferred method for multi-platform comparison.
+     * With the job queue enabled the scrape is enqueued and awaited, so it
+     * survives crashes and is shared across worker threads and instances.
      */
     public void scrapeAllPlatformDetails(Long productId) throws SQLException {
+        runAllPlatforms(productId, JOB_SCRAPE_ALL_PLATFORMS);
+    }
+
+    /**
+     * Run a scrape job of the given type, through the queue when it is enabled
+     */
+    private void runAllPlatforms(Long productId, String jobType) throws SQLException {
+        if (!useJobQueue) {
+            scrapeAndSaveAllPlatforms(productId, JOB_SCRAPE_ALL_PLATFORMS.equals(jobType));
+            return;
+        }
+
+        try {
+            ScrapeJob job = jobQueue.enqueueAndAwait(productId, jobType,
+                    PRIORITY_INTERACTIVE, jobTimeoutMs);
+            if (job.getStatus() == ScrapeJob.Status.DEAD) {
+                throw new SQLException("Scrape job " + job.getId() + " failed: " + job.getLastError());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for scrape job", e);
+        } catch (TimeoutException e) {
+            throw new SQLException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Queue worker entry point - executes a claimed scrape job
+     */
+    private void runScrapeJob(ScrapeJob job) throws SQLException {
+        if (JOB_SCRAPE_ALL_PLATFORMS.equals(job.getJobType())) {
+            scrapeAndSaveAllPlatforms(job.getProductId(), true);
+        } else if (JOB_REFRESH_ALL_PLATFORMS.equals(job.getJobType())) {
+            scrapeAndSaveAllPlatforms(job.getProductId(), false);
+        } else {
+            throw new IllegalArgumentException("Unknown scrape job type: " + job.getJobType());
+        }
+    }
+
+    /**
+     * Scrape all platforms for a product and save the results
+     * @param firstLookup a new product; only then is the combined recommendation
+     *                    worth asking for, since refreshes never show the stored one
+     */
+    private void scrapeAndSaveAllPlatforms(Long productId, boolean firstLookup) throws SQLException {
         Product product = productRepository.findById(productId);
         if (product == null) {
             throw new SQLException("Product not found with ID: " + productId);
@@ -75,34 +162,117 @@ public class ProductService {
         System.out.println("\n[ProductService] 🚀 Starting multi-platform data retrieval...");
         System.out.println("[ProductService] Product: " + product.getName());
 
-        // Get data for ALL platforms at once using Gemini
-        List<ProductDetail> allPlatforms = scraperService.scrapeAllPlatforms(
-                product.getName(),
-                productId
-        );
+        // Get data for ALL platforms at once using Gemini; optionally the
+        // recommendation comes back in the same response and is stored with it
+        ScrapeResult result = combinedRecommendation && firstLookup
+                ? scraperService.scrapeAllPlatformsWithRecommendation(product.getName(), productId)
+                : new ScrapeResult(scraperService.scrapeAllPlatforms(product.getName(), productId), null);
+        List<ProductDetail> allPlatforms = result.details();
 
         if (allPlatforms != null && !allPlatforms.isEmpty()) {
-            System.out.println("[ProductService] 💾 Saving " + allPlatforms.size() + " platform details to database...");
+            saveAllPlatforms(productId, allPlatforms);
+            if (result.recommendation() != null) {
+                recommendationRepository.save(productId, result.recommendation());
+                System.out.println("[ProductService] 💡 Recommendation saved with the platform data");
+            }
+        } else {
+            System.err.println("[ProductService] ⚠ No product details retrieved");
+        }
+    }
 
-            // Save each platform's data
-            for (ProductDetail detail : allPlatforms) {
-                Long detailId = productDetailRepository.upsert(detail);
+    /**
+     * Scrape all platforms for many products at once (refreshes and imports).
+     * Products are scraped in batches, so the AI source needs far fewer requests.
+     * Safe to call from several threads at once.
+     * @return ids of the products whose data was saved
+     */
+    public List<Long> scrapeAllPlatformDetails(List<Product> products) {
+        List<ScrapeRequest> requests = new ArrayList<>();
+        for (Product product : products) {
+            requests.add(new ScrapeRequest(product.getName(), product.getId()));
+        }
 
-                // Record price history for each platform
-                PriceHistory priceHistory = new PriceHistory();
-                priceHistory.setProductDetailId(detailId);
-                priceHistory.setPrice(detail.getPrice());
-                priceHistoryRepository.insert(priceHistory);
+        System.out.println("\n[ProductService] 🚀 Starting batched retrieval for " + requests.size() + " products...");
+        Map<ScrapeRequest, List<ProductDetail>> results = scraperService.scrapeAllPlatforms(requests);
 
-                System.out.println("  ✓ " + detail.getPlatform() + ": ₹" +
-                        String.format("%.2f", detail.getPrice()) +
-                        " (" + detail.getRating() + "⭐)");
+        List<Long> saved = new ArrayList<>();
+        for (Map.Entry<ScrapeRequest, List<ProductDetail>> entry : results.entrySet()) {
+            List<ProductDetail> allPlatforms = entry.getValue();
+            if (allPlatforms == null || allPlatforms.isEmpty()) {
+                System.err.println("[ProductService] ⚠ No product details retrieved for " + entry.getKey().productName());
+                continue;
+            }
+            System.out.println("[ProductService] Product: " + entry.getKey().productName());
+            try {
+                saveAllPlatforms(entry.getKey().productId(), allPlatforms);
+                saved.add(entry.getKey().productId());
+            } catch (SQLException e) {
+                // One bad row shouldn't lose the rest of the batch
+                System.err.println("[ProductService] ⚠ Failed to save " + entry.getKey().productName() + ": " + e.getMessage());
             }
+        }
+        return saved;
+    }
 
-            System.out.println("[ProductService] ✓ All platform data saved successfully!\n");
-        } else {
-            System.err.println("[ProductService] ⚠ No product details retrieved");
+    public long getCatalogSize() throws SQLException {
+        return productRepository.count();
+    }
+
+    /**
+     * Save every platform of one product, its price points and its timestamp
+     * in a single transaction. Unchanged rows and repeated prices aren't rewritten.
+     */
+    private void saveAllPlatforms(Long productId, List<ProductDetail> allPlatforms) throws SQLException {
+        System.out.println("[ProductService] 💾 Saving " + allPlatforms.size() + " platform details to database...");
+
+        List<UpsertResult> results;
+        try (Connection conn = DBUtil.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                results = productDetailRepository.upsertAll(conn, productId, allPlatforms);
+
+                // Price history keeps change points, plus a heartbeat for prices that hold
+                List<PriceHistory> points = new ArrayList<>();
+                for (int i = 0; i < allPlatforms.size(); i++) {
+                    PriceHistory priceHistory = new PriceHistory();
+                    priceHistory.setProductDetailId(results.get(i).id());
+                    priceHistory.setPrice(allPlatforms.get(i).getPrice());
+                    points.add(priceHistory);
+                }
+                priceHistoryRepository.insertIfChanged(conn, points, priceHeartbeatHours);
+                productRepository.updateTimestamp(conn, productId);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
         }
+
+        // Committed - tell subscribers what actually changed
+        Instant now = Instant.now();
+        int unchanged = 0;
+        for (int i = 0; i < allPlatforms.size(); i++) {
+            ProductDetail detail = allPlatforms.get(i);
+            UpsertResult result = results.get(i);
+            if (!result.changed()) {
+                unchanged++;
+            } else {
+                detail.setId(result.id());
+                if (result.priceChanged()) {
+                    eventBus.publish(new PriceChanged(productId, result.id(), detail.getPlatform(),
+                            result.previousPrice(), detail.getPrice(), now));
+                }
+                eventBus.publish(new DetailChanged(productId, result.id(), detail.getPlatform(),
+                        result.inserted() ? Set.of("new") : result.changedFields(), detail, now));
+            }
+            System.out.println("  " + (result.changed() ? "✓ " : "= ") + detail.getPlatform() + ": ₹" +
+                    String.format("%.2f", detail.getPrice()) +
+                    " (" + detail.getRating() + "⭐)" +
+                    (result.priceChanged() && result.previousPrice() != null
+                            ? String.format(" was ₹%.2f", result.previousPrice()) : ""));
+        }
+
+        System.out.println("[ProductService] ✓ All platform data saved (" + unchanged + " unchanged)\n");
     }
 
     /**
@@ -112,6 +282,20 @@ public class ProductService {
         return productDetailRepository.findByProductId(productId);
     }
 
+    /**
+     * Recommendation saved alongside the platform data, if any
+     */
+    public String getStoredRecommendation(Long productId) throws SQLException {
+        return recommendationRepository.findByProductId(productId);
+    }
+
+    /**
+     * Count a view of the product; frequently viewed products are refreshed sooner
+     */
+    public void recordProductView(Long productId) {
+        refreshScheduler.recordView(productId);
+    }
+
     /**
      * Get price history for a product detail
      */
@@ -120,32 +304,17 @@ public class ProductService {
     }
 
     /**
-     * Refresh product data (re-scrape)
+     * Refresh product data (re-scrape).
+     * Goes through the same path as a new product: one multi-platform scrape
+     * and one transactional write of every platform and its price history,
+     * without the combined recommendation. The product's refresh cadence
+     * restarts from now.
      */
     public void refreshProduct(Long productId) throws SQLException {
-        Product product = productRepository.findByUrl(
-                productRepository.searchByName("").stream()
-                        .filter(p -> p.getId().equals(productId))
-                        .findFirst()
-                        .orElseThrow(() -> new SQLException("Product not found"))
-                        .getProductUrl()
-        );
-        if (product != null) {
-            ProductDetail detail = scraperService.scrapeProduct(
-                    product.getProductUrl(),
-                    product.getName(),  // ADD THIS PARAMETER
-                    productId
-            );
-            if (detail != null) {
-                Long detailId = productDetailRepository.upsert(detail);
-
-                // Update price history
-                PriceHistory priceHistory = new PriceHistory();
-                priceHistory.setProductDetailId(detailId);
-                priceHistory.setPrice(detail.getPrice());
-                priceHistoryRepository.insert(priceHistory);
-            }
-            productRepository.updateTimestamp(productId);
+        if (productRepository.findById(productId) == null) {
+            throw new SQLException("Product not found with ID: " + productId);
         }
+        runAllPlatforms(productId, JOB_REFRESH_ALL_PLATFORMS);
+        refreshScheduler.completed(productId);
     }
 }
\ No newline at end of file
@@ -0,0 +1,163 @@
+package com.ecommerce.analyzer.service;
+
+import com.ecommerce.analyzer.model.ProductDetail;
+import com.ecommerce.analyzer.util.ConfigManager;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Prompt Builder
+ * Compact Gemini prompts: the fixed instructions go in systemInstruction and
+ * the per-call data is encoded as CSV. The data part is held to a token
+ * budget by dropping the least useful columns first.
+ */
+public class PromptBuilder {
+
+    private static final int MAX_CELL_CHARS = 48;
+
+    /** Platform columns, in the order they appear in the table */
+    public enum Column {
+        PLATFORM("platform", ProductDetail::getPlatform),
+        PRICE("price", d -> d.getPrice() != null ? String.format("%.0f", d.getPrice()) : ""),
+        RATING("rating", d -> d.getRating() != null ? String.format("%.1f", d.getRating()) : ""),
+        REVIEWS("reviews", d -> d.getReviewCount() != null ? String.valueOf(d.getReviewCount()) : ""),
+        DELIVERY("delivery", ProductDetail::getDeliveryTime),
+        RETURNS("returns", ProductDetail::getReturnPolicy),
+        WARRANTY("warranty", ProductDetail::getWarranty),
+        SELLER("seller", ProductDetail::getSeller),
+        OFFERS("offers", ProductDetail::getOffers);
+
+        private final String header;
+        private final Function<ProductDetail, String> value;
+
+        Column(String header, Function<ProductDetail, String> value) {
+            this.header = header;
+            this.value = value;
+        }
+    }
+
+    // Dropped first when over budget: free text that rarely changes the answer
+    private static final List<Column> TRIM_ORDER = List.of(
+            Column.OFFERS, Column.SELLER, Column.WARRANTY, Column.REVIEWS, Column.RETURNS, Column.DELIVERY);
+
+    private final String systemInstruction;
+    private final int tokenBudget;
+    private final StringBuilder text = new StringBuilder();
+
+    public PromptBuilder(String systemInstruction, int tokenBudget) {
+        this.systemInstruction = systemInstruction;
+        this.tokenBudget = tokenBudget;
+    }
+
+    /**
+     * Builder with the configured budget for the per-call part of the prompt
+     */
+    public static PromptBuilder withSystemInstruction(String systemInstruction) {
+        return new PromptBuilder(systemInstruction, ConfigManager.getIntProperty("gemini.prompt.token.budget", 1200));
+    }
+
+    public PromptBuilder line(String line) {
+        text.append(line).append('\n');
+        return this;
+    }
+
+    /**
+     * Append platform data as CSV, dropping low-value columns (then rows) to fit the budget
+     */
+    public PromptBuilder table(List<ProductDetail> details) {
+        long available = tokenBudget - estimateTokens(text);
+        List<Column> columns = new ArrayList<>(Arrays.asList(Column.values()));
+        List<Column> dropped = new ArrayList<>();
+
+        String csv = encode(details, columns);
+        for (Column column : TRIM_ORDER) {
+            if (estimateTokens(csv) <= available) break;
+            columns.remove(column);
+            dropped.add(column);
+            csv = encode(details, columns);
+        }
+
+        int rows = details.size();
+        while (estimateTokens(csv) > available && rows > 2) {
+            csv = encode(details.subList(0, --rows), columns);
+        }
+
+        text.append(csv);
+        System.out.printf("[PromptBuilder] Table: %d/%d rows, ~%d tokens%s%n", rows, details.size(), estimateTokens(csv),
+                dropped.isEmpty() ? "" : " (dropped " + dropped.stream().map(c -> c.header).toList() + ")");
+        return this;
+    }
+
+    private static String encode(List<ProductDetail> details, List<Column> columns) {
+        StringBuilder csv = new StringBuilder();
+        csv.append(String.join(",", columns.stream().map(c -> c.header).toList())).append('\n');
+        for (ProductDetail detail : details) {
+            String[] cells = new String[columns.size()];
+            for (int i = 0; i < cells.length; i++) {
+                cells[i] = columns.get(i).value.apply(detail);
+            }
+            csv.append(csvRow(cells)).append('\n');
+        }
+        return csv.toString();
+    }
+
+    /**
+     * One CSV line; cells are shortened and quoted only when needed
+     */
+    public static String csvRow(String... cells) {
+        StringBuilder row = new StringBuilder();
+        for (int i = 0; i < cells.length; i++) {
+            if (i > 0) row.append(',');
+            String cell = cells[i] == null || "N/A".equals(cells[i]) ? "" : cells[i].strip();
+            if (cell.length() > MAX_CELL_CHARS) {
+                cell = cell.substring(0, MAX_CELL_CHARS);
+            }
+            if (cell.indexOf(',') >= 0 || cell.indexOf('"') >= 0 || cell.indexOf('\n') >= 0) {
+                cell = '"' + cell.replace("\"", "\"\"").replace('\n', ' ') + '"';
+            }
+            row.append(cell);
+        }
+        return row.toString();
+    }
+
+    public String text() {
+        return text.toString();
+    }
+
+    /**
+     * Request body with systemInstruction and one user turn; callers add generationConfig
+     */
+    public JsonObject toRequest() {
+        JsonObject request = new JsonObject();
+
+        JsonObject instruction = new JsonObject();
+        instruction.add("parts", textParts(systemInstruction));
+        request.add("systemInstruction", instruction);
+
+        JsonObject content = new JsonObject();
+        content.addProperty("role", "user");
+        content.add("parts", textParts(text.toString()));
+        JsonArray contents = new JsonArray();
+        contents.add(content);
+        request.add("contents", contents);
+        return request;
+    }
+
+    private static JsonArray textParts(String value) {
+        JsonObject part = new JsonObject();
+        part.addProperty("text", value);
+        JsonArray parts = new JsonArray();
+        parts.add(part);
+        return parts;
+    }
+
+    /** Rough token count: ~4 characters per token */
+    public static long estimateTokens(CharSequence value) {
+        return value.length() / 4;
+    }
+}
@@ -0,0 +1,258 @@
+package com.ecommerce.analyzer.service;
+
+import com.ecommerce.analyzer.model.ProductDetail;
+import com.ecommerce.analyzer.util.ConfigManager;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Recommendation Engine
+ * Local multi-criteria ranking of platform offers. Price, rating, review count,
+ * delivery days, return window and warranty months are normalized to 0..1
+ * across the offers and combined with configurable weights. The gap between
+ * the top two scores is the confidence margin; only close calls need Gemini.
+ */
+public class RecommendationEngine {
+
+    // Missing or unparseable values score neutral rather than best or worst
+    private static final double NEUTRAL = 0.5;
+    private static final Pattern NUMBER = Pattern.compile("(\\d+(?:\\.\\d+)?)");
+    private static final Pattern RANGE = Pattern.compile("(\\d+)\\s*(?:-|to)\\s*(\\d+)");
+
+    public static final String PRICE = "price";
+    public static final String RATING = "rating";
+    public static final String REVIEWS = "reviews";
+    public static final String DELIVERY = "delivery";
+    public static final String RETURNS = "returns";
+    public static final String WARRANTY = "warranty";
+
+    /**
+     * One offer with its weighted score and per-criterion scores (0..1);
+     * unknown holds the criteria it had no value for, scored neutral
+     */
+    public record ScoredOffer(ProductDetail detail, double score, Map<String, Double> criteria, Set<String> unknown) {
+    }
+
+    /**
+     * Offers best-first; margin is the top score minus the runner-up's
+     */
+    public record Ranking(List<ScoredOffer> offers, double margin, boolean closeCall) {
+        public ScoredOffer best() {
+            return offers.get(0);
+        }
+    }
+
+    private final Map<String, Double> weights;
+    private final double closeCallMargin;
+
+    public RecommendationEngine() {
+        Map<String, Double> configured = new LinkedHashMap<>();
+        configured.put(PRICE, ConfigManager.getDoubleProperty("recommendation.weight.price", 0.35));
+        configured.put(RATING, ConfigManager.getDoubleProperty("recommendation.weight.rating", 0.25));
+        configured.put(REVIEWS, ConfigManager.getDoubleProperty("recommendation.weight.reviews", 0.10));
+        configured.put(DELIVERY, ConfigManager.getDoubleProperty("recommendation.weight.delivery", 0.15));
+        configured.put(RETURNS, ConfigManager.getDoubleProperty("recommendation.weight.returns", 0.10));
+        configured.put(WARRANTY, ConfigManager.getDoubleProperty("recommendation.weight.warranty", 0.05));
+        this.weights = normalizeWeights(configured);
+        this.closeCallMargin = ConfigManager.getDoubleProperty("recommendation.gemini.margin", 0.05);
+    }
+
+    /**
+     * Score and rank the offers
+     * @param details at least one offer
+     */
+    public Ranking rank(List<ProductDetail> details) {
+        long startNanos = System.nanoTime();
+        int n = details.size();
+
+        double[][] raw = new double[n][];
+        for (int i = 0; i < n; i++) {
+            ProductDetail detail = details.get(i);
+            raw[i] = new double[]{
+                    valueOrNaN(detail.getPrice()),
+                    valueOrNaN(detail.getRating()),
+                    detail.getReviewCount() != null ? Math.log1p(Math.max(0, detail.getReviewCount())) : Double.NaN,
+                    parseDeliveryDays(detail.getDeliveryTime()),
+                    parseReturnDays(detail.getReturnPolicy()),
+                    parseWarrantyMonths(detail.getWarranty())
+            };
+        }
+
+        // Lower is better for price and delivery; higher for the rest
+        String[] names = {PRICE, RATING, REVIEWS, DELIVERY, RETURNS, WARRANTY};
+        boolean[] lowerIsBetter = {true, false, false, true, false, false};
+
+        List<ScoredOffer> offers = new ArrayList<>(n);
+        double[][] normalized = new double[names.length][];
+        for (int c = 0; c < names.length; c++) {
+            normalized[c] = normalizeColumn(raw, c, lowerIsBetter[c]);
+        }
+        for (int i = 0; i < n; i++) {
+            Map<String, Double> criteria = new LinkedHashMap<>();
+            Set<String> unknown = new HashSet<>();
+            double score = 0;
+            for (int c = 0; c < names.length; c++) {
+                criteria.put(names[c], normalized[c][i]);
+                score += weights.get(names[c]) * normalized[c][i];
+                if (Double.isNaN(raw[i][c])) {
+                    unknown.add(names[c]);
+                }
+            }
+            offers.add(new ScoredOffer(details.get(i), score, criteria, unknown));
+        }
+        offers.sort(Comparator.comparingDouble(ScoredOffer::score).reversed());
+
+        double margin = n > 1 ? offers.get(0).score() - offers.get(1).score() : 1.0;
+        Ranking ranking = new Ranking(offers, margin, margin < closeCallMargin);
+        System.out.printf("[RecommendationEngine] Ranked %d offers in %d µs - %s leads by %.3f%s%n",
+                n, (System.nanoTime() - startNanos) / 1_000, ranking.best().detail().getPlatform(), margin,
+                ranking.closeCall() ? " (close call)" : "");
+        return ranking;
+    }
+
+    /**
+     * Recommendation text in the same layout as the AI recommendation
+     */
+    public String format(Ranking ranking) {
+        ScoredOffer best = ranking.best();
+        ProductDetail detail = best.detail();
+        StringBuilder text = new StringBuilder();
+
+        text.append(String.format("**Recommended Platform:** %s (₹%.2f)%n%n", detail.getPlatform(), detail.getPrice()));
+        text.append("**Reasons:**\n");
+
+        // Strongest weighted contributions first; a neutral score for a value we
+        // don't have is no reason to pick the offer
+        List<Map.Entry<String, Double>> reasons = new ArrayList<>(best.criteria().entrySet());
+        reasons.removeIf(e -> best.unknown().contains(e.getKey()));
+        reasons.sort(Comparator.comparingDouble((Map.Entry<String, Double> e) -> weights.get(e.getKey()) * e.getValue()).reversed());
+        int number = 1;
+        for (Map.Entry<String, Double> reason : reasons) {
+            if (number > 3) break;
+            text.append(number++).append(". ").append(describe(reason.getKey(), detail)).append("\n");
+        }
+        if (number == 1) {
+            text.append("1. Best overall score among the listed offers\n");
+        }
+
+        text.append(String.format("%n**Overall Value Score:** %.1f/10%n", best.score() * 10));
+        if (ranking.offers().size() > 1) {
+            ScoredOffer runnerUp = ranking.offers().get(1);
+            text.append(String.format("**Confidence:** leads %s by %.1f points%s%n",
+                    runnerUp.detail().getPlatform(), ranking.margin() * 10,
+                    ranking.closeCall() ? " - a close call" : ""));
+        }
+        return text.toString();
+    }
+
+    private String describe(String criterion, ProductDetail detail) {
+        return switch (criterion) {
+            case PRICE -> String.format("Price ₹%.2f", detail.getPrice());
+            case RATING -> String.format("Rated %.1f/5", detail.getRating());
+            case REVIEWS -> "Backed by " + detail.getReviewCount() + " reviews";
+            case DELIVERY -> "Delivery: " + detail.getDeliveryTime();
+            case RETURNS -> "Returns: " + detail.getReturnPolicy();
+            case WARRANTY -> "Warranty: " + detail.getWarranty();
+            default -> criterion;
+        };
+    }
+
+    /**
+     * Min-max scale one criterion across offers; NaN (unknown) becomes neutral
+     */
+    private static double[] normalizeColumn(double[][] raw, int column, boolean lowerIsBetter) {
+        double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+        for (double[] row : raw) {
+            if (!Double.isNaN(row[column])) {
+                min = Math.min(min, row[column]);
+                max = Math.max(max, row[column]);
+            }
+        }
+
+        double[] scores = new double[raw.length];
+        for (int i = 0; i < raw.length; i++) {
+            double value = raw[i][column];
+            if (Double.isNaN(value)) {
+                scores[i] = NEUTRAL;
+            } else if (max - min < 1e-9) {
+                scores[i] = 1.0; // Everyone ties on this criterion
+            } else {
+                double scaled = (value - min) / (max - min);
+                scores[i] = lowerIsBetter ? 1.0 - scaled : scaled;
+            }
+        }
+        return scores;
+    }
+
+    private static Map<String, Double> normalizeWeights(Map<String, Double> configured) {
+        double total = configured.values().stream().mapToDouble(w -> Math.max(0, w)).sum();
+        Map<String, Double> weights = new LinkedHashMap<>();
+        configured.forEach((name, weight) ->
+                weights.put(name, total > 0 ? Math.max(0, weight) / total : 1.0 / configured.size()));
+        return weights;
+    }
+
+    private static double valueOrNaN(Double value) {
+        return value != null && value > 0 ? value : Double.NaN;
+    }
+
+    /**
+     * "2-3 days" -> 2.5, "Tomorrow" -> 1, "1 week" -> 7; NaN if unknown
+     */
+    static double parseDeliveryDays(String text) {
+        if (text == null) return Double.NaN;
+        String lower = text.toLowerCase(Locale.ROOT);
+        if (lower.contains("same day") || lower.contains("today")) return 0;
+        if (lower.contains("tomorrow") || lower.contains("next day")) return 1;
+
+        double days;
+        Matcher range = RANGE.matcher(lower);
+        if (range.find()) {
+            days = (Double.parseDouble(range.group(1)) + Double.parseDouble(range.group(2))) / 2;
+        } else {
+            Matcher number = NUMBER.matcher(lower);
+            if (!number.find()) return Double.NaN;
+            days = Double.parseDouble(number.group(1));
+        }
+        if (lower.contains("hour")) return days / 24;
+        return lower.contains("week") ? days * 7 : days;
+    }
+
+    /**
+     * "10 days return policy" -> 10, "No returns" -> 0; NaN if unknown
+     */
+    static double parseReturnDays(String text) {
+        if (text == null) return Double.NaN;
+        String lower = text.toLowerCase(Locale.ROOT);
+        if (lower.startsWith("no ") || lower.contains("non-returnable") || lower.contains("not returnable")) return 0;
+        Matcher number = NUMBER.matcher(lower);
+        if (!number.find()) return Double.NaN;
+        double value = Double.parseDouble(number.group(1));
+        if (lower.contains("month")) return value * 30;
+        return lower.contains("week") ? value * 7 : value;
+    }
+
+    /**
+     * "1 year manufacturer warranty" -> 12, "6 months" -> 6, "No warranty" -> 0; NaN if unknown
+     */
+    static double parseWarrantyMonths(String text) {
+        if (text == null) return Double.NaN;
+        String lower = text.toLowerCase(Locale.ROOT);
+        if (lower.startsWith("no ")) return 0;
+        Matcher number = NUMBER.matcher(lower);
+        if (!number.find()) return Double.NaN;
+        double value = Double.parseDouble(number.group(1));
+        if (lower.contains("year")) return value * 12;
+        if (lower.contains("day")) return value / 30;
+        return value;
+    }
+}
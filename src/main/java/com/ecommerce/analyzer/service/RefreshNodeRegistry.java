@@ -0,0 +1,119 @@
+package com.ecommerce.analyzer.service;
+
+import com.ecommerce.analyzer.repository.RefreshNodeRepository;
+import com.ecommerce.analyzer.util.ConfigManager;
+
+import java.lang.management.ManagementFactory;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Refresh Node Registry
+ * Splits background refresh work between analyzer instances. Every node
+ * heartbeats into refresh_node; the live nodes, sorted by id, each own the
+ * products whose id falls in their hash bucket (id mod node count). When a node
+ * joins, leaves or stops heartbeating the buckets are recomputed on the next
+ * heartbeat, so the catalog is rebalanced without coordination. Claims in
+ * refresh_schedule stay atomic, so two nodes never refresh the same product
+ * even while their views of the membership briefly differ.
+ */
+public class RefreshNodeRegistry {
+
+    /** This node's bucket out of count buckets */
+    public record Shard(int index, int count) {
+        static final Shard WHOLE_CATALOG = new Shard(0, 1);
+    }
+
+    private final RefreshNodeRepository nodeRepository;
+    private final String nodeId = ManagementFactory.getRuntimeMXBean().getName();
+    // pid@host can come back after a restart; this can't
+    private final String instanceId = UUID.randomUUID().toString();
+    private final int heartbeatSeconds;
+    private final int ttlSeconds;
+    private ScheduledExecutorService heartbeats;
+    private volatile Shard shard = Shard.WHOLE_CATALOG;
+
+    public RefreshNodeRegistry() {
+        this.nodeRepository = new RefreshNodeRepository();
+        this.heartbeatSeconds = Math.max(1, ConfigManager.getIntProperty("refresh.node.heartbeat.seconds", 15));
+        // A node missing this many seconds of heartbeats is treated as dead
+        this.ttlSeconds = Math.max(heartbeatSeconds * 2,
+                ConfigManager.getIntProperty("refresh.node.ttl.seconds", 60));
+    }
+
+    /**
+     * Join the cluster and keep heartbeating on a thread of its own, so a long
+     * refresh run can't make this node look dead
+     */
+    public synchronized void start() {
+        if (heartbeats != null) {
+            return;
+        }
+        heartbeats = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "refresh-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeats.scheduleWithFixedDelay(this::heartbeat, 0, heartbeatSeconds, TimeUnit.SECONDS);
+        System.out.println("[RefreshNodes] Joined as " + nodeId);
+    }
+
+    /**
+     * Leave the cluster; the remaining nodes pick up this node's bucket on their next heartbeat
+     */
+    public synchronized void stop() {
+        if (heartbeats == null) {
+            return;
+        }
+        heartbeats.shutdownNow();
+        heartbeats = null;
+        try {
+            nodeRepository.delete(nodeId);
+            System.out.println("[RefreshNodes] Left the cluster");
+        } catch (SQLException e) {
+            System.err.println("[RefreshNodes] ⚠ Could not deregister (expires in " + ttlSeconds + "s): " + e.getMessage());
+        }
+        shard = Shard.WHOLE_CATALOG;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    public int getTtlSeconds() {
+        return ttlSeconds;
+    }
+
+    /**
+     * Bucket this node should refresh right now
+     */
+    public Shard currentShard() {
+        return shard;
+    }
+
+    private void heartbeat() {
+        try {
+            nodeRepository.heartbeat(nodeId);
+            nodeRepository.deleteExpired(ttlSeconds * 10);
+            List<String> live = nodeRepository.findLiveNodes(ttlSeconds);
+            int index = live.indexOf(nodeId);
+            Shard next = index < 0 ? Shard.WHOLE_CATALOG : new Shard(index, live.size());
+            if (!next.equals(shard)) {
+                System.out.println("[RefreshNodes] ⚖ Rebalanced: bucket " + (next.index() + 1) + " of " + next.count()
+                        + " (" + live.size() + " live nodes)");
+            }
+            shard = next;
+        } catch (SQLException e) {
+            // Keep the last known bucket; claims are atomic, so overlap can't cause duplicate work
+            System.err.println("[RefreshNodes] ⚠ Heartbeat failed: " + e.getMessage());
+        }
+    }
+}
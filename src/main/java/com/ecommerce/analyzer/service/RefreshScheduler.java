@@ -0,0 +1,127 @@
+package com.ecommerce.analyzer.service;
+
+import com.ecommerce.analyzer.model.Product;
+import com.ecommerce.analyzer.repository.RefreshScheduleRepository;
+import com.ecommerce.analyzer.repository.RefreshScheduleRepository.ChangeStats;
+import com.ecommerce.analyzer.service.RefreshNodeRegistry.Shard;
+import com.ecommerce.analyzer.util.ConfigManager;
+
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Refresh Scheduler
+ * Decides when each product is next refreshed. Products whose prices move
+ * often, that people look at, or that are running out of stock come back
+ * sooner; products that never change back off towards the maximum cadence.
+ * The queue lives in the refresh_schedule table, so it survives restarts.
+ */
+public class RefreshScheduler {
+
+    private final RefreshScheduleRepository scheduleRepository;
+    private final int baseIntervalMinutes;
+    private final int minIntervalMinutes;
+    private final int maxIntervalMinutes;
+    private final int leaseMinutes;
+    private final int lookbackDays;
+
+    public RefreshScheduler() {
+        this.scheduleRepository = new RefreshScheduleRepository();
+        this.baseIntervalMinutes = ConfigManager.getAutoRefreshInterval();
+        this.minIntervalMinutes = Math.max(1, ConfigManager.getIntProperty("refresh.cadence.min.minutes", 30));
+        this.maxIntervalMinutes = Math.max(minIntervalMinutes,
+                ConfigManager.getIntProperty("refresh.cadence.max.minutes", 10080));
+        // A claimed product comes due again after this long if its refresh never reports back
+        this.leaseMinutes = Math.max(1, ConfigManager.getIntProperty("refresh.lease.minutes", 30));
+        this.lookbackDays = Math.max(1, ConfigManager.getIntProperty("refresh.volatility.days", 30));
+    }
+
+    /**
+     * Add schedule rows for products created since the last tick
+     */
+    public int seedNewProducts() throws SQLException {
+        return scheduleRepository.seedMissing(clamp(baseIntervalMinutes));
+    }
+
+    /**
+     * Claim up to limit due products from this node's bucket for a run, most overdue first
+     */
+    public List<Product> claimDue(int limit, Shard shard, long runId) throws SQLException {
+        return scheduleRepository.claimDue(limit, leaseMinutes, shard.index(), shard.count(), runId);
+    }
+
+    /**
+     * Make a run's unrefreshed claims due again right away instead of after the lease
+     */
+    public int releaseClaims(long runId) throws SQLException {
+        return scheduleRepository.releaseClaims(runId);
+    }
+
+    public long countDue(Shard shard) throws SQLException {
+        return scheduleRepository.countDue(shard.index(), shard.count());
+    }
+
+    /**
+     * Product was refreshed - pick its next cadence from what has been observed
+     */
+    public void completed(Long productId) {
+        try {
+            ChangeStats stats = scheduleRepository.findChangeStats(productId, lookbackDays);
+            if (stats != null) {
+                scheduleRepository.reschedule(productId, nextInterval(stats));
+            }
+        } catch (SQLException e) {
+            // The lease expires on its own, so the product is simply retried later
+            System.err.println("[RefreshScheduler] ⚠ Could not reschedule product " + productId + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Refresh failed - try again soon without touching the learned cadence
+     */
+    public void failed(Long productId) {
+        try {
+            scheduleRepository.retryLater(productId, minIntervalMinutes);
+        } catch (SQLException e) {
+            System.err.println("[RefreshScheduler] ⚠ Could not reschedule product " + productId + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Product was opened in the UI
+     */
+    public void recordView(Long productId) {
+        try {
+            scheduleRepository.recordView(productId);
+        } catch (SQLException e) {
+            System.err.println("[RefreshScheduler] ⚠ Could not record view: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Next cadence in minutes.
+     * Prices that moved shorten the base cadence in proportion to the share of
+     * refreshes that found a change; a quiet product doubles its previous cadence. Views and low stock
+     * then shorten it further, and the result is kept within the cadence bounds.
+     */
+    int nextInterval(ChangeStats stats) {
+        double interval;
+        if (stats.changes() > 0) {
+            interval = baseIntervalMinutes / (1.0 + 4.0 * stats.changeRate());
+        } else if (stats.observedMinutes() > 0) {
+            interval = Math.max(stats.intervalMinutes(), baseIntervalMinutes) * 2.0;
+        } else {
+            interval = baseIntervalMinutes; // Nothing to compare yet
+        }
+
+        interval /= 1.0 + Math.log1p(stats.views());
+        if (stats.lowStock()) {
+            interval *= 0.5;
+        }
+        return clamp((int) Math.round(interval));
+    }
+
+    private int clamp(int minutes) {
+        return Math.max(minIntervalMinutes, Math.min(maxIntervalMinutes, minutes));
+    }
+}
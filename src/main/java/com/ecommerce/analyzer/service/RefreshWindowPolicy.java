@@ -0,0 +1,178 @@
+package com.ecommerce.analyzer.service;
+
+import com.ecommerce.analyzer.util.ConfigManager;
+
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Refresh Window Policy
+ * Time-of-day rules for background refreshes:
+ * - refresh.windows gives each daily window its own worker count, e.g.
+ *   "22:00-07:00@8, 09:00-19:00@1" (0 pauses refreshes in that window);
+ *   outside every window refresh.concurrency applies
+ * - refresh.quiet.hours lists hours in which a store's own site is not
+ *   scraped in the background, e.g. "Flipkart@11:00-14:00"
+ * - ticks are jittered by up to refresh.tick.jitter.seconds either way, so
+ *   nodes started together don't hit the database and APIs in lockstep
+ */
+public class RefreshWindowPolicy {
+
+    /** Daily time range; the end is exclusive and may wrap past midnight */
+    record TimeRange(LocalTime start, LocalTime end) {
+        boolean contains(LocalTime time) {
+            if (start.isBefore(end)) {
+                return !time.isBefore(start) && time.isBefore(end);
+            }
+            return !time.isBefore(start) || time.isBefore(end);
+        }
+
+        @Override
+        public String toString() {
+            return start + "-" + end;
+        }
+    }
+
+    /** A refresh window and the number of workers it allows */
+    public record Window(String label, int concurrency) {
+        public boolean paused() {
+            return concurrency <= 0;
+        }
+    }
+
+    private static RefreshWindowPolicy instance;
+
+    private final List<TimeRange> ranges = new ArrayList<>();
+    private final List<Window> windows = new ArrayList<>();
+    private final Window defaultWindow;
+    private final Map<String, List<TimeRange>> quietHours = new HashMap<>();
+    private final long jitterMillis;
+
+    private RefreshWindowPolicy() {
+        this.defaultWindow = new Window("default",
+                Math.max(1, ConfigManager.getIntProperty("refresh.concurrency", 4)));
+        this.jitterMillis = Math.max(0, ConfigManager.getIntProperty("refresh.tick.jitter.seconds", 90)) * 1000L;
+
+        for (String entry : split(ConfigManager.getProperty("refresh.windows", ""))) {
+            String[] parts = entry.split("@");
+            TimeRange range = parts.length == 2 ? parseRange(parts[0]) : null;
+            Integer workers = parts.length == 2 ? parseInt(parts[1]) : null;
+            if (range == null || workers == null) {
+                System.err.println("[RefreshWindows] Ignoring window '" + entry + "' (expected HH:mm-HH:mm@workers)");
+                continue;
+            }
+            ranges.add(range);
+            windows.add(new Window(range.toString(), Math.max(0, workers)));
+        }
+
+        for (String entry : split(ConfigManager.getProperty("refresh.quiet.hours", ""))) {
+            String[] parts = entry.split("@");
+            TimeRange range = parts.length == 2 ? parseRange(parts[1]) : null;
+            if (range == null || parts[0].isBlank()) {
+                System.err.println("[RefreshWindows] Ignoring quiet hours '" + entry + "' (expected Platform@HH:mm-HH:mm)");
+                continue;
+            }
+            quietHours.computeIfAbsent(key(parts[0]), k -> new ArrayList<>()).add(range);
+        }
+
+        if (!windows.isEmpty() || !quietHours.isEmpty()) {
+            System.out.println("[RefreshWindows] " + windows.size() + " windows, quiet hours for "
+                    + quietHours.keySet() + ", jitter ±" + jitterMillis / 1000 + "s");
+        }
+    }
+
+    public static synchronized RefreshWindowPolicy getInstance() {
+        if (instance == null) {
+            instance = new RefreshWindowPolicy();
+        }
+        return instance;
+    }
+
+    /**
+     * Window in force now; the first listed window that contains the time wins
+     */
+    public Window currentWindow() {
+        LocalTime now = LocalTime.now();
+        for (int i = 0; i < ranges.size(); i++) {
+            if (ranges.get(i).contains(now)) {
+                return windows.get(i);
+            }
+        }
+        return defaultWindow;
+    }
+
+    /**
+     * True while the platform's site should not be scraped in the background
+     */
+    public boolean isQuiet(String platform) {
+        List<TimeRange> platformHours = quietHours.get(key(platform));
+        if (platformHours == null) {
+            return false;
+        }
+        LocalTime now = LocalTime.now();
+        return platformHours.stream().anyMatch(range -> range.contains(now));
+    }
+
+    /**
+     * Delay until the next tick: the tick period plus or minus a random jitter
+     */
+    public long nextTickDelayMillis(long periodMillis) {
+        if (jitterMillis == 0) {
+            return periodMillis;
+        }
+        long jitter = ThreadLocalRandom.current().nextLong(-jitterMillis, jitterMillis + 1);
+        return Math.max(1000, periodMillis + jitter);
+    }
+
+    /**
+     * Delay before the first tick, spread over one whole period so restarted nodes drift apart
+     */
+    public long firstTickDelayMillis(long periodMillis) {
+        return ThreadLocalRandom.current().nextLong(Math.max(1, periodMillis)) + 1000;
+    }
+
+    private static List<String> split(String value) {
+        List<String> entries = new ArrayList<>();
+        for (String entry : value.split(",")) {
+            if (!entry.isBlank()) {
+                entries.add(entry.trim());
+            }
+        }
+        return entries;
+    }
+
+    private static TimeRange parseRange(String value) {
+        String[] bounds = value.trim().split("-");
+        if (bounds.length != 2) {
+            return null;
+        }
+        try {
+            return new TimeRange(parseTime(bounds[0]), parseTime(bounds[1]));
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static LocalTime parseTime(String value) {
+        String time = value.trim();
+        return "24:00".equals(time) ? LocalTime.MIDNIGHT : LocalTime.parse(time);
+    }
+
+    private static Integer parseInt(String value) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String key(String platform) {
+        return platform.replace(" ", "").toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,290 @@
+package com.ecommerce.analyzer.service;
+
+import com.ecommerce.analyzer.model.ScrapeJob;
+import com.ecommerce.analyzer.repository.ScrapeJobRepository;
+import com.ecommerce.analyzer.util.ConfigManager;
+
+import java.lang.management.ManagementFactory;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Scrape Job Queue Service
+ * Drains the durable scrape_job table with a pool of worker threads.
+ * Failed jobs are retried with exponential backoff and dead-lettered after
+ * max attempts; jobs held by a crashed worker become claimable again once
+ * their visibility timeout expires. A live worker renews its lease every
+ * third of that timeout, so a slow scrape is never claimed twice. Idle
+ * workers prune old finished jobs.
+ */
+public class ScrapeJobQueueService {
+
+    /** Executes one claimed job; throwing marks the attempt as failed */
+    @FunctionalInterface
+    public interface JobHandler {
+        void handle(ScrapeJob job) throws Exception;
+    }
+
+    private static ScrapeJobQueueService instance;
+
+    private final ScrapeJobRepository jobRepository = new ScrapeJobRepository();
+    private final Map<Long, CompletableFuture<Void>> localWaiters = new ConcurrentHashMap<>();
+    private final String nodeId = ManagementFactory.getRuntimeMXBean().getName();
+
+    private final int workerCount;
+    private final int visibilityTimeoutSeconds;
+    private final int maxAttempts;
+    private final long baseBackoffSeconds;
+    private final long maxBackoffSeconds;
+    private final long pollIntervalMs;
+    private final int retentionDays;
+    private final AtomicLong lastPruneMs = new AtomicLong();
+
+    private ExecutorService workers;
+    private ScheduledExecutorService leaseRenewals;
+    private volatile JobHandler handler;
+    private volatile boolean running;
+
+    private ScrapeJobQueueService() {
+        this.workerCount = ConfigManager.getIntProperty("scrape.queue.workers", 4);
+        this.visibilityTimeoutSeconds = ConfigManager.getIntProperty("scrape.queue.visibility.timeout.seconds", 300);
+        this.maxAttempts = ConfigManager.getIntProperty("scrape.queue.max.attempts", 5);
+        this.baseBackoffSeconds = ConfigManager.getIntProperty("scrape.queue.backoff.base.seconds", 5);
+        this.maxBackoffSeconds = ConfigManager.getIntProperty("scrape.queue.backoff.max.seconds", 600);
+        this.pollIntervalMs = ConfigManager.getIntProperty("scrape.queue.poll.interval.ms", 500);
+        this.retentionDays = Math.max(1, ConfigManager.getIntProperty("scrape.queue.retention.days", 7));
+    }
+
+    /**
+     * Get the process-wide queue (one worker pool per application instance)
+     */
+    public static synchronized ScrapeJobQueueService getInstance() {
+        if (instance == null) {
+            instance = new ScrapeJobQueueService();
+        }
+        return instance;
+    }
+
+    /**
+     * Start the worker pool. Calling again while running is a no-op.
+     */
+    public synchronized void start(JobHandler jobHandler) {
+        if (running) {
+            return;
+        }
+        this.handler = jobHandler;
+        this.running = true;
+
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(workerCount, runnable -> {
+            Thread thread = new Thread(runnable, "scrape-worker-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.leaseRenewals = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "scrape-lease-renewal");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        for (int i = 1; i <= workerCount; i++) {
+            String workerId = nodeId + "#" + i;
+            workers.submit(() -> workerLoop(workerId));
+        }
+        System.out.println("[ScrapeQueue] Started " + workerCount + " workers on " + nodeId);
+    }
+
+    /**
+     * Stop the worker pool. Jobs still running are left leased and will be
+     * reclaimed by any instance once their visibility timeout expires.
+     */
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        System.out.println("[ScrapeQueue] Stopping workers");
+        running = false;
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(10, TimeUnit.SECONDS)) {
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        leaseRenewals.shutdownNow();
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Enqueue a job for a product
+     * @return id of the new (or already pending) job
+     */
+    public Long enqueue(Long productId, String jobType, int priority) throws SQLException {
+        Long jobId = jobRepository.enqueue(productId, jobType, priority, maxAttempts);
+        System.out.println("[ScrapeQueue] Enqueued job " + jobId + " (" + jobType + ", product " + productId + ", priority " + priority + ")");
+        return jobId;
+    }
+
+    /**
+     * Wait until a job is done or dead-lettered.
+     * Jobs finished by this instance wake the caller immediately; jobs finished
+     * by another instance are picked up by polling the table.
+     */
+    public ScrapeJob await(Long jobId, long timeoutMs) throws SQLException, InterruptedException, TimeoutException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        CompletableFuture<Void> waiter = null;
+
+        try {
+            while (true) {
+                // Register before reading the row so a completion in between is not missed
+                waiter = localWaiters.computeIfAbsent(jobId, id -> new CompletableFuture<>());
+
+                ScrapeJob job = jobRepository.findById(jobId);
+                if (job == null) {
+                    throw new SQLException("Scrape job not found: " + jobId);
+                }
+                if (job.isFinished()) {
+                    return job;
+                }
+
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    throw new TimeoutException("Scrape job " + jobId + " still " + job.getStatus() + " after " + timeoutMs + " ms");
+                }
+
+                try {
+                    // Woken by a local worker, otherwise re-check the table after the poll interval
+                    waiter.get(Math.min(remaining, Math.max(pollIntervalMs, 1000)), TimeUnit.MILLISECONDS);
+                } catch (TimeoutException | ExecutionException ignored) {
+                    // Outcome is read from the table
+                }
+            }
+        } finally {
+            // However the wait ends, don't leave the waiter behind; a worker
+            // on another instance would never complete it
+            if (waiter != null) {
+                localWaiters.remove(jobId, waiter);
+            }
+        }
+    }
+
+    /**
+     * Enqueue a job and block until it finishes
+     */
+    public ScrapeJob enqueueAndAwait(Long productId, String jobType, int priority, long timeoutMs)
+            throws SQLException, InterruptedException, TimeoutException {
+        Long jobId = enqueue(productId, jobType, priority);
+        return await(jobId, timeoutMs);
+    }
+
+    private void workerLoop(String workerId) {
+        while (running && !Thread.currentThread().isInterrupted()) {
+            try {
+                ScrapeJob job = jobRepository.claimNext(workerId, visibilityTimeoutSeconds);
+                if (job == null) {
+                    pruneFinishedJobs();
+                    Thread.sleep(pollIntervalMs);
+                    continue;
+                }
+                process(job, workerId);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (SQLException e) {
+                System.err.println("[ScrapeQueue] " + workerId + " database error: " + e.getMessage());
+                try {
+                    Thread.sleep(Math.max(pollIntervalMs, 2000));
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    /**
+     * Delete DONE jobs past the retention period, at most once an hour per instance
+     */
+    private void pruneFinishedJobs() throws SQLException {
+        long now = System.currentTimeMillis();
+        long last = lastPruneMs.get();
+        if (now - last < TimeUnit.HOURS.toMillis(1) || !lastPruneMs.compareAndSet(last, now)) {
+            return; // Pruned recently, or another worker is doing it
+        }
+        int deleted = jobRepository.deleteFinishedJobs(retentionDays);
+        if (deleted > 0) {
+            System.out.println("[ScrapeQueue] Deleted " + deleted + " finished jobs older than " + retentionDays + " days");
+        }
+    }
+
+    private void process(ScrapeJob job, String workerId) throws SQLException {
+        // A lease that expired after its last attempt lands here with attempts > max
+        if (job.getAttempts() > job.getMaxAttempts()) {
+            jobRepository.markDead(job.getId(), workerId, "Lease expired after final attempt");
+            System.err.println("[ScrapeQueue] ✗ Job " + job.getId() + " dead-lettered (lease expired)");
+            notifyLocalWaiter(job.getId());
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        long renewEverySeconds = Math.max(1, visibilityTimeoutSeconds / 3);
+        ScheduledFuture<?> renewal = leaseRenewals.scheduleAtFixedRate(() -> renewLease(job, workerId),
+                renewEverySeconds, renewEverySeconds, TimeUnit.SECONDS);
+        try {
+            try {
+                handler.handle(job);
+            } finally {
+                renewal.cancel(false);
+            }
+            if (!jobRepository.markDone(job.getId(), workerId)) {
+                System.err.println("[ScrapeQueue] ⚠ Job " + job.getId() + " lease was lost before completion");
+            }
+            System.out.println("[ScrapeQueue] ✓ Job " + job.getId() + " done in " + (System.currentTimeMillis() - start) + " ms");
+
+        } catch (Exception e) {
+            String error = e.getClass().getSimpleName() + ": " + e.getMessage();
+            if (job.getAttempts() >= job.getMaxAttempts()) {
+                jobRepository.markDead(job.getId(), workerId, error);
+                System.err.println("[ScrapeQueue] ✗ Job " + job.getId() + " dead-lettered after "
+                        + job.getAttempts() + " attempts: " + error);
+            } else {
+                long delay = backoffSeconds(job.getAttempts());
+                jobRepository.scheduleRetry(job.getId(), workerId, error, delay);
+                System.err.println("[ScrapeQueue] ⚠ Job " + job.getId() + " attempt " + job.getAttempts()
+                        + " failed, retrying in " + delay + "s: " + error);
+            }
+        }
+        notifyLocalWaiter(job.getId());
+    }
+
+    private void renewLease(ScrapeJob job, String workerId) {
+        try {
+            if (!jobRepository.renewLease(job.getId(), workerId, visibilityTimeoutSeconds)) {
+                System.err.println("[ScrapeQueue] ⚠ Job " + job.getId() + " lease could not be renewed - held elsewhere now");
+            }
+        } catch (SQLException e) {
+            // Try again on the next tick; the lease still has two thirds left
+            System.err.println("[ScrapeQueue] ⚠ Job " + job.getId() + " lease renewal failed: " + e.getMessage());
+        }
+    }
+
+    private void notifyLocalWaiter(Long jobId) {
+        CompletableFuture<Void> waiter = localWaiters.remove(jobId);
+        if (waiter != null) {
+            waiter.complete(null);
+        }
+    }
+
+    /** Exponential backoff: base * 2^(attempt-1), capped */
+    private long backoffSeconds(int attempt) {
+        long delay = baseBackoffSeconds << Math.min(attempt - 1, 20);
+        return Math.min(delay, maxBackoffSeconds);
+    }
+}
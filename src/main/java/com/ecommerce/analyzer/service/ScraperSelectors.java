@@ -0,0 +1,60 @@
+package com.ecommerce.analyzer.service;
+
+/**
+ * Scraper Selectors
+ * Candidate CSS selectors per platform field, shared by the HtmlUnit and
+ * Selenium scrapers. Sites rotate their class names frequently, so every
+ * field lists old and new variants and SelectorPlan learns which one wins.
+ */
+final class ScraperSelectors {
+
+    private ScraperSelectors() {
+    }
+
+    // Flipkart search results
+    static final SelectorPlan FLIPKART_CARD = SelectorPlan.forField("Flipkart", "card",
+            "div[data-id]", "div._1AtVbE", "div.cPHDOP");
+    static final SelectorPlan FLIPKART_PRICE = SelectorPlan.forField("Flipkart", "price",
+            "div._30jeq3", "div._3I9_wc", "div.Nx9bqj");
+    static final SelectorPlan FLIPKART_RATING = SelectorPlan.forField("Flipkart", "rating",
+            "div._3LWZlK", "div.XQDdHH");
+    static final SelectorPlan FLIPKART_REVIEWS = SelectorPlan.forField("Flipkart", "reviews",
+            "span._2_R_DZ", "span.Wphh3N");
+    static final SelectorPlan FLIPKART_SELLER = SelectorPlan.forField("Flipkart", "seller",
+            "div._2WkVRV", "div.syl9yP");
+    static final SelectorPlan FLIPKART_LINK = SelectorPlan.forField("Flipkart", "link",
+            "a[href*='/p/']", "a[href]");
+
+    // Amazon search results
+    static final SelectorPlan AMAZON_CARD = SelectorPlan.forField("Amazon", "card",
+            "div[data-component-type='s-search-result']", "div.s-result-item[data-asin]");
+    static final SelectorPlan AMAZON_PRICE = SelectorPlan.forField("Amazon", "price",
+            "span.a-price-whole", "span.a-price span.a-offscreen");
+    static final SelectorPlan AMAZON_RATING = SelectorPlan.forField("Amazon", "rating",
+            "span.a-icon-alt", "i.a-icon-star-small span");
+    static final SelectorPlan AMAZON_SELLER = SelectorPlan.forField("Amazon", "seller",
+            "span.a-size-base");
+    static final SelectorPlan AMAZON_LINK = SelectorPlan.forField("Amazon", "link",
+            "h2 a[href]", "a.a-link-normal[href*='/dp/']", "a[href]");
+
+    // Flipkart product pages
+    static final SelectorPlan FLIPKART_DETAIL_SELLER = SelectorPlan.forField("Flipkart", "detail.seller",
+            "#sellerName span", "div#sellerName", "div._1RLviY span");
+    static final SelectorPlan FLIPKART_DETAIL_DELIVERY = SelectorPlan.forField("Flipkart", "detail.delivery",
+            "div.hVvnXm", "div._3XINqE", "span._1TPvTK");
+    static final SelectorPlan FLIPKART_DETAIL_RETURNS = SelectorPlan.forField("Flipkart", "detail.returns",
+            "div._2MJMLX", "li._7eSDEY div.YhUgfO");
+    static final SelectorPlan FLIPKART_DETAIL_WARRANTY = SelectorPlan.forField("Flipkart", "detail.warranty",
+            "div._352bdz", "div.XcYV4g");
+
+    // Amazon product pages
+    static final SelectorPlan AMAZON_DETAIL_SELLER = SelectorPlan.forField("Amazon", "detail.seller",
+            "#sellerProfileTriggerId", "#merchant-info a", "#merchantInfoFeature_feature_div span.offer-display-feature-text-message");
+    static final SelectorPlan AMAZON_DETAIL_DELIVERY = SelectorPlan.forField("Amazon", "detail.delivery",
+            "#mir-layout-DELIVERY_BLOCK-slot-PRIMARY_DELIVERY_MESSAGE_LARGE span.a-text-bold",
+            "#deliveryBlockMessage span.a-text-bold");
+    static final SelectorPlan AMAZON_DETAIL_RETURNS = SelectorPlan.forField("Amazon", "detail.returns",
+            "#RETURNS_POLICY span.a-size-small", "#productSupportAndReturnPolicy-return-policy-anchor-text");
+    static final SelectorPlan AMAZON_DETAIL_WARRANTY = SelectorPlan.forField("Amazon", "detail.warranty",
+            "#WARRANTY span.a-size-small", "#warranty_feature_div span");
+}
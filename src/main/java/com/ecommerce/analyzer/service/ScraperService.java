@@ -1,9 +1,18 @@
 package com.ecommerce.analyzer.service;
 import com.ecommerce.analyzer.model.ProductDetail;
+import com.ecommerce.analyzer.service.GeminiProductScraperService.ScrapeRequest;
+import com.ecommerce.analyzer.service.GeminiProductScraperService.ScrapeResult;
+import com.ecommerce.analyzer.util.ConfigManager;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Map;
 
 public class ScraperService {
+    // Stores scraped directly by HtmlUnit/Selenium
+    private static final String[] TRADITIONAL_PLATFORMS = {"Flipkart", "Amazon"};
+
     private HtmlUnitScraperService htmlUnitScraper = new HtmlUnitScraperService();
     private SeleniumScraperService seleniumScraper = new SeleniumScraperService();
     private MockScraperService mockScraper = new MockScraperService();
@@ -14,12 +23,22 @@ public class ScraperService {
     private boolean useHtmlUnit = false;       // Keep as backup
     private boolean useSelenium = false;       // Keep as backup
     private boolean useMockFallback = true;    // Always have fallback
+    private boolean enrichDetailPages = ConfigManager.getBooleanProperty("crawl.detail.enabled", true);
+    private final HostPolitenessLimiter politeness = HostPolitenessLimiter.shared();
+    private final RefreshWindowPolicy windowPolicy = RefreshWindowPolicy.getInstance();
 
     /**
      * NEW METHOD: Gets data for ALL platforms at once
      * This is now the primary method for multi-platform comparison
      */
     public List<ProductDetail> scrapeAllPlatforms(String productName, Long productId) {
+        return scrapeAllPlatforms(productName, productId, false);
+    }
+
+    /**
+     * Background scrapes skip stores that are inside their quiet hours
+     */
+    private List<ProductDetail> scrapeAllPlatforms(String productName, Long productId, boolean background) {
         System.out.println("\n╔══════════════════════════════════════════════════════╗");
         System.out.println("║       MULTI-PLATFORM PRODUCT DATA RETRIEVAL          ║");
         System.out.println("╚══════════════════════════════════════════════════════╝");
@@ -40,9 +59,15 @@ public class ScraperService {
         }
 
         // Strategy 2: Try traditional scraping for major platforms
+        if ((useHtmlUnit || useSelenium) && background
+                && Arrays.stream(TRADITIONAL_PLATFORMS).allMatch(windowPolicy::isQuiet)) {
+            // Mock data must not overwrite real data just because the stores are resting
+            System.out.println("✗ All scraped stores are in their quiet hours - try again later\n");
+            return new ArrayList<>();
+        }
         if (useHtmlUnit || useSelenium) {
             System.out.println("[Strategy 2] 🌐 Attempting traditional web scraping...");
-            results = scrapeTraditionalPlatforms(productName, productId);
+            results = scrapeTraditionalPlatforms(productName, productId, background);
             if (results != null && !results.isEmpty()) {
                 System.out.println("✓ Traditional scraping successful! Retrieved " + results.size() + " platforms\n");
                 return results;
@@ -62,6 +87,37 @@ public class ScraperService {
         return new ArrayList<>();
     }
 
+    /**
+     * First-time lookups: Gemini returns the platform data and the recommendation
+     * together. Other strategies have no recommendation, so it is null there.
+     */
+    public ScrapeResult scrapeAllPlatformsWithRecommendation(String productName, Long productId) {
+        if (useGemini) {
+            System.out.println("[Strategy 1] 🤖 Attempting combined Gemini data + recommendation...");
+            ScrapeResult result = geminiScraper.scrapeWithRecommendation(productName, productId);
+            if (result.details() != null && !result.details().isEmpty()) {
+                return result;
+            }
+        }
+        return new ScrapeResult(scrapeAllPlatforms(productName, productId), null);
+    }
+
+    /**
+     * Bulk variant for refreshes and imports: Gemini answers several products
+     * per request; without Gemini each product goes through the single-product chain
+     */
+    public Map<ScrapeRequest, List<ProductDetail>> scrapeAllPlatforms(List<ScrapeRequest> requests) {
+        if (useGemini) {
+            return geminiScraper.scrapeAllPlatforms(requests);
+        }
+
+        Map<ScrapeRequest, List<ProductDetail>> results = new LinkedHashMap<>();
+        for (ScrapeRequest request : requests) {
+            results.put(request, scrapeAllPlatforms(request.productName(), request.productId(), true));
+        }
+        return results;
+    }
+
     /**
      * LEGACY METHOD: Single platform scraping (for backward compatibility)
      * Now internally calls scrapeAllPlatforms and filters by URL
@@ -128,12 +184,17 @@ public class ScraperService {
 
     /**
      * NEW: Scrapes traditional platforms (Amazon, Flipkart) using HtmlUnit/Selenium
+     * Stage 1 reads search results; stage 2 enriches them from their product pages.
      */
-    private List<ProductDetail> scrapeTraditionalPlatforms(String productName, Long productId) {
+    private List<ProductDetail> scrapeTraditionalPlatforms(String productName, Long productId, boolean background) {
         List<ProductDetail> results = new ArrayList<>();
-        String[] platforms = {"Flipkart", "Amazon"};
+        CrawlStageStats searchStats = new CrawlStageStats("search", "pages");
 
-        for (String platform : platforms) {
+        for (String platform : TRADITIONAL_PLATFORMS) {
+            if (background && windowPolicy.isQuiet(platform)) {
+                System.out.println("[Scraper] 🌙 " + platform + " is in its quiet hours - not scraped this time");
+                continue;
+            }
             ProductDetail detail = null;
 
             if (useHtmlUnit) {
@@ -146,8 +207,16 @@ public class ScraperService {
 
             if (detail != null && detail.getPrice() > 0) {
                 results.add(detail);
+                searchStats.recordSuccess();
+            } else {
+                searchStats.recordFailure();
             }
         }
+        searchStats.report();
+
+        if (!results.isEmpty() && enrichDetailPages) {
+            DetailPageEnricher.getInstance().enrich(results);
+        }
 
         return results.isEmpty() ? null : results;
     }
@@ -168,17 +237,25 @@ public class ScraperService {
 
     /**
      * Scrapes using HtmlUnit based on platform
+     * Search pages share the per-host politeness limits, so parallel refreshes stay polite
      */
     private ProductDetail scrapeWithHtmlUnit(String platform, String productName, Long productId) {
+        String host = searchHost(platform);
+        if (host == null) {
+            return null;
+        }
         try {
-            switch (platform.toLowerCase()) {
-                case "flipkart":
-                    return htmlUnitScraper.scrapeFlipkart(productName, productId);
-                case "amazon":
-                    return htmlUnitScraper.scrapeAmazon(productName, productId);
-                default:
-                    return null;
+            politeness.acquire(host);
+            try {
+                return platform.equalsIgnoreCase("flipkart")
+                        ? htmlUnitScraper.scrapeFlipkart(productName, productId)
+                        : htmlUnitScraper.scrapeAmazon(productName, productId);
+            } finally {
+                politeness.release(host);
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
         } catch (Exception e) {
             System.err.println("HtmlUnit exception: " + e.getMessage());
             return null;
@@ -189,21 +266,42 @@ public class ScraperService {
      * Scrapes using Selenium based on platform
      */
     private ProductDetail scrapeWithSelenium(String platform, String productName, Long productId) {
+        String host = searchHost(platform);
+        if (host == null) {
+            return null;
+        }
         try {
-            switch (platform.toLowerCase()) {
-                case "flipkart":
-                    return seleniumScraper.scrapeFlipkart(productName, productId);
-                case "amazon":
-                    return seleniumScraper.scrapeAmazon(productName, productId);
-                default:
-                    return null;
+            politeness.acquire(host);
+            try {
+                return platform.equalsIgnoreCase("flipkart")
+                        ? seleniumScraper.scrapeFlipkart(productName, productId)
+                        : seleniumScraper.scrapeAmazon(productName, productId);
+            } finally {
+                politeness.release(host);
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
         } catch (Exception e) {
             System.err.println("Selenium exception: " + e.getMessage());
             return null;
         }
     }
 
+    /**
+     * Host of the platform's search page, or null if we can't scrape it
+     */
+    private static String searchHost(String platform) {
+        switch (platform.toLowerCase()) {
+            case "flipkart":
+                return "www.flipkart.com";
+            case "amazon":
+                return "www.amazon.in";
+            default:
+                return null;
+        }
+    }
+
     /**
      * Determines e-commerce platform from URL
      */
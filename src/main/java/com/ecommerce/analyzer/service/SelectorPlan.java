@@ -0,0 +1,194 @@
+package com.ecommerce.analyzer.service;
+
+import com.ecommerce.analyzer.util.ConfigManager;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Selector Plan
+ * Ordered candidate selectors for one platform field (e.g. Flipkart price).
+ * Candidates are reordered by a moving average of their hit rate so each page
+ * tries the currently winning selector first. The learned order is persisted
+ * across restarts and an alert is logged when every candidate misses.
+ */
+public class SelectorPlan {
+
+    private static final double HIT_RATE_ALPHA = 0.2;
+    private static final int ALERT_EVERY = 10;
+
+    private static final Map<String, SelectorPlan> PLANS = new ConcurrentHashMap<>();
+    private static final Properties STORED = new Properties();
+    private static final Path STORE_FILE = Paths.get(ConfigManager.getProperty("selector.plan.file",
+            System.getProperty("user.home") + File.separator + ".ecommerce-analyzer" + File.separator + "selector-plans.properties"));
+
+    static {
+        if (Files.exists(STORE_FILE)) {
+            try (Reader reader = Files.newBufferedReader(STORE_FILE)) {
+                STORED.load(reader);
+                System.out.println("[SelectorPlan] Loaded learned selector order from " + STORE_FILE);
+            } catch (IOException e) {
+                System.err.println("[SelectorPlan] Could not read " + STORE_FILE + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private static class Candidate {
+        final String selector;
+        double hitRate;
+        long hits;
+        long misses;
+
+        Candidate(String selector, double hitRate) {
+            this.selector = selector;
+            this.hitRate = hitRate;
+        }
+    }
+
+    private final String key;
+    private final List<Candidate> candidates = new ArrayList<>();
+    private int consecutiveAllMisses;
+
+    private SelectorPlan(String key, String[] defaultSelectors) {
+        this.key = key;
+
+        // Learned order first, then any selectors added to the code since
+        Set<String> defaults = new LinkedHashSet<>(Arrays.asList(defaultSelectors));
+        for (int i = 0; STORED.containsKey(key + "." + i); i++) {
+            String entry = STORED.getProperty(key + "." + i);
+            int space = entry.indexOf(' ');
+            if (space < 0) continue;
+            String selector = entry.substring(space + 1);
+            if (defaults.remove(selector)) {
+                try {
+                    candidates.add(new Candidate(selector, Double.parseDouble(entry.substring(0, space))));
+                } catch (NumberFormatException e) {
+                    candidates.add(new Candidate(selector, 0.5));
+                }
+            }
+        }
+        double prior = 0.5;
+        for (String selector : defaults) {
+            candidates.add(new Candidate(selector, prior));
+            prior -= 0.001; // Keep declaration order among untried selectors
+        }
+    }
+
+    /**
+     * Get (or create) the plan for a platform field
+     */
+    public static SelectorPlan forField(String platform, String field, String... defaultSelectors) {
+        return PLANS.computeIfAbsent(platform + "." + field, key -> new SelectorPlan(key, defaultSelectors));
+    }
+
+    /**
+     * Current selector order, best first
+     */
+    public synchronized List<String> getOrder() {
+        List<String> order = new ArrayList<>(candidates.size());
+        for (Candidate candidate : candidates) {
+            order.add(candidate.selector);
+        }
+        return order;
+    }
+
+    /**
+     * Try selectors in learned order until the probe returns a non-null value.
+     * Candidates tried before the winner are recorded as misses.
+     * @param probe evaluates one selector against the page, null on miss
+     * @return the first hit, or null if every selector missed
+     */
+    public <T> T evaluate(Function<String, T> probe) {
+        List<String> order = getOrder();
+
+        for (int i = 0; i < order.size(); i++) {
+            T value;
+            try {
+                value = probe.apply(order.get(i));
+            } catch (Exception e) {
+                value = null; // Invalid selector or detached node counts as a miss
+            }
+            if (value != null) {
+                recordOutcome(order, i);
+                return value;
+            }
+        }
+
+        recordOutcome(order, -1);
+        return null;
+    }
+
+    private void recordOutcome(List<String> tried, int winnerIndex) {
+        boolean reordered;
+        synchronized (this) {
+            int triedCount = winnerIndex >= 0 ? winnerIndex + 1 : tried.size();
+            for (int i = 0; i < triedCount; i++) {
+                Candidate candidate = find(tried.get(i));
+                if (candidate == null) continue;
+                boolean hit = i == winnerIndex;
+                candidate.hitRate = candidate.hitRate * (1 - HIT_RATE_ALPHA) + (hit ? HIT_RATE_ALPHA : 0);
+                if (hit) candidate.hits++; else candidate.misses++;
+            }
+
+            List<String> before = getOrder();
+            candidates.sort((a, b) -> Double.compare(b.hitRate, a.hitRate));
+            reordered = !before.equals(getOrder());
+
+            if (winnerIndex >= 0) {
+                consecutiveAllMisses = 0;
+            } else {
+                consecutiveAllMisses++;
+                if (consecutiveAllMisses == 1 || consecutiveAllMisses % ALERT_EVERY == 0) {
+                    System.err.println("[SelectorPlan] ⚠️  ALERT: every selector missed for " + key
+                            + " (" + consecutiveAllMisses + " consecutive pages) - tried " + tried);
+                }
+            }
+        }
+
+        if (reordered) {
+            System.out.println("[SelectorPlan] " + key + " reordered: " + getOrder());
+            saveAll();
+        }
+    }
+
+    private Candidate find(String selector) {
+        for (Candidate candidate : candidates) {
+            if (candidate.selector.equals(selector)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    private synchronized void writeTo(Properties properties) {
+        for (int i = 0; i < candidates.size(); i++) {
+            Candidate candidate = candidates.get(i);
+            properties.setProperty(key + "." + i, String.format(Locale.ROOT, "%.4f %s", candidate.hitRate, candidate.selector));
+        }
+        for (int i = candidates.size(); properties.containsKey(key + "." + i); i++) {
+            properties.remove(key + "." + i);
+        }
+    }
+
+    /**
+     * Persist every plan's learned order
+     */
+    private static synchronized void saveAll() {
+        for (SelectorPlan plan : PLANS.values()) {
+            plan.writeTo(STORED);
+        }
+        try {
+            Files.createDirectories(STORE_FILE.getParent());
+            Path temp = STORE_FILE.resolveSibling(STORE_FILE.getFileName() + ".tmp");
+            try (Writer writer = Files.newBufferedWriter(temp)) {
+                STORED.store(writer, "Learned selector order (hit-rate selector)");
+            }
+            Files.move(temp, STORE_FILE, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("[SelectorPlan] Could not save " + STORE_FILE + ": " + e.getMessage());
+        }
+    }
+}
@@ -3,6 +3,8 @@ package com.ecommerce.analyzer.service;
 import com.ecommerce.analyzer.model.ProductDetail;
 import io.github.bonigarcia.wdm.WebDriverManager;
 import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.PageLoadStrategy;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebElement;
 import org.openqa.selenium.chrome.ChromeDriver;
@@ -13,12 +15,27 @@ import org.openqa.selenium.support.ui.WebDriverWait;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class SeleniumScraperService {
 
     private static boolean isDriverSetup = false;
 
+    private static final Map<String, By> COMPILED_SELECTORS = new ConcurrentHashMap<>();
+
+    private final StructuredDataExtractor structuredDataExtractor = new StructuredDataExtractor();
+
+    // Sums transfer sizes from the Resource Timing API (cross-origin entries without
+    // Timing-Allow-Origin report 0, so this is a lower bound)
+    private static final String TRANSFERRED_BYTES_SCRIPT =
+            "var total = 0;" +
+            "performance.getEntriesByType('navigation').forEach(function(e) { total += e.transferSize || 0; });" +
+            "performance.getEntriesByType('resource').forEach(function(e) { total += e.transferSize || 0; });" +
+            "return total;";
+
     /**
      * Sets up ChromeDriver automatically using WebDriverManager
      * This only needs to run once per application session
@@ -40,26 +57,36 @@ public class SeleniumScraperService {
         setupChromeDriver();
 
         WebDriver driver = null;
+        PageLoadStats stats = new PageLoadStats("Selenium", "Flipkart");
         try {
-            driver = createChromeDriver();
+            driver = createChromeDriver(PageLoadProfile.forPlatform("Flipkart"));
             Thread.sleep(2000); // Rate limiting
 
             String encodedSearch = URLEncoder.encode(productName, StandardCharsets.UTF_8);
             String url = "https://www.flipkart.com/search?q=" + encodedSearch;
 
+            stats.start();
             driver.get(url);
 
+            // Structured data first - skips waiting for the result grid
+            ProductDetail structured = extractStructuredDetail(driver, url, "Flipkart", productId);
+            if (structured != null) {
+                reportPageLoad(driver, stats);
+                if (structured.getAvailability() == null) structured.setAvailability("In Stock");
+                structured.setDeliveryTime("Check website");
+                structured.setReturnPolicy("10 days return");
+                return structured;
+            }
+
             // Wait for products to load (max 10 seconds)
             WebDriverWait wait = new WebDriverWait(driver, Duration.ofSeconds(10));
-            wait.until(ExpectedConditions.presenceOfElementLocated(By.cssSelector("div[data-id]")));
+            wait.until(ExpectedConditions.presenceOfElementLocated(anyOf(ScraperSelectors.FLIPKART_CARD)));
+            reportPageLoad(driver, stats);
 
-            // Find first product
-            List<WebElement> products = driver.findElements(By.cssSelector("div[data-id]"));
-            if (products.isEmpty()) {
-                products = driver.findElements(By.cssSelector("div._1AtVbE"));
-            }
+            // Find first product, trying card selectors in learned order
+            List<WebElement> products = findCards(driver, ScraperSelectors.FLIPKART_CARD);
 
-            if (products.isEmpty()) {
+            if (products == null) {
                 System.out.println("[Selenium] No products found for Flipkart");
                 return null;
             }
@@ -69,12 +96,12 @@ public class SeleniumScraperService {
             ProductDetail detail = new ProductDetail();
             detail.setProductId(productId);
             detail.setPlatform("Flipkart");
-            detail.setProductLink(url);
+            detail.setProductLink(extractLink(firstProduct, ScraperSelectors.FLIPKART_LINK, url));
 
             // Extract data with multiple selector fallbacks
-            detail.setPrice(extractPrice(firstProduct, "div._30jeq3", "div._3I9_wc"));
-            detail.setRating(extractRating(firstProduct, "div._3LWZlK"));
-            detail.setSeller(extractText(firstProduct, "div._2WkVRV"));
+            detail.setPrice(extractPrice(firstProduct, ScraperSelectors.FLIPKART_PRICE));
+            detail.setRating(extractRating(firstProduct, ScraperSelectors.FLIPKART_RATING));
+            detail.setSeller(extractText(firstProduct, ScraperSelectors.FLIPKART_SELLER));
             detail.setDeliveryTime("Check website");
             detail.setReturnPolicy("10 days return");
             detail.setAvailability("In Stock");
@@ -100,25 +127,33 @@ public class SeleniumScraperService {
         setupChromeDriver();
 
         WebDriver driver = null;
+        PageLoadStats stats = new PageLoadStats("Selenium", "Amazon");
         try {
-            driver = createChromeDriver();
+            driver = createChromeDriver(PageLoadProfile.forPlatform("Amazon"));
             Thread.sleep(3000); // Amazon needs longer delay
 
             String encodedSearch = URLEncoder.encode(productName, StandardCharsets.UTF_8);
             String url = "https://www.amazon.in/s?k=" + encodedSearch;
 
+            stats.start();
             driver.get(url);
 
+            ProductDetail structured = extractStructuredDetail(driver, url, "Amazon", productId);
+            if (structured != null) {
+                reportPageLoad(driver, stats);
+                if (structured.getAvailability() == null) structured.setAvailability("In Stock");
+                structured.setDeliveryTime("2-3 days");
+                structured.setReturnPolicy("30 days return");
+                return structured;
+            }
+
             WebDriverWait wait = new WebDriverWait(driver, Duration.ofSeconds(10));
-            wait.until(ExpectedConditions.presenceOfElementLocated(
-                    By.cssSelector("div[data-component-type='s-search-result']")
-            ));
+            wait.until(ExpectedConditions.presenceOfElementLocated(anyOf(ScraperSelectors.AMAZON_CARD)));
+            reportPageLoad(driver, stats);
 
-            List<WebElement> products = driver.findElements(
-                    By.cssSelector("div[data-component-type='s-search-result']")
-            );
+            List<WebElement> products = findCards(driver, ScraperSelectors.AMAZON_CARD);
 
-            if (products.isEmpty()) {
+            if (products == null) {
                 System.out.println("[Selenium] No products found for Amazon");
                 return null;
             }
@@ -128,10 +163,10 @@ public class SeleniumScraperService {
             ProductDetail detail = new ProductDetail();
             detail.setProductId(productId);
             detail.setPlatform("Amazon");
-            detail.setProductLink(url);
+            detail.setProductLink(extractLink(firstProduct, ScraperSelectors.AMAZON_LINK, url));
 
-            detail.setPrice(extractPrice(firstProduct, "span.a-price-whole"));
-            detail.setRating(extractRating(firstProduct, "span.a-icon-alt"));
+            detail.setPrice(extractPrice(firstProduct, ScraperSelectors.AMAZON_PRICE));
+            detail.setRating(extractRating(firstProduct, ScraperSelectors.AMAZON_RATING));
             detail.setSeller("Amazon");
             detail.setDeliveryTime("2-3 days");
             detail.setReturnPolicy("30 days return");
@@ -152,10 +187,20 @@ public class SeleniumScraperService {
 
     /**
      * Creates configured ChromeDriver with anti-detection settings
+     * and the platform's lean page-load profile
      */
-    private WebDriver createChromeDriver() {
+    private ChromeDriver createChromeDriver(PageLoadProfile profile) {
         ChromeOptions options = new ChromeOptions();
 
+        // Return as soon as the DOM is ready instead of waiting for every subresource
+        options.setPageLoadStrategy(PageLoadStrategy.fromString(profile.getPageLoadStrategy()));
+        if (!profile.isLoadImages()) {
+            Map<String, Object> prefs = new HashMap<>();
+            prefs.put("profile.managed_default_content_settings.images", 2);
+            options.setExperimentalOption("prefs", prefs);
+            options.addArguments("--blink-settings=imagesEnabled=false");
+        }
+
         // Headless mode (no GUI) - faster and less resource intensive
         options.addArguments("--headless=new"); // Use new headless mode
         options.addArguments("--disable-gpu");
@@ -171,27 +216,95 @@ public class SeleniumScraperService {
         // User agent
         options.addArguments("user-agent=Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/130.0.0.0 Safari/537.36");
 
-        return new ChromeDriver(options);
+        ChromeDriver driver = new ChromeDriver(options);
+
+        // Drop blocklisted requests (fonts, media, ads, analytics) at the network layer
+        try {
+            driver.executeCdpCommand("Network.enable", Map.of());
+            driver.executeCdpCommand("Network.setBlockedURLs",
+                    Map.of("urls", profile.getChromeBlockedUrlPatterns()));
+        } catch (Exception e) {
+            System.err.println("[Selenium] Could not enable request blocking: " + e.getMessage());
+        }
+        return driver;
     }
 
-    // Helper methods for data extraction
-    private String extractText(WebElement parent, String... selectors) {
-        for (String selector : selectors) {
-            try {
-                WebElement element = parent.findElement(By.cssSelector(selector));
-                String text = element.getText().trim();
-                if (!text.isEmpty()) {
-                    return text;
-                }
-            } catch (Exception e) {
-                // Try next selector
+    /**
+     * Reads JSON-LD / embedded state from the page source
+     * @return detail with the structured fields, or null to fall back to selectors
+     */
+    private ProductDetail extractStructuredDetail(WebDriver driver, String url, String platform, Long productId) {
+        StructuredDataExtractor.StructuredProduct data = structuredDataExtractor.extract(driver.getPageSource());
+        if (data == null) {
+            return null;
+        }
+
+        ProductDetail detail = new ProductDetail();
+        detail.setProductId(productId);
+        detail.setPlatform(platform);
+        detail.setProductLink(url);
+        detail.setSeller("N/A"); // Same as the selector path when no seller is found
+        data.applyTo(detail);
+
+        System.out.println("[Selenium] ✓ " + platform + " structured data found - skipped selector wait");
+        return detail;
+    }
+
+    /**
+     * Reports transferred bytes and render time for the current page
+     */
+    private void reportPageLoad(WebDriver driver, PageLoadStats stats) {
+        try {
+            Object transferred = ((JavascriptExecutor) driver).executeScript(TRANSFERRED_BYTES_SCRIPT);
+            if (transferred instanceof Number) {
+                stats.addBytes(((Number) transferred).longValue());
             }
+        } catch (Exception e) {
+            // Resource Timing unavailable - report time only
         }
-        return "N/A";
+        stats.report();
+    }
+
+    // Helper methods for data extraction
+
+    /** Compiled locator for a selector, built once per selector string */
+    private static By locator(String selector) {
+        return COMPILED_SELECTORS.computeIfAbsent(selector, By::cssSelector);
+    }
+
+    /** Matches any of the plan's candidates - used to wait for the result grid */
+    private static By anyOf(SelectorPlan plan) {
+        return locator(String.join(", ", plan.getOrder()));
+    }
+
+    private List<WebElement> findCards(WebDriver driver, SelectorPlan plan) {
+        return plan.evaluate(selector -> {
+            List<WebElement> elements = driver.findElements(locator(selector));
+            return elements.isEmpty() ? null : elements;
+        });
+    }
+
+    private String extractText(WebElement parent, SelectorPlan plan) {
+        String text = plan.evaluate(selector -> {
+            List<WebElement> elements = parent.findElements(locator(selector));
+            String value = elements.isEmpty() ? "" : elements.get(0).getText().trim();
+            return value.isEmpty() ? null : value;
+        });
+        return text != null ? text : "N/A";
+    }
+
+    /** Absolute product-page link from a result card, or the fallback (search URL) */
+    private String extractLink(WebElement parent, SelectorPlan plan, String fallback) {
+        String link = plan.evaluate(selector -> {
+            List<WebElement> elements = parent.findElements(locator(selector));
+            String href = elements.isEmpty() ? null : elements.get(0).getAttribute("href");
+            return href == null || href.isEmpty() ? null : href;
+        });
+        return link != null ? link : fallback;
     }
 
-    private double extractPrice(WebElement parent, String... selectors) {
-        String priceText = extractText(parent, selectors)
+    private double extractPrice(WebElement parent, SelectorPlan plan) {
+        String priceText = extractText(parent, plan)
                 .replaceAll("[^0-9.]", "");
         try {
             return priceText.isEmpty() ? 0.0 : Double.parseDouble(priceText);
@@ -200,8 +313,8 @@ public class SeleniumScraperService {
         }
     }
 
-    private double extractRating(WebElement parent, String... selectors) {
-        String ratingText = extractText(parent, selectors)
+    private double extractRating(WebElement parent, SelectorPlan plan) {
+        String ratingText = extractText(parent, plan)
                 .replaceAll("[^0-9.]", "");
         try {
             return ratingText.isEmpty() ? 0.0 : Double.parseDouble(ratingText);
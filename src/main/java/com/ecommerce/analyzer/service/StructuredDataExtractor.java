@@ -0,0 +1,330 @@
+package com.ecommerce.analyzer.service;
+
+import com.ecommerce.analyzer.model.ProductDetail;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Structured Data Extractor
+ * Reads price, rating, review count, availability and seller from the
+ * JSON-LD blocks and serialized state blobs embedded in raw product-page HTML.
+ * Each block is parsed in place with a streaming JsonReader - no DOM, no
+ * JavaScript and no copy of the script body. Only the fields of one product
+ * node are kept for each block, never a mix gathered from the whole page.
+ */
+public class StructuredDataExtractor {
+
+    private static final String JSON_LD_MARKER = "application/ld+json";
+    private static final String SCRIPT_END = "</script>";
+
+    // Serialized client state that many storefronts inline into the page
+    private static final String[] STATE_MARKERS = {
+            "window.__INITIAL_STATE__", "window.__PRELOADED_STATE__", "__NEXT_DATA__"
+    };
+
+    private static final int MAX_DEPTH = 64;
+
+    private static final Pattern NUMBER = Pattern.compile("(\\d[\\d,]*(?:\\.\\d+)?)");
+
+    private static final Set<String> PRICE_KEYS = Set.of("price", "lowPrice", "sellingPrice", "finalPrice");
+    private static final Set<String> RATING_KEYS = Set.of("ratingValue", "averageRating", "average");
+    private static final Set<String> COUNT_KEYS = Set.of("reviewCount", "ratingCount", "count");
+
+    // Child objects that describe their parent rather than being items of their own
+    private static final Set<String> ATTRIBUTE_KEYS = Set.of(
+            "offers", "aggregateRating", "seller", "priceSpecification", "pricing", "rating", "ratings",
+            "price", "lowPrice", "sellingPrice", "finalPrice");
+
+    /**
+     * Fields found in the page; any of them may be null
+     */
+    public static class StructuredProduct {
+        private Double price;
+        private Double rating;
+        private Integer reviewCount;
+        private String availability;
+        private String seller;
+
+        public Double getPrice() { return price; }
+        public Double getRating() { return rating; }
+        public Integer getReviewCount() { return reviewCount; }
+        public String getAvailability() { return availability; }
+        public String getSeller() { return seller; }
+
+        public boolean hasPrice() {
+            return price != null && price > 0;
+        }
+
+        /**
+         * Copy the fields that were found onto a ProductDetail
+         */
+        public void applyTo(ProductDetail detail) {
+            if (price != null) detail.setPrice(price);
+            if (rating != null) detail.setRating(rating);
+            if (reviewCount != null) detail.setReviewCount(reviewCount);
+            if (availability != null) detail.setAvailability(availability);
+            if (seller != null) detail.setSeller(seller);
+        }
+    }
+
+    /**
+     * Extract structured product data from raw HTML.
+     * JSON-LD blocks are read first, then state blobs. The first product node
+     * with a price wins, and every field comes from that node, so a page that
+     * lists several products never mixes one product's price with another's rating.
+     * @return the extracted fields, or null if the page has no usable structured data
+     */
+    public StructuredProduct extract(String html) {
+        if (html == null || html.isEmpty()) {
+            return null;
+        }
+
+        String lowerHtml = html.toLowerCase(Locale.ROOT);
+        int from = 0;
+        while (true) {
+            int marker = lowerHtml.indexOf(JSON_LD_MARKER, from);
+            if (marker < 0) break;
+            int bodyStart = html.indexOf('>', marker);
+            if (bodyStart < 0) break;
+            int bodyEnd = lowerHtml.indexOf(SCRIPT_END, bodyStart);
+            if (bodyEnd < 0) break;
+
+            StructuredProduct product = parseBlock(html, bodyStart + 1);
+            if (product != null) {
+                return product;
+            }
+            from = bodyEnd;
+        }
+
+        for (String stateMarker : STATE_MARKERS) {
+            int marker = html.indexOf(stateMarker);
+            if (marker < 0) continue;
+            int objectStart = html.indexOf('{', marker);
+            if (objectStart < 0) continue;
+
+            StructuredProduct product = parseBlock(html, objectStart);
+            if (product != null) {
+                return product;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Stream one JSON value starting at the given offset of the page
+     * @return the first priced product node in it, or null
+     */
+    private StructuredProduct parseBlock(String html, int offset) {
+        try (StringReader source = new StringReader(html)) {
+            source.skip(offset);
+            JsonReader reader = new JsonReader(source);
+            reader.setLenient(true);
+            Node node = readValue(reader, 0);
+            return node != null && node.result != null ? node.result.toProduct() : null;
+        } catch (Exception e) {
+            // Malformed or truncated block - nothing trustworthy to return
+            return null;
+        }
+    }
+
+    /**
+     * Fields read from one JSON object. Children under attribute keys (offers,
+     * aggregateRating, seller, ...) describe this object and are merged into it;
+     * any other child object is a separate item, such as a related product or a
+     * search result, and can only become the result on its own.
+     */
+    private static class Node {
+        Double price;
+        Double rating;
+        Integer reviewCount;
+        String availability;
+        String seller;
+        String name;
+        Double value;
+        Node result; // This node or the first priced item below it
+
+        boolean hasPrice() {
+            return price != null && price > 0;
+        }
+
+        /**
+         * Fill missing fields from an attribute child
+         */
+        void merge(String key, Node child) {
+            if (PRICE_KEYS.contains(key) && price == null && child.value != null && child.value > 0) {
+                price = child.value; // {"finalPrice": {"value": 1299}}
+            }
+            if ("seller".equals(key) && seller == null) {
+                seller = child.seller != null ? child.seller : child.name;
+            }
+            if (price == null && child.hasPrice()) price = child.price;
+            if (rating == null) rating = child.rating;
+            if (reviewCount == null) reviewCount = child.reviewCount;
+            if (availability == null) availability = child.availability;
+            if (seller == null) seller = child.seller;
+        }
+
+        StructuredProduct toProduct() {
+            StructuredProduct product = new StructuredProduct();
+            product.price = price;
+            product.rating = rating;
+            product.reviewCount = reviewCount;
+            product.availability = availability;
+            product.seller = seller;
+            return product;
+        }
+    }
+
+    /**
+     * Read any JSON value; scalars yield null, objects and arrays their Node
+     */
+    private Node readValue(JsonReader reader, int depth) throws IOException {
+        if (depth > MAX_DEPTH) {
+            reader.skipValue();
+            return null;
+        }
+        return switch (reader.peek()) {
+            case BEGIN_OBJECT -> readObject(reader, depth);
+            case BEGIN_ARRAY -> readArray(reader, depth);
+            default -> {
+                reader.skipValue();
+                yield null;
+            }
+        };
+    }
+
+    /**
+     * An array is a list of separate items; its result is the first priced one
+     */
+    private Node readArray(JsonReader reader, int depth) throws IOException {
+        Node list = new Node();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            Node item = readValue(reader, depth + 1);
+            if (list.result == null && item != null && item.result != null) {
+                list.result = item.result;
+            }
+        }
+        reader.endArray();
+        return list;
+    }
+
+    private Node readObject(JsonReader reader, int depth) throws IOException {
+        Node node = new Node();
+        Node firstItem = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String key = reader.nextName();
+            JsonToken token = reader.peek();
+            if (token == JsonToken.STRING || token == JsonToken.NUMBER) {
+                readScalar(reader.nextString(), key, node);
+                continue;
+            }
+
+            boolean attribute = ATTRIBUTE_KEYS.contains(key);
+            if (attribute && token == JsonToken.BEGIN_ARRAY && depth < MAX_DEPTH) {
+                // "offers": [...] - the first offer with a price describes this node
+                boolean merged = false;
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    Node offer = readValue(reader, depth + 2);
+                    if (!merged && offer != null && offer.hasPrice()) {
+                        node.merge(key, offer);
+                        merged = true;
+                    }
+                }
+                reader.endArray();
+                continue;
+            }
+
+            Node child = readValue(reader, depth + 1);
+            if (child == null) {
+                continue;
+            }
+            if (attribute) {
+                node.merge(key, child);
+            } else if (firstItem == null && child.result != null) {
+                firstItem = child.result;
+            }
+        }
+        reader.endObject();
+        node.result = node.hasPrice() ? node : firstItem;
+        return node;
+    }
+
+    private void readScalar(String value, String key, Node node) {
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+
+        if (PRICE_KEYS.contains(key)) {
+            if (node.price == null) {
+                Double price = parseNumber(value);
+                if (price != null && price > 0) node.price = price;
+            }
+        } else if (RATING_KEYS.contains(key)) {
+            if (node.rating == null) {
+                Double rating = parseNumber(value);
+                if (rating != null && rating >= 0 && rating <= 5) node.rating = rating;
+            }
+        } else if (COUNT_KEYS.contains(key)) {
+            if (node.reviewCount == null) {
+                Double count = parseNumber(value);
+                if (count != null && count >= 0) node.reviewCount = count.intValue();
+            }
+        } else {
+            switch (key) {
+                case "availability" -> {
+                    if (node.availability == null) node.availability = normalizeAvailability(value);
+                }
+                case "seller" -> {
+                    if (node.seller == null) node.seller = value.trim();
+                }
+                case "name" -> node.name = value.trim();
+                case "value" -> node.value = parseNumber(value);
+                default -> {
+                    // Not a field we extract
+                }
+            }
+        }
+    }
+
+    /**
+     * First number in the text, grouping commas dropped: "Rs. 1,299" -> 1299, "4.5 out of 5" -> 4.5
+     */
+    static Double parseNumber(String value) {
+        Matcher number = NUMBER.matcher(value);
+        if (!number.find()) {
+            return null;
+        }
+        try {
+            return Double.parseDouble(number.group(1).replace(",", ""));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Map schema.org availability URLs and common variants to our labels
+     */
+    private String normalizeAvailability(String value) {
+        String lower = value.toLowerCase(Locale.ROOT);
+        if (lower.contains("outofstock") || lower.contains("out of stock") || lower.contains("soldout")) {
+            return "Out of Stock";
+        }
+        if (lower.contains("limited") || lower.contains("lowstock")) {
+            return "Limited Stock";
+        }
+        if (lower.contains("instock") || lower.contains("in stock") || lower.contains("available")) {
+            return "In Stock";
+        }
+        return value;
+    }
+}
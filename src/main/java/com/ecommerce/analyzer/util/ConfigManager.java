@@ -49,6 +49,55 @@ public class ConfigManager {
         return properties.getProperty(key, defaultValue);
     }
 
+    /**
+     * Get integer property with default value
+     * @param key Property key
+     * @param defaultValue Default value if property is missing or not a number
+     * @return Property value or default
+     */
+    public static int getIntProperty(String key, int defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid integer for " + key + ": " + value + " (using " + defaultValue + ")");
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Get decimal property with default value
+     * @param key Property key
+     * @param defaultValue Default value if property is missing or not a number
+     * @return Property value or default
+     */
+    public static double getDoubleProperty(String key, double defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid number for " + key + ": " + value + " (using " + defaultValue + ")");
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Get boolean property with default value
+     * @param key Property key
+     * @param defaultValue Default value if property not found
+     * @return Property value or default
+     */
+    public static boolean getBooleanProperty(String key, boolean defaultValue) {
+        String value = properties.getProperty(key);
+        return value == null || value.isBlank() ? defaultValue : Boolean.parseBoolean(value.trim());
+    }
+
     /**
      * Get Google Gemini API Key
      * @return Gemini API key
@@ -57,6 +106,19 @@ public class ConfigManager {
         return properties.getProperty("gemini.api.key");
     }
 
+    /**
+     * Gemini model base URL; the GEMINI_API_URL environment variable wins over
+     * gemini.api.url so load tests can point at a stand-in without editing files
+     * @param defaultValue URL used when neither is set
+     */
+    public static String getGeminiApiUrl(String defaultValue) {
+        String fromEnv = System.getenv("GEMINI_API_URL");
+        if (fromEnv != null && !fromEnv.isBlank()) {
+            return fromEnv.trim();
+        }
+        return properties.getProperty("gemini.api.url", defaultValue);
+    }
+
     /**
      * Get auto-refresh interval in minutes
      * @return Refresh interval